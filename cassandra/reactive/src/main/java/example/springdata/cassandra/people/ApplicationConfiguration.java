@@ -15,8 +15,11 @@
  */
 package example.springdata.cassandra.people;
 
+import java.time.Duration;
+
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.data.cassandra.CassandraDataAutoConfiguration;
+import org.springframework.context.annotation.Bean;
 import org.springframework.data.cassandra.config.AbstractReactiveCassandraConfiguration;
 import org.springframework.data.cassandra.config.SchemaAction;
 import org.springframework.data.cassandra.repository.config.EnableReactiveCassandraRepositories;
@@ -30,6 +33,11 @@ import org.springframework.data.cassandra.repository.config.EnableReactiveCassan
 @EnableReactiveCassandraRepositories
 class ApplicationConfiguration extends AbstractReactiveCassandraConfiguration {
 
+	@Bean
+	public BatchingPersonLookup batchingPersonLookup(ReactivePersonRepository repository) {
+		return new BatchingPersonLookup(repository, 100, Duration.ofMillis(5));
+	}
+
 	@Override
 	protected String getKeyspaceName() {
 		return "example";
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.cassandra.people;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.UnicastProcessor;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.springframework.util.Assert;
+
+/**
+ * Collects keys requested by many callers over a small size or time window and resolves them with a single query.
+ * Results are routed back to each caller by the key extracted from every loaded element. Keys requested more than once
+ * within a window are queried only once.
+ * <p>
+ * The same class is part of the reactive MongoDB example. Store examples are kept self-contained and do not share code
+ * with each other, so both copies should be changed together.
+ *
+ * @param <K> the key type.
+ * @param <V> the element type.
+ */
+public class BatchingLoader<K, V> implements Disposable {
+
+	private final Function<Set<K>, ? extends Publisher<V>> loader;
+	private final Function<V, K> keyExtractor;
+
+	private final FluxSink<Request<K, V>> requests;
+	private final Disposable batches;
+
+	private final AtomicLong queries = new AtomicLong();
+	private final AtomicLong lookups = new AtomicLong();
+
+	/**
+	 * Creates a new {@link BatchingLoader}.
+	 *
+	 * @param loader loads all elements for the given keys, must not be {@literal null}.
+	 * @param keyExtractor extracts the key an element was loaded for, must not be {@literal null}.
+	 * @param maxBatchSize maximum number of lookups resolved by one query, must be greater than zero.
+	 * @param maxWait maximum time a lookup waits for its batch to fill up, must not be {@literal null}.
+	 */
+	public BatchingLoader(Function<Set<K>, ? extends Publisher<V>> loader, Function<V, K> keyExtractor,
+			int maxBatchSize, Duration maxWait) {
+
+		Assert.notNull(loader, "Loader must not be null!");
+		Assert.notNull(keyExtractor, "Key extractor must not be null!");
+		Assert.isTrue(maxBatchSize > 0, "Max batch size must be greater than zero!");
+		Assert.notNull(maxWait, "Max wait must not be null!");
+
+		this.loader = loader;
+		this.keyExtractor = keyExtractor;
+
+		UnicastProcessor<Request<K, V>> processor = UnicastProcessor.create();
+
+		this.requests = processor.sink();
+		this.batches = processor.bufferTimeout(maxBatchSize, maxWait) //
+				.flatMap(this::execute) //
+				.subscribe();
+	}
+
+	/**
+	 * Load all elements for {@code key}. The lookup is deferred until subscription.
+	 *
+	 * @param key must not be {@literal null}.
+	 * @return
+	 */
+	public Flux<V> load(K key) {
+
+		Assert.notNull(key, "Key must not be null!");
+
+		return Mono.defer(() -> {
+
+			MonoProcessor<Collection<V>> result = MonoProcessor.create();
+			requests.next(new Request<>(key, result));
+			return result;
+		}).flatMapIterable(Function.identity());
+	}
+
+	/**
+	 * Load all elements for the key emitted by {@code key}.
+	 *
+	 * @param key must not be {@literal null}.
+	 * @return
+	 */
+	public Flux<V> load(Mono<K> key) {
+
+		Assert.notNull(key, "Key must not be null!");
+
+		return key.flatMapMany(this::load);
+	}
+
+	/**
+	 * @return the number of queries issued.
+	 */
+	public long getQueryCount() {
+		return queries.get();
+	}
+
+	/**
+	 * @return the number of lookups resolved.
+	 */
+	public long getLookupCount() {
+		return lookups.get();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see reactor.core.Disposable#dispose()
+	 */
+	@Override
+	public void dispose() {
+
+		requests.complete();
+		batches.dispose();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see reactor.core.Disposable#isDisposed()
+	 */
+	@Override
+	public boolean isDisposed() {
+		return batches.isDisposed();
+	}
+
+	private Mono<Void> execute(List<Request<K, V>> batch) {
+
+		Set<K> keys = new LinkedHashSet<>();
+		batch.forEach(request -> keys.add(request.key));
+
+		queries.incrementAndGet();
+		lookups.addAndGet(batch.size());
+
+		return Flux.defer(() -> loader.apply(keys)) //
+				.collectMultimap(keyExtractor) //
+				.doOnNext(results -> route(batch, results)) //
+				.doOnError(e -> batch.forEach(request -> request.result.onError(e))) //
+				.onErrorResume(e -> Mono.empty()) //
+				.then();
+	}
+
+	private void route(List<Request<K, V>> batch, Map<K, Collection<V>> results) {
+		batch.forEach(request -> request.result.onNext(results.getOrDefault(request.key, Collections.emptyList())));
+	}
+
+	private static class Request<K, V> {
+
+		private final K key;
+		private final MonoProcessor<Collection<V>> result;
+
+		Request(K key, MonoProcessor<Collection<V>> result) {
+			this.key = key;
+			this.result = result;
+		}
+	}
+}
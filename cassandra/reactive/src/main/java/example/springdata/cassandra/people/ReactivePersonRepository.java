@@ -18,6 +18,8 @@ package example.springdata.cassandra.people;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 import org.springframework.data.cassandra.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 
@@ -63,4 +65,23 @@ public interface ReactivePersonRepository extends ReactiveCrudRepository<Person,
 	 * @return
 	 */
 	Mono<Person> findByFirstnameAndLastname(Mono<String> firstname, String lastname);
+
+	/**
+	 * Derived query selecting by any of the given {@code lastnames} using {@code IN} on the partition key.
+	 *
+	 * @param lastnames
+	 * @return
+	 * @see BatchingPersonLookup
+	 */
+	Flux<Person> findByLastnameIn(Collection<String> lastnames);
+
+	/**
+	 * Derived query selecting any of the given {@code firstnames} within a single {@code lastname} partition.
+	 *
+	 * @param lastname
+	 * @param firstnames
+	 * @return
+	 * @see BatchingPersonLookup
+	 */
+	Flux<Person> findByLastnameAndFirstnameIn(String lastname, Collection<String> firstnames);
 }
@@ -15,6 +15,8 @@
  */
 package example.springdata.cassandra.people;
 
+import static org.assertj.core.api.Assertions.*;
+
 import example.springdata.cassandra.util.CassandraKeyspace;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -40,6 +42,7 @@ public class ReactivePersonRepositoryIntegrationTest {
 	@ClassRule public final static CassandraKeyspace CASSANDRA_KEYSPACE = CassandraKeyspace.onLocalhost();
 
 	@Autowired ReactivePersonRepository repository;
+	@Autowired BatchingPersonLookup lookup;
 
 	/**
 	 * Clear table and insert some rows.
@@ -120,4 +123,26 @@ public class ReactivePersonRepositoryIntegrationTest {
 				.verifyComplete();
 	}
 
+	/**
+	 * Concurrent lookups with deferred parameters are resolved in batches instead of one query per lookup.
+	 */
+	@Test
+	public void shouldBatchDeferredLookups() {
+
+		long queries = lookup.getQueryCount();
+
+		Flux<Person> byLastname = Flux.range(0, 50) //
+				.flatMap(i -> lookup.findByLastname(Mono.just(i % 2 == 0 ? "White" : "Pinkman")));
+
+		StepVerifier.create(byLastname).expectNextCount(75).verifyComplete();
+
+		Flux<Person> byFirstnameAndLastname = Flux.just("Walter", "Skyler", "Hank") //
+				.flatMap(firstname -> lookup.findByFirstnameAndLastname(Mono.just(firstname), "White"));
+
+		StepVerifier.create(byFirstnameAndLastname.map(Person::getFirstname).collectList()) //
+				.assertNext(firstnames -> assertThat(firstnames).containsExactlyInAnyOrder("Walter", "Skyler")) //
+				.verifyComplete();
+
+		assertThat(lookup.getQueryCount() - queries).isLessThan(10);
+	}
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.jpa.auditing;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+import org.springframework.data.annotation.CreatedBy;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedBy;
+import org.springframework.data.annotation.LastModifiedDate;
+
+/**
+ * High-write entity audited through {@link CachingAuditingEntityListener}.
+ */
+@Data
+@Entity
+@EntityListeners(CachingAuditingEntityListener.class)
+public class AuditedEvent {
+
+	private @Id @GeneratedValue Long id;
+	private String name;
+	private boolean acknowledged;
+
+	private @CreatedDate LocalDateTime createdDate;
+	private @LastModifiedDate LocalDateTime lastModifiedDate;
+
+	private @ManyToOne @CreatedBy AuditableUser createdBy;
+	private @ManyToOne @LastModifiedBy AuditableUser lastModifiedBy;
+}
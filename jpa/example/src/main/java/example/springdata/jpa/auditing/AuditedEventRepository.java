@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.jpa.auditing;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository to manage {@link AuditedEvent} instances.
+ */
+public interface AuditedEventRepository extends CrudRepository<AuditedEvent, Long> {
+
+	/**
+	 * Acknowledges all events with the given name in a single bulk update. Bulk updates bypass entity callbacks so the
+	 * modification stamp is applied by the query itself using {@link AuditingEvaluationContextExtension}.
+	 *
+	 * @param name
+	 * @return the number of updated events.
+	 */
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("update AuditedEvent e set e.acknowledged = true, e.lastModifiedDate = ?#{auditingDate}, "
+			+ "e.lastModifiedBy = ?#{currentAuditor} where e.name = ?1")
+	int acknowledgeByName(String name);
+}
@@ -30,4 +30,14 @@ class AuditingConfiguration {
 	AuditorAwareImpl auditorAware() {
 		return new AuditorAwareImpl();
 	}
+
+	@Bean
+	CachingAuditingHandler cachingAuditingHandler(AuditorAwareImpl auditorAware) {
+		return new CachingAuditingHandler(auditorAware);
+	}
+
+	@Bean
+	AuditingEvaluationContextExtension auditingEvaluationContextExtension(CachingAuditingHandler handler) {
+		return new AuditingEvaluationContextExtension(handler);
+	}
 }
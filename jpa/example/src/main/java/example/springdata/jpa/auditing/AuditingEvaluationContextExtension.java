@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.jpa.auditing;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.data.repository.query.spi.EvaluationContextExtensionSupport;
+
+/**
+ * {@link org.springframework.data.repository.query.spi.EvaluationContextExtension} exposing the current
+ * {@link AuditingStamp} to SpEL expressions in manually declared queries. This allows {@code @Modifying} bulk updates,
+ * which bypass entity callbacks, to apply the very same auditing date and auditor, e.g.
+ * {@code set e.lastModifiedDate = ?#{auditingDate}, e.lastModifiedBy = ?#{currentAuditor}}.
+ */
+@RequiredArgsConstructor
+public class AuditingEvaluationContextExtension extends EvaluationContextExtensionSupport {
+
+	private final @NonNull CachingAuditingHandler handler;
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.data.repository.query.spi.EvaluationContextExtension#getExtensionId()
+	 */
+	@Override
+	public String getExtensionId() {
+		return "auditing";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.data.repository.query.spi.EvaluationContextExtensionSupport#getRootObject()
+	 */
+	@Override
+	public AuditingStamp getRootObject() {
+		return handler.getCurrentStamp();
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.jpa.auditing;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+import org.springframework.util.Assert;
+
+/**
+ * JPA entity listener delegating to the {@link CachingAuditingHandler} registered in the application context. Entities
+ * using this listener are audited with a single {@link AuditingStamp} per transaction.
+ * <p />
+ * The listener is instantiated by the JPA provider, so the handler is looked up from a static reference the
+ * {@link CachingAuditingHandler} registers on initialization and removes when its application context is closed. If
+ * several application contexts are active, the handler of the most recently initialized one is used. Persisting an audited entity
+ * while no handler is registered fails with an {@link IllegalStateException} instead of silently skipping auditing.
+ */
+public class CachingAuditingEntityListener {
+
+	private static final Deque<CachingAuditingHandler> HANDLERS = new ConcurrentLinkedDeque<>();
+
+	static void register(CachingAuditingHandler handler) {
+
+		Assert.notNull(handler, "CachingAuditingHandler must not be null!");
+
+		HANDLERS.addFirst(handler);
+	}
+
+	static void unregister(CachingAuditingHandler handler) {
+		HANDLERS.remove(handler);
+	}
+
+	/**
+	 * Sets creation and modification date and auditor on the target object in case it implements auditing annotations.
+	 *
+	 * @param target
+	 */
+	@PrePersist
+	public void touchForCreate(Object target) {
+		getHandler().markCreated(target);
+	}
+
+	/**
+	 * Sets modification date and auditor on the target object in case it implements auditing annotations.
+	 *
+	 * @param target
+	 */
+	@PreUpdate
+	public void touchForUpdate(Object target) {
+		getHandler().markModified(target);
+	}
+
+	private static CachingAuditingHandler getHandler() {
+
+		CachingAuditingHandler handler = HANDLERS.peekFirst();
+
+		Assert.state(handler != null, "No CachingAuditingHandler registered! Make sure it is declared as bean.");
+
+		return handler;
+	}
+}
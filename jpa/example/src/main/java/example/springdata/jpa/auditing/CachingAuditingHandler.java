@@ -0,0 +1,230 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.jpa.auditing;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.annotation.CreatedBy;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedBy;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Auditing handler for high-write entities. In contrast to the default auditing infrastructure it introspects each
+ * entity type only once and caches the annotated fields. The {@link AuditingStamp} (date and auditor) is resolved once
+ * per transaction so that {@link AuditorAware} is not consulted for every single entity. The same stamp is exposed to
+ * bulk update queries through {@link AuditingEvaluationContextExtension}.
+ */
+public class CachingAuditingHandler implements InitializingBean, DisposableBean {
+
+	private final AuditorAware<?> auditorAware;
+	private final Map<Class<?>, AuditedFields> fieldsCache = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a new {@link CachingAuditingHandler} for the given {@link AuditorAware}.
+	 *
+	 * @param auditorAware must not be {@literal null}.
+	 */
+	public CachingAuditingHandler(AuditorAware<?> auditorAware) {
+
+		Assert.notNull(auditorAware, "AuditorAware must not be null!");
+
+		this.auditorAware = auditorAware;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.InitializingBean#afterPropertiesSet()
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		CachingAuditingEntityListener.register(this);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	@Override
+	public void destroy() {
+		CachingAuditingEntityListener.unregister(this);
+	}
+
+	/**
+	 * Sets created and modified date and auditor on the given entity.
+	 *
+	 * @param entity must not be {@literal null}.
+	 */
+	public void markCreated(Object entity) {
+
+		AuditedFields fields = getAuditedFields(entity);
+
+		if (fields.isEmpty()) {
+			return;
+		}
+
+		AuditingStamp stamp = getCurrentStamp();
+
+		fields.setDates(fields.createdDate, entity, stamp.getAuditingDate());
+		fields.setAuditor(fields.createdBy, entity, stamp.getCurrentAuditor());
+		fields.setDates(fields.lastModifiedDate, entity, stamp.getAuditingDate());
+		fields.setAuditor(fields.lastModifiedBy, entity, stamp.getCurrentAuditor());
+	}
+
+	/**
+	 * Sets modified date and auditor on the given entity.
+	 *
+	 * @param entity must not be {@literal null}.
+	 */
+	public void markModified(Object entity) {
+
+		AuditedFields fields = getAuditedFields(entity);
+
+		if (fields.isEmpty()) {
+			return;
+		}
+
+		AuditingStamp stamp = getCurrentStamp();
+
+		fields.setDates(fields.lastModifiedDate, entity, stamp.getAuditingDate());
+		fields.setAuditor(fields.lastModifiedBy, entity, stamp.getCurrentAuditor());
+	}
+
+	/**
+	 * Returns the {@link AuditingStamp} for the current transaction. The stamp is created on first access and reused until
+	 * the transaction completes. Outside of a transaction a new stamp is created for each call.
+	 *
+	 * @return the current {@link AuditingStamp}.
+	 */
+	public AuditingStamp getCurrentStamp() {
+
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return createStamp();
+		}
+
+		AuditingStamp stamp = (AuditingStamp) TransactionSynchronizationManager.getResource(this);
+
+		if (stamp == null) {
+
+			stamp = createStamp();
+
+			TransactionSynchronizationManager.bindResource(this, stamp);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(CachingAuditingHandler.this);
+				}
+			});
+		}
+
+		return stamp;
+	}
+
+	private AuditingStamp createStamp() {
+		return new AuditingStamp(LocalDateTime.now(), auditorAware.getCurrentAuditor().orElse(null));
+	}
+
+	private AuditedFields getAuditedFields(Object entity) {
+		return fieldsCache.computeIfAbsent(entity.getClass(), AuditedFields::new);
+	}
+
+	/**
+	 * Auditing-annotated fields of a single entity type.
+	 */
+	private static class AuditedFields {
+
+		final List<Field> createdDate, createdBy, lastModifiedDate, lastModifiedBy;
+
+		AuditedFields(Class<?> type) {
+
+			this.createdDate = findFields(type, CreatedDate.class);
+			this.createdBy = findFields(type, CreatedBy.class);
+			this.lastModifiedDate = findFields(type, LastModifiedDate.class);
+			this.lastModifiedBy = findFields(type, LastModifiedBy.class);
+		}
+
+		boolean isEmpty() {
+			return createdDate.isEmpty() && createdBy.isEmpty() && lastModifiedDate.isEmpty() && lastModifiedBy.isEmpty();
+		}
+
+		void setDates(List<Field> fields, Object entity, LocalDateTime date) {
+
+			for (Field field : fields) {
+				ReflectionUtils.setField(field, entity, convert(date, field.getType()));
+			}
+		}
+
+		void setAuditor(List<Field> fields, Object entity, Object auditor) {
+
+			for (Field field : fields) {
+				ReflectionUtils.setField(field, entity, auditor);
+			}
+		}
+
+		private static Object convert(LocalDateTime date, Class<?> type) {
+
+			if (LocalDateTime.class.equals(type)) {
+				return date;
+			}
+
+			Instant instant = date.atZone(ZoneId.systemDefault()).toInstant();
+
+			if (Instant.class.equals(type)) {
+				return instant;
+			}
+
+			if (Date.class.equals(type)) {
+				return Date.from(instant);
+			}
+
+			if (Long.class.equals(type) || long.class.equals(type)) {
+				return instant.toEpochMilli();
+			}
+
+			throw new IllegalArgumentException(String.format("Unsupported auditing date type %s!", type.getName()));
+		}
+
+		private static List<Field> findFields(Class<?> type, Class<? extends Annotation> annotation) {
+
+			List<Field> fields = new ArrayList<>();
+
+			ReflectionUtils.doWithFields(type, field -> {
+				ReflectionUtils.makeAccessible(field);
+				fields.add(field);
+			}, field -> field.isAnnotationPresent(annotation));
+
+			return fields.isEmpty() ? Collections.emptyList() : fields;
+		}
+	}
+}
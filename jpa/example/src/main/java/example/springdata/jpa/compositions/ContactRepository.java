@@ -15,7 +15,9 @@
  */
 package example.springdata.jpa.compositions;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Repository fragment for {@link Contact}.
@@ -31,4 +33,13 @@ public interface ContactRepository {
 	 * @return {@link List} of relatives.
 	 */
 	List<Contact> findRelatives(Contact contact);
+
+	/**
+	 * Find relatives of all given {@link Contact}s using a single query.
+	 *
+	 * @param contacts must not be {@literal null}.
+	 * @return {@link Map} of relatives keyed by the given {@link Contact}s in iteration order. Contacts without relatives
+	 *         are mapped to an empty {@link List}.
+	 */
+	Map<Contact, List<Contact>> findRelatives(Collection<? extends Contact> contacts);
 }
@@ -18,10 +18,19 @@ package example.springdata.jpa.compositions;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 
+import org.springframework.util.Assert;
+
 /**
  * {@link ContactRepository} fragment implementation.
  *
@@ -40,8 +49,35 @@ public class ContactRepositoryImpl implements ContactRepository {
 	@SuppressWarnings("unchecked")
 	public List<Contact> findRelatives(Contact contact) {
 
-		return entityManager.createQuery("SELECT u FROM User u WHERE u.lastname = :lastname") //
+		return entityManager.createNamedQuery("User.findByLastname") //
 				.setParameter("lastname", contact.getLastname()) //
 				.getResultList();
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see example.springdata.jpa.compositions.ContactRepository#findRelatives(java.util.Collection)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public Map<Contact, List<Contact>> findRelatives(Collection<? extends Contact> contacts) {
+
+		Assert.notNull(contacts, "Contacts must not be null!");
+
+		Set<String> lastnames = contacts.stream() //
+				.map(Contact::getLastname) //
+				.filter(Objects::nonNull) //
+				.collect(Collectors.toSet());
+
+		Map<String, List<Contact>> relativesByLastname = lastnames.isEmpty() ? Collections.emptyMap()
+				: ((List<Contact>) entityManager.createNamedQuery("User.findByLastnameIn") //
+						.setParameter("lastnames", lastnames) //
+						.getResultList()).stream() //
+								.collect(Collectors.groupingBy(Contact::getLastname));
+
+		Map<Contact, List<Contact>> result = new LinkedHashMap<>(contacts.size());
+		contacts.forEach(it -> result.put(it, relativesByLastname.getOrDefault(it.getLastname(), Collections.emptyList())));
+
+		return result;
+	}
 }
@@ -15,7 +15,9 @@
  */
 package example.springdata.jpa.compositions;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Repository extension for {@link Employee} entities.
@@ -35,4 +37,21 @@ public interface EmployeeRepository {
 	 * @return list of subordinates for this {@link Employee manager}.
 	 */
 	List<Employee> findSubordinates(Employee manager);
+
+	/**
+	 * Find co-workers of all given {@link Employee}s using a single query.
+	 *
+	 * @param employees must not be {@literal null}.
+	 * @return {@link Map} of co-workers keyed by the given {@link Employee}s in iteration order. Employees without a
+	 *         {@link Employee#getManager() manager} are mapped to an empty {@link List}.
+	 */
+	Map<Employee, List<Employee>> findCoworkers(Collection<? extends Employee> employees);
+
+	/**
+	 * Find subordinates of all given {@link Employee managers} using a single query.
+	 *
+	 * @param managers must not be {@literal null}.
+	 * @return {@link Map} of subordinates keyed by the given {@link Employee managers} in iteration order.
+	 */
+	Map<Employee, List<Employee>> findSubordinates(Collection<? extends Employee> managers);
 }
@@ -18,10 +18,20 @@ package example.springdata.jpa.compositions;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 
+import org.springframework.util.Assert;
+
 /**
  * {@link EmployeeRepository} fragment implementation.
  *
@@ -40,7 +50,7 @@ public class EmployeeRepositoryImpl implements EmployeeRepository {
 	@SuppressWarnings("unchecked")
 	public List<Employee> findCoworkers(Employee employee) {
 
-		return entityManager.createQuery("SELECT u from User u where u.manager = :manager") //
+		return entityManager.createNamedQuery("User.findByManager") //
 				.setParameter("manager", employee.getManager()) //
 				.getResultList();
 	}
@@ -53,8 +63,67 @@ public class EmployeeRepositoryImpl implements EmployeeRepository {
 	@SuppressWarnings("unchecked")
 	public List<Employee> findSubordinates(Employee manager) {
 
-		return entityManager.createQuery("SELECT u from User u where u.manager = :manager") //
+		return entityManager.createNamedQuery("User.findByManager") //
 				.setParameter("manager", manager) //
 				.getResultList();
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see example.springdata.jpa.compositions.EmployeeRepository#findCoworkers(java.util.Collection)
+	 */
+	@Override
+	public Map<Employee, List<Employee>> findCoworkers(Collection<? extends Employee> employees) {
+
+		Assert.notNull(employees, "Employees must not be null!");
+
+		return groupByManager(employees, Employee::getManager);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see example.springdata.jpa.compositions.EmployeeRepository#findSubordinates(java.util.Collection)
+	 */
+	@Override
+	public Map<Employee, List<Employee>> findSubordinates(Collection<? extends Employee> managers) {
+
+		Assert.notNull(managers, "Managers must not be null!");
+
+		return groupByManager(managers, Function.identity());
+	}
+
+	/**
+	 * Loads all employees reporting to the managers derived from {@code keys} in a single query and maps them back to
+	 * the given keys.
+	 *
+	 * @param keys
+	 * @param managerFunction function to obtain the manager to look up for a key.
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<Employee, List<Employee>> groupByManager(Collection<? extends Employee> keys,
+			Function<Employee, Employee> managerFunction) {
+
+		Set<Employee> managers = keys.stream() //
+				.map(managerFunction) //
+				.filter(Objects::nonNull) //
+				.collect(Collectors.toSet());
+
+		Map<Employee, List<Employee>> employeesByManager = managers.isEmpty() ? Collections.emptyMap()
+				: ((List<Employee>) entityManager.createNamedQuery("User.findByManagerIn") //
+						.setParameter("managers", managers) //
+						.getResultList()).stream() //
+								.collect(Collectors.groupingBy(Employee::getManager));
+
+		Map<Employee, List<Employee>> result = new LinkedHashMap<>(keys.size());
+
+		for (Employee key : keys) {
+
+			Employee manager = managerFunction.apply(key);
+			result.put(key, manager == null ? Collections.emptyList()
+					: employeesByManager.getOrDefault(manager, Collections.emptyList()));
+		}
+
+		return result;
+	}
 }
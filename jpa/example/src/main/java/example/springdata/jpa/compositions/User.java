@@ -21,6 +21,8 @@ import lombok.Setter;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
 
 import org.springframework.data.jpa.domain.AbstractPersistable;
 
@@ -30,6 +32,11 @@ import org.springframework.data.jpa.domain.AbstractPersistable;
  * @author Mark Paluch
  */
 @Entity
+@NamedQueries({ //
+		@NamedQuery(name = "User.findByLastname", query = "SELECT u FROM User u WHERE u.lastname = :lastname"), //
+		@NamedQuery(name = "User.findByLastnameIn", query = "SELECT u FROM User u WHERE u.lastname IN :lastnames"), //
+		@NamedQuery(name = "User.findByManager", query = "SELECT u FROM User u WHERE u.manager = :manager"), //
+		@NamedQuery(name = "User.findByManagerIn", query = "SELECT u FROM User u WHERE u.manager IN :managers") })
 @Getter
 @Setter
 public class User extends AbstractPersistable<Long> implements Contact, Employee {
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.jpa.workqueue;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.MappedSuperclass;
+
+import org.springframework.data.jpa.domain.AbstractPersistable;
+
+/**
+ * Base class for entities that are consumed through a {@link WorkQueueRepository}. Items start out
+ * {@link Status#PENDING} and are {@link #markDone() marked done} once processed.
+ */
+@Getter
+@MappedSuperclass
+public abstract class WorkItem extends AbstractPersistable<Long> {
+
+	private @Enumerated(EnumType.STRING) Status status = Status.PENDING;
+	private LocalDateTime processedAt;
+
+	/**
+	 * Mark this item as processed.
+	 */
+	void markDone() {
+
+		this.status = Status.DONE;
+		this.processedAt = LocalDateTime.now();
+	}
+
+	public enum Status {
+		PENDING, DONE
+	}
+}
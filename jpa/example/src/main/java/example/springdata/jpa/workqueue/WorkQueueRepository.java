@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.jpa.workqueue;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Generic repository extension to consume {@link WorkItem}s concurrently from multiple workers. Pending rows are
+ * claimed with a pessimistic write lock skipping rows already locked by other workers ({@code FOR UPDATE SKIP LOCKED})
+ * so workers don't queue up behind each other.
+ */
+public interface WorkQueueRepository<T extends WorkItem> {
+
+	/**
+	 * Claims up to {@code limit} pending items by locking them for the duration of the current transaction. Rows locked
+	 * by concurrent transactions are skipped. Must be called within a transaction.
+	 *
+	 * @param type the domain type, must not be {@literal null}.
+	 * @param limit maximum number of items to claim.
+	 * @return the claimed items, never {@literal null}.
+	 */
+	List<T> claim(Class<T> type, int limit);
+
+	/**
+	 * Claims up to {@code limit} pending items, hands each of them to {@code processor} and marks them as done within a
+	 * single transaction.
+	 *
+	 * @param type the domain type, must not be {@literal null}.
+	 * @param limit maximum number of items to process.
+	 * @param processor must not be {@literal null}.
+	 * @return the number of processed items. {@literal 0} if there were no unclaimed pending items.
+	 */
+	int process(Class<T> type, int limit, Consumer<? super T> processor);
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.jpa.workqueue;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+
+import org.hibernate.LockOptions;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+
+/**
+ * {@link WorkQueueRepository} fragment implementation. Uses {@link LockModeType#PESSIMISTIC_WRITE} along with a lock
+ * timeout of {@link LockOptions#SKIP_LOCKED} which Hibernate renders as {@code FOR UPDATE SKIP LOCKED} on databases
+ * supporting it (PostgreSQL 9.5+, Oracle, MySQL 8). Other databases fall back to a plain {@code FOR UPDATE}.
+ */
+@RequiredArgsConstructor
+public class WorkQueueRepositoryImpl<T extends WorkItem> implements WorkQueueRepository<T> {
+
+	static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+
+	final @NonNull EntityManager entityManager;
+
+	/*
+	 * (non-Javadoc)
+	 * @see example.springdata.jpa.workqueue.WorkQueueRepository#claim(java.lang.Class, int)
+	 */
+	@Override
+	@Transactional(propagation = Propagation.MANDATORY)
+	public List<T> claim(Class<T> type, int limit) {
+
+		Assert.notNull(type, "Type must not be null!");
+		Assert.isTrue(limit > 0, "Limit must be greater than zero!");
+
+		String entityName = entityManager.getMetamodel().entity(type).getName();
+
+		return entityManager
+				.createQuery(String.format("SELECT i FROM %s i WHERE i.status = :status ORDER BY i.id", entityName), type) //
+				.setParameter("status", WorkItem.Status.PENDING) //
+				.setLockMode(LockModeType.PESSIMISTIC_WRITE) //
+				.setHint(LOCK_TIMEOUT_HINT, LockOptions.SKIP_LOCKED) //
+				.setMaxResults(limit) //
+				.getResultList();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see example.springdata.jpa.workqueue.WorkQueueRepository#process(java.lang.Class, int, java.util.function.Consumer)
+	 */
+	@Override
+	@Transactional
+	public int process(Class<T> type, int limit, Consumer<? super T> processor) {
+
+		Assert.notNull(processor, "Processor must not be null!");
+
+		List<T> items = claim(type, limit);
+
+		for (T item : items) {
+			processor.accept(item);
+			item.markDone();
+		}
+
+		entityManager.flush();
+
+		return items.size();
+	}
+}
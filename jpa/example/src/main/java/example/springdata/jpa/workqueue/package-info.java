@@ -0,0 +1,4 @@
+/**
+ * Package showing a work-queue repository fragment claiming rows with {@code SELECT … FOR UPDATE SKIP LOCKED}.
+ */
+package example.springdata.jpa.workqueue;
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.jpa.auditing;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration test for {@link CachingAuditingHandler} auditing entities and bulk updates.
+ */
+@RunWith(SpringRunner.class)
+@Transactional
+@SpringBootTest
+public class AuditedEventSample {
+
+	@Autowired AuditedEventRepository repository;
+	@Autowired AuditableUserRepository userRepository;
+	@Autowired AuditorAwareImpl auditorAware;
+	@Autowired CachingAuditingHandler handler;
+	@Autowired JdbcTemplate jdbcTemplate;
+	@Autowired EntityManager em;
+
+	AuditableUser user;
+
+	@Before
+	public void setUp() {
+
+		user = new AuditableUser();
+		user.setUsername("username");
+
+		auditorAware.setAuditor(user);
+
+		user = userRepository.save(user);
+	}
+
+	@Test
+	public void appliesSameStampToAllEntitiesOfTransaction() {
+
+		AuditedEvent first = new AuditedEvent();
+		first.setName("first");
+
+		AuditedEvent second = new AuditedEvent();
+		second.setName("second");
+
+		repository.saveAll(Arrays.asList(first, second));
+
+		assertThat(first.getCreatedDate()).isNotNull().isEqualTo(second.getCreatedDate());
+		assertThat(first.getLastModifiedDate()).isEqualTo(first.getCreatedDate());
+		assertThat(first.getCreatedBy()).isEqualTo(user);
+		assertThat(second.getLastModifiedBy()).isEqualTo(user);
+	}
+
+	@Test
+	public void keepsAuditingWhenOtherHandlerIsDestroyed() {
+
+		CachingAuditingHandler other = new CachingAuditingHandler(Optional::empty);
+		other.afterPropertiesSet();
+		other.destroy();
+
+		AuditedEvent event = new AuditedEvent();
+		event.setName("event");
+
+		repository.save(event);
+
+		assertThat(event.getCreatedBy()).isEqualTo(user);
+	}
+
+	@Test
+	public void rejectsAuditedEntityWithoutRegisteredHandler() {
+
+		handler.destroy();
+
+		try {
+			assertThatIllegalStateException()
+					.isThrownBy(() -> new CachingAuditingEntityListener().touchForCreate(new AuditedEvent()));
+		} finally {
+			handler.afterPropertiesSet();
+		}
+	}
+
+	@Test
+	public void appliesStampWithinBulkUpdate() {
+
+		AuditedEvent event = new AuditedEvent();
+		event.setName("event");
+		event = repository.save(event);
+
+		em.flush();
+		jdbcTemplate.update("update audited_event set last_modified_by_id = null, last_modified_date = null");
+
+		assertThat(repository.acknowledgeByName("event")).isEqualTo(1);
+
+		AuditedEvent updated = repository.findById(event.getId()).get();
+
+		assertThat(updated.isAcknowledged()).isTrue();
+		assertThat(updated.getLastModifiedBy().getId()).isEqualTo(user.getId());
+		assertThat(updated.getLastModifiedDate()).isEqualTo(updated.getCreatedDate());
+	}
+}
@@ -18,6 +18,8 @@ package example.springdata.jpa.compositions;
 import static org.assertj.core.api.Assertions.*;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -73,6 +75,36 @@ public class ComposedRepositoryTests {
 		assertThat(repository.findRelatives(walter)).contains(walterJr);
 	}
 
+	/**
+	 * Testing batched lookup of {@link ContactRepository} fragment.
+	 */
+	@Test
+	public void testContactRepositoryBatched() {
+
+		User walter = new User();
+		walter.setUsername("heisenberg");
+		walter.setFirstname("Walter");
+		walter.setLastname("White");
+
+		User walterJr = new User();
+		walterJr.setUsername("flynn");
+		walterJr.setFirstname("Walter Jr.");
+		walterJr.setLastname("White");
+
+		User jesse = new User();
+		jesse.setUsername("capncook");
+		jesse.setFirstname("Jesse");
+		jesse.setLastname("Pinkman");
+
+		repository.saveAll(Arrays.asList(walter, walterJr, jesse));
+
+		Map<Contact, List<Contact>> relatives = repository.findRelatives(Arrays.asList(walter, jesse));
+
+		assertThat(relatives).containsOnlyKeys(walter, jesse);
+		assertThat(relatives.get(walter)).containsOnly(walter, walterJr);
+		assertThat(relatives.get(jesse)).containsOnly(jesse);
+	}
+
 	/**
 	 * Testing {@link EmployeeRepository} fragment.
 	 */
@@ -129,4 +161,42 @@ public class ComposedRepositoryTests {
 		assertThat(repository.findSubordinates(gustavo)).contains(walter, jesse);
 		assertThat(repository.findSubordinates(walter)).isEmpty();
 	}
+
+	/**
+	 * Testing batched lookups of {@link EmployeeRepository} fragment.
+	 */
+	@Test
+	public void testFindCoworkersAndSubordinatesBatched() {
+
+		User gustavo = new User();
+		gustavo.setUsername("pollosh");
+		gustavo.setFirstname("Gustavo");
+		gustavo.setLastname("Fring");
+
+		User walter = new User();
+		walter.setUsername("heisenberg");
+		walter.setFirstname("Walter");
+		walter.setLastname("White");
+		walter.setManager(gustavo);
+
+		User jesse = new User();
+		jesse.setUsername("capncook");
+		jesse.setFirstname("Jesse");
+		jesse.setLastname("Pinkman");
+		jesse.setManager(walter);
+
+		repository.saveAll(Arrays.asList(gustavo, walter, jesse));
+
+		Map<Employee, List<Employee>> coworkers = repository.findCoworkers(Arrays.asList(gustavo, walter, jesse));
+
+		assertThat(coworkers.get(gustavo)).isEmpty();
+		assertThat(coworkers.get(walter)).containsOnly(walter);
+		assertThat(coworkers.get(jesse)).containsOnly(jesse);
+
+		Map<Employee, List<Employee>> subordinates = repository.findSubordinates(Arrays.asList(gustavo, walter, jesse));
+
+		assertThat(subordinates.get(gustavo)).containsOnly(walter);
+		assertThat(subordinates.get(walter)).containsOnly(jesse);
+		assertThat(subordinates.get(jesse)).isEmpty();
+	}
 }
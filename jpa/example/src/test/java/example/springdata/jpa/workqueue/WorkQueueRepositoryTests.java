@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.jpa.workqueue;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.hibernate.LockOptions;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Integration test showing concurrent consumption of a {@link JobRepository} work queue. Runs against H2 as HSQLDB
+ * does not lock rows selected with {@code FOR UPDATE}. Neither of them supports {@code SKIP LOCKED}, so these tests
+ * verify that workers blocking on each other's claims process each job exactly once. Skipping locked rows requires a
+ * database like PostgreSQL 9.5+. {@link SkipLockedH2Dialect} renders the lock timeout as a comment instead, so that the
+ * generated claim query can be verified.
+ * <p />
+ * The throughput measurement is skipped unless run with {@code -Dbenchmark=true}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { //
+		"spring.datasource.url=jdbc:h2:mem:workqueue;LOCK_TIMEOUT=10000;DB_CLOSE_ON_EXIT=FALSE", //
+		"spring.jpa.properties.hibernate.dialect=example.springdata.jpa.workqueue.WorkQueueRepositoryTests$SkipLockedH2Dialect", //
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=example.springdata.jpa.workqueue.WorkQueueRepositoryTests$RecordingStatementInspector" })
+public class WorkQueueRepositoryTests {
+
+	static final int JOBS = 500;
+	static final int WORKERS = 4;
+	static final int BATCH_SIZE = 20;
+
+	@Autowired JobRepository repository;
+
+	@After
+	public void tearDown() {
+
+		repository.deleteAll();
+		RecordingStatementInspector.STATEMENTS.clear();
+	}
+
+	@Test
+	public void processesPendingJobsInBatches() {
+
+		repository.saveAll(IntStream.range(0, 5).mapToObj(i -> new Job("job-" + i)).collect(Collectors.toList()));
+
+		List<String> processed = new ArrayList<>();
+
+		assertThat(repository.process(Job.class, 3, job -> processed.add(job.getPayload()))).isEqualTo(3);
+		assertThat(repository.process(Job.class, 3, job -> processed.add(job.getPayload()))).isEqualTo(2);
+		assertThat(repository.process(Job.class, 3, job -> processed.add(job.getPayload()))).isZero();
+
+		assertThat(processed).containsExactly("job-0", "job-1", "job-2", "job-3", "job-4");
+		assertThat(repository.countByStatus(WorkItem.Status.DONE)).isEqualTo(5);
+	}
+
+	@Test
+	public void claimsPendingJobsWithSkipLockedRowLock() {
+
+		repository.saveAll(IntStream.range(0, 3).mapToObj(i -> new Job("job-" + i)).collect(Collectors.toList()));
+		RecordingStatementInspector.STATEMENTS.clear();
+
+		repository.process(Job.class, 2, job -> {});
+
+		assertThat(RecordingStatementInspector.STATEMENTS) //
+				.filteredOn(sql -> sql.contains("for update")) //
+				.hasSize(1) //
+				.allSatisfy(sql -> assertThat(sql.toLowerCase()) //
+						.contains("where job0_.status=?") //
+						.contains("order by job0_.id") //
+						.contains("limit ?") //
+						.endsWith("for update /* skip locked */"));
+	}
+
+	@Test
+	public void workersBlockingOnClaimedJobsProcessEachJobExactlyOnce() throws Exception {
+		assertThat(runWorkers(WORKERS)).isEqualTo(JOBS);
+	}
+
+	@Test
+	public void measureThroughput() throws Exception {
+
+		Assume.assumeTrue("Benchmark disabled, run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+
+		for (int workers : new int[] { 1, 2, 4, 8 }) {
+
+			long start = System.nanoTime();
+			int total = runWorkers(workers);
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			System.out.println(String.format("Processed %d jobs with %d workers in %d ms (%.0f jobs/s)", total, workers,
+					elapsed, total * 1000d / Math.max(elapsed, 1)));
+
+			assertThat(total).isEqualTo(JOBS);
+		}
+	}
+
+	/**
+	 * Process {@value #JOBS} new jobs with the given number of concurrent workers.
+	 *
+	 * @return the number of processed jobs.
+	 */
+	private int runWorkers(int workerCount) throws Exception {
+
+		repository.saveAll(IntStream.range(0, JOBS).mapToObj(i -> new Job("job-" + i)).collect(Collectors.toList()));
+
+		Set<Long> processed = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+		List<Future<Integer>> workers = new ArrayList<>();
+
+		for (int i = 0; i < workerCount; i++) {
+			workers.add(executor.submit(() -> {
+
+				int count = 0;
+				int claimed;
+
+				do {
+					claimed = repository.process(Job.class, BATCH_SIZE, job -> {
+						assertThat(processed.add(job.getId())).as("Job %s processed twice", job.getId()).isTrue();
+					});
+					count += claimed;
+				} while (claimed > 0);
+
+				return count;
+			}));
+		}
+
+		int total = 0;
+		for (Future<Integer> worker : workers) {
+			total += worker.get(1, TimeUnit.MINUTES);
+		}
+
+		executor.shutdown();
+
+		assertThat(processed).hasSize(total);
+		assertThat(repository.countByStatus(WorkItem.Status.PENDING)).isZero();
+
+		return total;
+	}
+
+	/**
+	 * {@link H2Dialect} rendering the {@link LockOptions#SKIP_LOCKED} lock timeout as a comment, as H2 does not support
+	 * {@code SKIP LOCKED}.
+	 */
+	public static class SkipLockedH2Dialect extends H2Dialect {
+
+		@Override
+		public String getWriteLockString(int timeout) {
+			return timeout == LockOptions.SKIP_LOCKED ? getForUpdateString() + " /* skip locked */"
+					: super.getWriteLockString(timeout);
+		}
+	}
+
+	/**
+	 * {@link StatementInspector} recording all SQL statements.
+	 */
+	public static class RecordingStatementInspector implements StatementInspector {
+
+		private static final long serialVersionUID = 1L;
+
+		static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+
+			STATEMENTS.add(sql);
+			return sql;
+		}
+	}
+}
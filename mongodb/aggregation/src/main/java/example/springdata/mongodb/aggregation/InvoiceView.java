@@ -0,0 +1,363 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.aggregation;
+
+import static com.mongodb.client.model.Filters.*;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.util.Assert;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.RenameCollectionOptions;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+
+/**
+ * Materialized view of {@link Invoice}s kept up to date by listening to a
+ * <a href="https://docs.mongodb.com/manual/changeStreams/">Change Stream</a> on the {@link Order} collection. Each
+ * insert, update, replace or delete recomputes the {@link Invoice} of the affected {@link Order} only, using the very
+ * same aggregation as {@link OrderRepositoryCustom#getInvoicesFor(Collection)}. Reading an {@link Invoice} is then a
+ * single lookup by the order id.
+ * <p />
+ * A {@link #rebuild()} populates a temporary collection and renames it to replace the view. Changes arriving meanwhile
+ * are buffered and applied on top of the rebuilt view, so they are neither lost nor overwritten by the rebuild.
+ * <p />
+ * Change Streams require a replica set. The view is therefore not registered by default but needs to be set up as
+ * {@link SmartLifecycle} bean or started and stopped manually.
+ */
+class InvoiceView implements SmartLifecycle {
+
+	static final String DEFAULT_COLLECTION_NAME = "invoices";
+	static final String REBUILD_SUFFIX = "_rebuild";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InvoiceView.class);
+
+	private final MongoOperations operations;
+	private final OrderRepositoryCustom invoices;
+	private final String collectionName;
+
+	private final Object lifecycleMonitor = new Object();
+	private volatile boolean running = false;
+	private ExecutorService executor;
+
+	private final Object rebuildMonitor = new Object();
+	private final Object viewMonitor = new Object();
+	private Set<String> pendingOrderIds; // guarded by viewMonitor, non-null while rebuilding
+
+	/**
+	 * Creates a new {@link InvoiceView} storing {@link Invoice}s in the {@value #DEFAULT_COLLECTION_NAME} collection.
+	 *
+	 * @param operations must not be {@literal null}.
+	 * @param invoices must not be {@literal null}.
+	 */
+	InvoiceView(MongoOperations operations, OrderRepositoryCustom invoices) {
+		this(operations, invoices, DEFAULT_COLLECTION_NAME);
+	}
+
+	/**
+	 * Creates a new {@link InvoiceView} storing {@link Invoice}s in the given collection.
+	 *
+	 * @param operations must not be {@literal null}.
+	 * @param invoices must not be {@literal null}.
+	 * @param collectionName must not be {@literal null} or empty.
+	 */
+	InvoiceView(MongoOperations operations, OrderRepositoryCustom invoices, String collectionName) {
+
+		Assert.notNull(operations, "MongoOperations must not be null!");
+		Assert.notNull(invoices, "OrderRepositoryCustom must not be null!");
+		Assert.hasText(collectionName, "Collection name must not be null or empty!");
+
+		this.operations = operations;
+		this.invoices = invoices;
+		this.collectionName = collectionName;
+	}
+
+	/**
+	 * Look up the {@link Invoice} for the given order id.
+	 *
+	 * @param orderId must not be {@literal null}.
+	 * @return the {@link Invoice} or {@link Optional#empty()} if the view does not contain an {@link Invoice} for the
+	 *         {@link Order}.
+	 */
+	public Optional<Invoice> findByOrderId(String orderId) {
+
+		Assert.notNull(orderId, "Order id must not be null!");
+
+		return Optional.ofNullable(getViewCollection().find(eq("_id", orderId)).first()) //
+				.map(it -> operations.getConverter().read(Invoice.class, it));
+	}
+
+	/**
+	 * Recompute the whole view from the {@link Order} collection. Use this to populate the view initially or after the
+	 * listener was not running for a while. The view remains readable and keeps its previous content until the rebuilt
+	 * one replaces it.
+	 */
+	public void rebuild() {
+
+		synchronized (rebuildMonitor) {
+
+			MongoCollection<Document> rebuilt = operations.getCollection(collectionName + REBUILD_SUFFIX);
+
+			synchronized (viewMonitor) {
+				pendingOrderIds = new HashSet<>();
+			}
+
+			try {
+
+				rebuilt.drop();
+				operations.createCollection(collectionName + REBUILD_SUFFIX);
+
+				try (Stream<Invoice> stream = invoices.streamInvoices(new Criteria())) {
+					stream.forEach(it -> save(rebuilt, it));
+				}
+			} catch (RuntimeException e) {
+
+				synchronized (viewMonitor) {
+					applyPendingChanges();
+				}
+
+				throw e;
+			}
+
+			synchronized (viewMonitor) {
+
+				rebuilt.renameCollection(new MongoNamespace(rebuilt.getNamespace().getDatabaseName(), collectionName),
+						new RenameCollectionOptions().dropTarget(true));
+				applyPendingChanges();
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.Lifecycle#start()
+	 */
+	@Override
+	public void start() {
+
+		CountDownLatch subscribed = new CountDownLatch(1);
+
+		synchronized (lifecycleMonitor) {
+
+			if (running) {
+				return;
+			}
+
+			if (executor != null) { // listener terminated on its own
+				executor.shutdown();
+			}
+
+			running = true;
+			executor = Executors.newSingleThreadExecutor(runnable -> {
+
+				Thread thread = new Thread(runnable, "invoice-view");
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.submit(() -> listen(subscribed));
+		}
+
+		try {
+			subscribed.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stop listening and wait for an event in progress to be applied, so that no further changes are applied to the view
+	 * once this method returns.
+	 */
+	@Override
+	public void stop() {
+
+		synchronized (lifecycleMonitor) {
+
+			if (!running) {
+				return;
+			}
+
+			running = false;
+			executor.shutdown();
+
+			try {
+
+				if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+					LOGGER.warn("Invoice view listener did not stop within 5 seconds.");
+					executor.shutdownNow();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.SmartLifecycle#stop(java.lang.Runnable)
+	 */
+	@Override
+	public void stop(Runnable callback) {
+
+		stop();
+		callback.run();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.Lifecycle#isRunning()
+	 */
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.SmartLifecycle#isAutoStartup()
+	 */
+	@Override
+	public boolean isAutoStartup() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.Phased#getPhase()
+	 */
+	@Override
+	public int getPhase() {
+		return Integer.MAX_VALUE;
+	}
+
+	private void listen(CountDownLatch subscribed) {
+
+		MongoCollection<Document> orders = operations.getCollection(operations.getCollectionName(Order.class));
+		List<Bson> pipeline = Collections
+				.singletonList(Aggregates.match(in("operationType", "insert", "update", "replace", "delete")));
+
+		try (MongoCursor<ChangeStreamDocument<Document>> cursor = orders.watch(pipeline) //
+				.maxAwaitTime(500, TimeUnit.MILLISECONDS) //
+				.iterator()) {
+
+			subscribed.countDown();
+
+			while (running) {
+
+				ChangeStreamDocument<Document> event = cursor.tryNext();
+
+				if (event != null) {
+					onChange(event);
+				}
+			}
+		} catch (RuntimeException e) {
+
+			if (running) {
+				LOGGER.error("Invoice view change stream terminated.", e);
+			}
+		} finally {
+
+			running = false;
+			subscribed.countDown();
+		}
+	}
+
+	private void onChange(ChangeStreamDocument<Document> event) {
+
+		String orderId = toOrderId(event.getDocumentKey().get("_id"));
+
+		synchronized (viewMonitor) {
+
+			if (pendingOrderIds != null) {
+				pendingOrderIds.add(orderId);
+			} else {
+				refresh(Collections.singleton(orderId));
+			}
+		}
+	}
+
+	private void applyPendingChanges() {
+
+		Set<String> orderIds = pendingOrderIds;
+		pendingOrderIds = null;
+
+		if (!orderIds.isEmpty()) {
+			refresh(orderIds);
+		}
+	}
+
+	/**
+	 * Recompute the {@link Invoice}s of the given orders with a single aggregation and remove the ones of orders that do
+	 * not exist anymore.
+	 */
+	private void refresh(Collection<String> orderIds) {
+
+		MongoCollection<Document> view = getViewCollection();
+		Set<String> removed = new HashSet<>(orderIds);
+
+		try (Stream<Invoice> stream = invoices.getInvoicesFor(orderIds)) {
+
+			stream.forEach(it -> {
+
+				save(view, it);
+				removed.remove(it.getOrderId());
+			});
+		}
+
+		if (!removed.isEmpty()) {
+			view.deleteMany(in("_id", removed));
+		}
+	}
+
+	private void save(MongoCollection<Document> view, Invoice invoice) {
+
+		Document document = new Document();
+		operations.getConverter().write(invoice, document);
+		document.put("_id", invoice.getOrderId());
+
+		view.replaceOne(eq("_id", invoice.getOrderId()), document, new UpdateOptions().upsert(true));
+	}
+
+	private MongoCollection<Document> getViewCollection() {
+		return operations.getCollection(collectionName);
+	}
+
+	private static String toOrderId(BsonValue id) {
+		return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+	}
+}
@@ -15,6 +15,11 @@
  */
 package example.springdata.mongodb.aggregation;
 
+import java.util.Collection;
+import java.util.stream.Stream;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+
 /**
  * The interface for repository functionality that will be implemented manually.
  *
@@ -29,4 +34,22 @@ interface OrderRepositoryCustom {
 	 * @return
 	 */
 	Invoice getInvoiceFor(Order order);
+
+	/**
+	 * Creates {@link Invoice}s for all {@link Order}s with the given ids using a single aggregation.
+	 *
+	 * @param orderIds must not be {@literal null}.
+	 * @return a {@link Stream} of {@link Invoice}s backed by a cursor. Make sure to {@link Stream#close() close} the
+	 *         stream after usage.
+	 */
+	Stream<Invoice> getInvoicesFor(Collection<String> orderIds);
+
+	/**
+	 * Creates {@link Invoice}s for all {@link Order}s matching the given {@link Criteria} using a single aggregation.
+	 *
+	 * @param criteria must not be {@literal null}.
+	 * @return a {@link Stream} of {@link Invoice}s backed by a cursor. Make sure to {@link Stream#close() close} the
+	 *         stream after usage.
+	 */
+	Stream<Invoice> streamInvoices(Criteria criteria);
 }
@@ -19,9 +19,16 @@ import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
 import static org.springframework.data.mongodb.core.query.Criteria.*;
 import lombok.RequiredArgsConstructor;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import java.util.Collection;
+import java.util.stream.Stream;
+
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
 import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.util.StreamUtils;
+import org.springframework.util.Assert;
 
 /**
  * The manual implementation parts for {@link OrderRepository}. This will automatically be picked up by the Spring Data
@@ -36,6 +43,8 @@ class OrderRepositoryImpl implements OrderRepositoryCustom {
 
 	private final MongoOperations operations;
 
+	private static final int INVOICE_BATCH_SIZE = 100;
+
 	private double taxRate = 0.19;
 
 	/**
@@ -48,8 +57,49 @@ class OrderRepositoryImpl implements OrderRepositoryCustom {
 	@Override
 	public Invoice getInvoiceFor(Order order) {
 
-		AggregationResults<Invoice> results = operations.aggregate(newAggregation(Order.class, //
-				match(where("id").is(order.getId())), //
+		AggregationResults<Invoice> results = operations.aggregate(invoiceAggregation(where("id").is(order.getId())),
+				Invoice.class);
+
+		return results.getUniqueMappedResult();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see example.springdata.mongodb.aggregation.OrderRepositoryCustom#getInvoicesFor(java.util.Collection)
+	 */
+	@Override
+	public Stream<Invoice> getInvoicesFor(Collection<String> orderIds) {
+
+		Assert.notNull(orderIds, "Order ids must not be null!");
+
+		return streamInvoices(where("id").in(orderIds));
+	}
+
+	/**
+	 * Runs the invoice aggregation with a cursor fetching batches of {@value #INVOICE_BATCH_SIZE} {@link Invoice}s so that
+	 * results are consumed while streaming instead of being materialized in {@link AggregationResults}. Large result sets
+	 * may exceed the in-memory limit of {@code $group} so we allow the server to use temporary files.
+	 *
+	 * @see example.springdata.mongodb.aggregation.OrderRepositoryCustom#streamInvoices(org.springframework.data.mongodb.core.query.Criteria)
+	 */
+	@Override
+	public Stream<Invoice> streamInvoices(Criteria criteria) {
+
+		Assert.notNull(criteria, "Criteria must not be null!");
+
+		TypedAggregation<Order> aggregation = invoiceAggregation(criteria) //
+				.withOptions(AggregationOptions.builder() //
+						.allowDiskUse(true) //
+						.cursorBatchSize(INVOICE_BATCH_SIZE) //
+						.build());
+
+		return StreamUtils.createStreamFromIterator(operations.aggregateStream(aggregation, Invoice.class));
+	}
+
+	private TypedAggregation<Order> invoiceAggregation(Criteria criteria) {
+
+		return newAggregation(Order.class, //
+				match(criteria), //
 				unwind("items"), //
 				project("id", "customerId", "items") //
 						.andExpression("'$items.price' * '$items.quantity'").as("lineTotal"), //
@@ -60,8 +110,6 @@ class OrderRepositoryImpl implements OrderRepositoryCustom {
 						.and("orderId").previousOperation() //
 						.andExpression("netAmount * [0]", taxRate).as("taxAmount") //
 						.andExpression("netAmount * (1 + [0])", taxRate).as("totalAmount") //
-				), Invoice.class);
-
-		return results.getUniqueMappedResult();
+		);
 	}
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.aggregation;
+
+import static org.assertj.core.api.Assertions.*;
+
+import example.springdata.mongodb.util.EmbeddedMongo;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Integration tests for {@link InvoiceView} running against a replica set as required for Change Streams.
+ */
+public class InvoiceViewIntegrationTests {
+
+	public static @ClassRule EmbeddedMongo replSet = EmbeddedMongo.singleNodeReplSet() //
+			.withSharedInstance(true) //
+			.configure();
+
+	MongoTemplate template;
+	InvoiceView view;
+
+	@Before
+	public void setUp() {
+
+		template = new MongoTemplate(replSet.getMongoClient(), replSet.getDatabaseName());
+		template.dropCollection(Order.class);
+		template.dropCollection(InvoiceView.DEFAULT_COLLECTION_NAME);
+
+		view = new InvoiceView(template, new OrderRepositoryImpl(template));
+		view.start();
+	}
+
+	@After
+	public void tearDown() {
+		view.stop();
+	}
+
+	@Test
+	public void maintainsInvoiceOnOrderChanges() throws InterruptedException {
+
+		Order order = new Order("c42", new Date()).addItem(new LineItem("p1", 1.23));
+		template.save(order);
+
+		assertThat(awaitInvoice(order.getId(), Optional::isPresent).get().getNetAmount()).isCloseTo(1.23,
+				within(0.00001));
+
+		order.addItem(new LineItem("p2", 0.87, 2));
+		template.save(order);
+
+		Invoice invoice = awaitInvoice(order.getId(), it -> it.map(Invoice::getItems).filter(items -> items.size() == 2)
+				.isPresent()).get();
+
+		assertThat(invoice.getNetAmount()).isCloseTo(2.97, within(0.00001));
+		assertThat(invoice.getTotalAmount()).isCloseTo(3.5343, within(0.00001));
+
+		template.remove(order);
+
+		assertThat(awaitInvoice(order.getId(), it -> !it.isPresent())).isEmpty();
+	}
+
+	@Test
+	public void rebuildsViewFromExistingOrders() {
+
+		view.stop();
+
+		Order order = new Order("c42", new Date()).addItem(new LineItem("p3", 5.33));
+		template.save(order);
+
+		assertThat(view.findByOrderId(order.getId())).isEmpty();
+
+		view.rebuild();
+
+		assertThat(view.findByOrderId(order.getId())).hasValueSatisfying(it -> {
+			assertThat(it.getTotalAmount()).isCloseTo(6.3427, within(0.00001));
+		});
+	}
+
+	@Test
+	public void keepsChangesAppliedDuringRebuild() throws InterruptedException {
+
+		List<Order> orders = new ArrayList<>();
+
+		for (int i = 0; i < 200; i++) {
+			Order order = new Order("c" + i, new Date()).addItem(new LineItem("p1", 1.0));
+			template.save(order);
+			orders.add(order);
+		}
+
+		awaitInvoice(orders.get(orders.size() - 1).getId(), Optional::isPresent);
+
+		CompletableFuture<Void> changes = CompletableFuture.runAsync(() -> {
+			orders.forEach(it -> template.save(it.addItem(new LineItem("p2", 2.0))));
+		});
+
+		view.rebuild();
+		changes.join();
+
+		for (Order order : orders) {
+			assertThat(awaitInvoice(order.getId(), it -> it.map(Invoice::getItems).filter(items -> items.size() == 2)
+					.isPresent()).get().getNetAmount()).isCloseTo(3.0, within(0.00001));
+		}
+
+		assertThat(template.collectionExists(InvoiceView.DEFAULT_COLLECTION_NAME + InvoiceView.REBUILD_SUFFIX)).isFalse();
+	}
+
+	private Optional<Invoice> awaitInvoice(String orderId, Predicate<Optional<Invoice>> condition)
+			throws InterruptedException {
+
+		Optional<Invoice> invoice = view.findByOrderId(orderId);
+
+		for (int i = 0; i < 50 && !condition.test(invoice); i++) {
+
+			Thread.sleep(100);
+			invoice = view.findByOrderId(orderId);
+		}
+
+		return invoice;
+	}
+}
@@ -19,7 +19,12 @@ import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.number.IsCloseTo.*;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -60,8 +65,26 @@ public class OrderRepositoryIntegrationTests {
 
 		assertThat(invoice, is(notNullValue()));
 		assertThat(invoice.getOrderId(), is(order.getId()));
-		assertThat(invoice.getNetAmount(), is(closeTo(8.3, 000001)));
-		assertThat(invoice.getTaxAmount(), is(closeTo(1.577, 000001)));
-		assertThat(invoice.getTotalAmount(), is(closeTo(9.877, 000001)));
+		assertThat(invoice.getNetAmount(), is(closeTo(8.3, 0.000001)));
+		assertThat(invoice.getTaxAmount(), is(closeTo(1.577, 0.000001)));
+		assertThat(invoice.getTotalAmount(), is(closeTo(9.877, 0.000001)));
+	}
+
+	@Test
+	public void createsInvoicesForMultipleOrdersViaSingleAggregation() {
+
+		Order first = repository.save(new Order("c42", new Date()).addItem(product1).addItem(product2));
+		Order second = repository.save(new Order("c43", new Date()).addItem(product3));
+		repository.save(new Order("c44", new Date()).addItem(product1));
+
+		Map<String, Invoice> invoices;
+		try (Stream<Invoice> stream = repository.getInvoicesFor(Arrays.asList(first.getId(), second.getId()))) {
+			invoices = stream.collect(Collectors.toMap(Invoice::getOrderId, Function.identity()));
+		}
+
+		assertThat(invoices.size(), is(2));
+		assertThat(invoices.get(first.getId()).getNetAmount(), is(closeTo(2.97, 0.000001)));
+		assertThat(invoices.get(second.getId()).getNetAmount(), is(closeTo(5.33, 0.000001)));
+		assertThat(invoices.get(second.getId()).getTotalAmount(), is(closeTo(6.3427, 0.000001)));
 	}
 }
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.aggregation;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+import example.springdata.mongodb.util.JsonBulkLoader;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+
+/**
+ * Benchmark harness running the {@link SpringBooksPipelines} on a synthetically scaled copy of {@code books.json}. For
+ * each scale factor the pipelines run with and without supporting indexes and with and without {@code allowDiskUse},
+ * reporting the winning plan along with latency percentiles on the console and to
+ * {@code target/benchmark/spring-books-aggregation.csv}.
+ * <p />
+ * Skipped unless run with {@code -Dbenchmark=true}. Use {@code -Dbenchmark.scales=1,10,100,1000} and
+ * {@code -Dbenchmark.iterations=50} to tune the run.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SpringBooksAggregationBenchmark {
+
+	static final String COLLECTION = "books_benchmark";
+
+	/**
+	 * Error codes for {@code $group} (16945), {@code $sort} (16819) and, as of MongoDB 4.4, any stage (292) exceeding
+	 * the memory limit without {@code allowDiskUse}.
+	 */
+	static final Set<Integer> MEMORY_LIMIT_EXCEEDED_CODES = new HashSet<>(Arrays.asList(16945, 16819, 292));
+
+	@Autowired MongoOperations operations;
+
+	List<Document> books;
+	int iterations;
+	int warmupIterations;
+
+	@Before
+	public void setUp() throws IOException {
+
+		Assume.assumeTrue("Benchmark disabled, run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+
+		iterations = Integer.getInteger("benchmark.iterations", 20);
+		warmupIterations = Math.max(1, iterations / 4);
+
+		// load the original data set once, copies are derived from it
+		operations.dropCollection(COLLECTION);
+		JsonBulkLoader.into(operations.getCollection(COLLECTION)).load(new ClassPathResource("books.json"));
+		books = operations.findAll(Document.class, COLLECTION);
+		books.forEach(it -> it.remove("_id"));
+	}
+
+	@Test
+	public void benchmarkPipelines() throws IOException {
+
+		Map<String, Supplier<Aggregation>> pipelines = new LinkedHashMap<>();
+		pipelines.put("orderedBookTitles", SpringBooksPipelines::orderedBookTitles);
+		pipelines.put("booksPerPublisher", SpringBooksPipelines::booksPerPublisher);
+		pipelines.put("booksPerPublisherWithTitles", SpringBooksPipelines::booksPerPublisherWithTitles);
+		pipelines.put("dataRelatedBooks", SpringBooksPipelines::dataRelatedBooks);
+		pipelines.put("pagesPerAuthor", SpringBooksPipelines::pagesPerAuthor);
+		pipelines.put("booksInPageCountBuckets", SpringBooksPipelines::booksInPageCountBuckets);
+		pipelines.put("priceAndAuthorFacets", SpringBooksPipelines::priceAndAuthorFacets);
+
+		List<Result> results = new ArrayList<>();
+
+		for (int scale : scales()) {
+
+			populate(scale);
+
+			for (boolean indexed : new boolean[] { false, true }) {
+
+				if (indexed) {
+					createIndexes();
+				} else {
+					operations.indexOps(COLLECTION).dropAllIndexes();
+				}
+
+				for (boolean allowDiskUse : new boolean[] { false, true }) {
+
+					AggregationOptions options = newAggregationOptions().allowDiskUse(allowDiskUse).build();
+
+					pipelines.forEach((name, pipeline) -> {
+
+						Result result = run(name, pipeline.get().withOptions(options), scale, indexed, allowDiskUse);
+
+						results.add(result);
+						System.out.println(result);
+					});
+				}
+			}
+		}
+
+		write(results);
+		operations.dropCollection(COLLECTION);
+	}
+
+	private Result run(String name, Aggregation aggregation, int scale, boolean indexed, boolean allowDiskUse) {
+
+		try {
+			return measure(name, aggregation, scale, indexed, allowDiskUse);
+		} catch (UncategorizedMongoDbException | MongoCommandException e) {
+
+			if (!exceedsMemoryLimit(e)) {
+				throw e;
+			}
+
+			return new Result(name, scale, indexed, allowDiskUse, "MEMORY LIMIT EXCEEDED", 0, 0, 0, 0);
+		}
+	}
+
+	private static boolean exceedsMemoryLimit(RuntimeException e) {
+
+		Throwable cause = e instanceof UncategorizedMongoDbException ? e.getCause() : e;
+
+		return cause instanceof MongoCommandException
+				&& MEMORY_LIMIT_EXCEEDED_CODES.contains(((MongoCommandException) cause).getErrorCode());
+	}
+
+	private Result measure(String name, Aggregation aggregation, int scale, boolean indexed, boolean allowDiskUse) {
+
+		for (int i = 0; i < warmupIterations; i++) {
+			operations.aggregate(aggregation, COLLECTION, Document.class);
+		}
+
+		long[] nanos = new long[iterations];
+
+		for (int i = 0; i < iterations; i++) {
+
+			long start = System.nanoTime();
+			operations.aggregate(aggregation, COLLECTION, Document.class);
+			nanos[i] = System.nanoTime() - start;
+		}
+
+		Arrays.sort(nanos);
+
+		return new Result(name, scale, indexed, allowDiskUse, plan(aggregation), percentile(nanos, 0.5),
+				percentile(nanos, 0.9), percentile(nanos, 0.99), nanos[nanos.length - 1]);
+	}
+
+	/**
+	 * Copy the original books {@code scale} times.
+	 */
+	private void populate(int scale) {
+
+		operations.dropCollection(COLLECTION);
+
+		MongoCollection<Document> collection = operations.getCollection(COLLECTION);
+		List<Document> batch = new ArrayList<>();
+
+		for (int copy = 0; copy < scale; copy++) {
+			for (Document book : books) {
+
+				Document document = new Document(book);
+				document.put("id", book.get("id") + "-" + copy);
+				batch.add(document);
+
+				if (batch.size() == 1000) {
+					collection.insertMany(batch, new InsertManyOptions().ordered(false));
+					batch = new ArrayList<>();
+				}
+			}
+		}
+
+		if (!batch.isEmpty()) {
+			collection.insertMany(batch, new InsertManyOptions().ordered(false));
+		}
+	}
+
+	/**
+	 * Indexes supporting the {@code $match} and {@code $sort} stages of the {@link SpringBooksPipelines}.
+	 */
+	private void createIndexes() {
+
+		operations.indexOps(COLLECTION).ensureIndex(new Index("volumeInfo.title", Direction.ASC));
+		operations.indexOps(COLLECTION).ensureIndex(new Index("volumeInfo.publisher", Direction.ASC));
+		operations.indexOps(COLLECTION).ensureIndex(new Index("volumeInfo.authors", Direction.ASC));
+		operations.indexOps(COLLECTION).ensureIndex(new Index("volumeInfo.pageCount", Direction.ASC));
+	}
+
+	/**
+	 * Run the aggregation with {@code explain} and report whether the initial query used an index.
+	 */
+	private String plan(Aggregation aggregation) {
+
+		Document command = aggregation.toDocument(COLLECTION, DEFAULT_CONTEXT);
+		command.remove("cursor");
+		command.put("explain", true);
+
+		String explained = operations.executeCommand(command).toJson();
+
+		return explained.contains("IXSCAN") ? "IXSCAN" : explained.contains("COLLSCAN") ? "COLLSCAN" : "OTHER";
+	}
+
+	private void write(List<Result> results) throws IOException {
+
+		Path file = Paths.get("target", "benchmark", "spring-books-aggregation.csv");
+		Files.createDirectories(file.getParent());
+
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+
+			writer.println("pipeline,scale,indexed,allowDiskUse,plan,p50Ms,p90Ms,p99Ms,maxMs");
+			results.forEach(it -> writer.println(it.toCsv()));
+		}
+	}
+
+	private static List<Integer> scales() {
+
+		return Arrays.stream(System.getProperty("benchmark.scales", "1,10,100,1000").split(",")) //
+				.map(String::trim) //
+				.map(Integer::valueOf) //
+				.collect(Collectors.toList());
+	}
+
+	private static long percentile(long[] sorted, double percentile) {
+		return sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+	}
+
+	static class Result {
+
+		final String pipeline;
+		final int scale;
+		final boolean indexed;
+		final boolean allowDiskUse;
+		final String plan;
+		final long p50, p90, p99, max;
+
+		Result(String pipeline, int scale, boolean indexed, boolean allowDiskUse, String plan, long p50, long p90,
+				long p99, long max) {
+
+			this.pipeline = pipeline;
+			this.scale = scale;
+			this.indexed = indexed;
+			this.allowDiskUse = allowDiskUse;
+			this.plan = plan;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.max = max;
+		}
+
+		String toCsv() {
+			return String.join(",", pipeline, String.valueOf(scale), String.valueOf(indexed), String.valueOf(allowDiskUse),
+					plan, millis(p50), millis(p90), millis(p99), millis(max));
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-28s %5dx indexed=%-5s allowDiskUse=%-5s %-8s p50=%8s ms p90=%8s ms p99=%8s ms max=%8s ms",
+					pipeline, scale, indexed, allowDiskUse, plan, millis(p50), millis(p90), millis(p99), millis(max));
+		}
+
+		private static String millis(long nanos) {
+			return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+}
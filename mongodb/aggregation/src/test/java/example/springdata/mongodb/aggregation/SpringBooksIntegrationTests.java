@@ -16,16 +16,13 @@
 package example.springdata.mongodb.aggregation;
 
 import static org.assertj.core.api.Assertions.*;
-import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
 
+import example.springdata.mongodb.util.JsonBulkLoader;
 import lombok.Getter;
 import lombok.Value;
 
-import java.io.File;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
-import org.assertj.core.util.Files;
 import org.bson.Document;
 import org.junit.Before;
 import org.junit.Test;
@@ -34,19 +31,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.domain.Sort.Direction;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.aggregation.AggregationResults;
-import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
-import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
-import org.springframework.data.mongodb.core.aggregation.BucketAutoOperation.Granularities;
-import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.test.context.junit4.SpringRunner;
 
-import com.mongodb.util.JSON;
-
 /**
  * Examples for Spring Books using the MongoDB Aggregation Framework. Data originates from Google's Book search.
  *
@@ -62,17 +52,11 @@ public class SpringBooksIntegrationTests {
 
 	@Autowired MongoOperations operations;
 
-	@SuppressWarnings("unchecked")
 	@Before
 	public void before() throws Exception {
 
 		if (operations.count(new Query(), "books") == 0) {
-
-			File file = new ClassPathResource("books.json").getFile();
-			String content = Files.contentOf(file, StandardCharsets.UTF_8);
-			List<Object> books = (List<Object>) JSON.parse(content);
-
-			operations.insert(books, "books");
+			JsonBulkLoader.into(operations.getCollection("books")).load(new ClassPathResource("books.json"));
 		}
 	}
 
@@ -82,9 +66,7 @@ public class SpringBooksIntegrationTests {
 	@Test
 	public void shouldRetrieveOrderedBookTitles() {
 
-		Aggregation aggregation = newAggregation( //
-				sort(Direction.ASC, "volumeInfo.title"), //
-				project().and("volumeInfo.title").as("title"));
+		Aggregation aggregation = SpringBooksPipelines.orderedBookTitles();
 
 		AggregationResults<BookTitle> result = operations.aggregate(aggregation, "books", BookTitle.class);
 
@@ -99,11 +81,7 @@ public class SpringBooksIntegrationTests {
 	@Test
 	public void shouldRetrieveBooksPerPublisher() {
 
-		Aggregation aggregation = newAggregation( //
-				group("volumeInfo.publisher") //
-						.count().as("count"), //
-				sort(Direction.DESC, "count"), //
-				project("count").and("_id").as("publisher"));
+		Aggregation aggregation = SpringBooksPipelines.booksPerPublisher();
 
 		AggregationResults<BooksPerPublisher> result = operations.aggregate(aggregation, "books", BooksPerPublisher.class);
 
@@ -118,12 +96,7 @@ public class SpringBooksIntegrationTests {
 	@Test
 	public void shouldRetrieveBooksPerPublisherWithTitles() {
 
-		Aggregation aggregation = newAggregation( //
-				group("volumeInfo.publisher") //
-						.count().as("count") //
-						.addToSet("volumeInfo.title").as("titles"), //
-				sort(Direction.DESC, "count"), //
-				project("count", "titles").and("_id").as("publisher"));
+		Aggregation aggregation = SpringBooksPipelines.booksPerPublisherWithTitles();
 
 		AggregationResults<BooksPerPublisher> result = operations.aggregate(aggregation, "books", BooksPerPublisher.class);
 
@@ -140,11 +113,7 @@ public class SpringBooksIntegrationTests {
 	@Test
 	public void shouldRetrieveDataRelatedBooks() {
 
-		Aggregation aggregation = newAggregation( //
-				match(Criteria.where("volumeInfo.title").regex("data", "i")), //
-				replaceRoot("volumeInfo"), //
-				project("title", "authors"), //
-				sort(Direction.ASC, "title"));
+		Aggregation aggregation = SpringBooksPipelines.dataRelatedBooks();
 
 		AggregationResults<BookAndAuthors> result = operations.aggregate(aggregation, "books", BookAndAuthors.class);
 
@@ -161,18 +130,7 @@ public class SpringBooksIntegrationTests {
 	@Test
 	public void shouldRetrievePagesPerAuthor() {
 
-		Aggregation aggregation = newAggregation( //
-				match(Criteria.where("volumeInfo.authors").exists(true)), //
-				replaceRoot("volumeInfo"), //
-				project("authors", "pageCount") //
-						.and(ArithmeticOperators.valueOf("pageCount") //
-								.divideBy(ArrayOperators.arrayOf("authors").length()))
-						.as("pagesPerAuthor"),
-				unwind("authors"), //
-				group("authors") //
-						.sum("pageCount").as("totalPageCount") //
-						.sum("pagesPerAuthor").as("approxWritten"), //
-				sort(Direction.DESC, "totalPageCount"));
+		Aggregation aggregation = SpringBooksPipelines.pagesPerAuthor();
 
 		AggregationResults<PagesPerAuthor> result = operations.aggregate(aggregation, "books", PagesPerAuthor.class);
 
@@ -189,13 +147,7 @@ public class SpringBooksIntegrationTests {
 	@Test
 	public void shouldCategorizeBooksInBuckets() {
 
-		Aggregation aggregation = newAggregation( //
-				replaceRoot("volumeInfo"), //
-				match(Criteria.where("pageCount").exists(true)),
-				bucketAuto("pageCount", 10) //
-						.withGranularity(Granularities.SERIES_1_2_5) //
-						.andOutput("title").push().as("titles") //
-						.andOutput("titles").count().as("count"));
+		Aggregation aggregation = SpringBooksPipelines.booksInPageCountBuckets();
 
 		AggregationResults<BookFacetPerPage> result = operations.aggregate(aggregation, "books", BookFacetPerPage.class);
 
@@ -221,24 +173,7 @@ public class SpringBooksIntegrationTests {
 	@SuppressWarnings("unchecked")
 	public void shouldCategorizeInMultipleFacetsByPriceAndAuthor() {
 
-		Aggregation aggregation = newAggregation( //
-				match(Criteria.where("volumeInfo.authors").exists(true).and("volumeInfo.publisher").exists(true)),
-				facet() //
-						.and(match(Criteria.where("saleInfo.listPrice").exists(true)), //
-								replaceRoot("saleInfo"), //
-								bucket("listPrice.amount") //
-										.withBoundaries(1, 10, 50, 100))
-						.as("prices") //
-
-						.and(unwind("volumeInfo.authors"), //
-								replaceRoot("volumeInfo"), //
-								match(Criteria.where("authors").not().size(0)), //
-								project() //
-										.andExpression("substrCP(authors, 0, 1)").as("startsWith") //
-										.and("authors").as("author"), //
-								bucketAuto("startsWith", 10) //
-										.andOutput("author").push().as("authors") //
-						).as("authors"));
+		Aggregation aggregation = SpringBooksPipelines.priceAndAuthorFacets();
 
 		AggregationResults<Document> result = operations.aggregate(aggregation, "books", Document.class);
 
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.aggregation;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.BucketAutoOperation.Granularities;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+/**
+ * Aggregation pipelines over the Spring Books data set shared by {@link SpringBooksIntegrationTests} and
+ * {@link SpringBooksAggregationBenchmark}.
+ *
+ * @author Mark Paluch
+ * @author Oliver Gierke
+ */
+class SpringBooksPipelines {
+
+	/**
+	 * Project Book titles.
+	 */
+	static Aggregation orderedBookTitles() {
+
+		return newAggregation( //
+				sort(Direction.ASC, "volumeInfo.title"), //
+				project().and("volumeInfo.title").as("title"));
+	}
+
+	/**
+	 * Get number of books that were published by the particular publisher.
+	 */
+	static Aggregation booksPerPublisher() {
+
+		return newAggregation( //
+				group("volumeInfo.publisher") //
+						.count().as("count"), //
+				sort(Direction.DESC, "count"), //
+				project("count").and("_id").as("publisher"));
+	}
+
+	/**
+	 * Get number of books that were published by the particular publisher with their titles.
+	 */
+	static Aggregation booksPerPublisherWithTitles() {
+
+		return newAggregation( //
+				group("volumeInfo.publisher") //
+						.count().as("count") //
+						.addToSet("volumeInfo.title").as("titles"), //
+				sort(Direction.DESC, "count"), //
+				project("count", "titles").and("_id").as("publisher"));
+	}
+
+	/**
+	 * Filter for Data-related books in their title and output the title and authors.
+	 */
+	static Aggregation dataRelatedBooks() {
+
+		return newAggregation( //
+				match(Criteria.where("volumeInfo.title").regex("data", "i")), //
+				replaceRoot("volumeInfo"), //
+				project("title", "authors"), //
+				sort(Direction.ASC, "title"));
+	}
+
+	/**
+	 * Retrieve the number of pages per author (and divide the number of pages by the number of authors).
+	 */
+	static Aggregation pagesPerAuthor() {
+
+		return newAggregation( //
+				match(Criteria.where("volumeInfo.authors").exists(true)), //
+				replaceRoot("volumeInfo"), //
+				project("authors", "pageCount") //
+						.and(ArithmeticOperators.valueOf("pageCount") //
+								.divideBy(ArrayOperators.arrayOf("authors").length()))
+						.as("pagesPerAuthor"),
+				unwind("authors"), //
+				group("authors") //
+						.sum("pageCount").as("totalPageCount") //
+						.sum("pagesPerAuthor").as("approxWritten"), //
+				sort(Direction.DESC, "totalPageCount"));
+	}
+
+	/**
+	 * Categorize books by their page count into buckets.
+	 */
+	static Aggregation booksInPageCountBuckets() {
+
+		return newAggregation( //
+				replaceRoot("volumeInfo"), //
+				match(Criteria.where("pageCount").exists(true)),
+				bucketAuto("pageCount", 10) //
+						.withGranularity(Granularities.SERIES_1_2_5) //
+						.andOutput("title").push().as("titles") //
+						.andOutput("titles").count().as("count"));
+	}
+
+	/**
+	 * Run a multi-faceted aggregation to get buckets by price (1-10, 10-50, 50-100 EURO) and by the first letter of the
+	 * author name.
+	 */
+	static Aggregation priceAndAuthorFacets() {
+
+		return newAggregation( //
+				match(Criteria.where("volumeInfo.authors").exists(true).and("volumeInfo.publisher").exists(true)),
+				facet() //
+						.and(match(Criteria.where("saleInfo.listPrice").exists(true)), //
+								replaceRoot("saleInfo"), //
+								bucket("listPrice.amount") //
+										.withBoundaries(1, 10, 50, 100))
+						.as("prices") //
+
+						.and(unwind("volumeInfo.authors"), //
+								replaceRoot("volumeInfo"), //
+								match(Criteria.where("authors").not().size(0)), //
+								project() //
+										.andExpression("substrCP(authors, 0, 1)").as("startsWith") //
+										.and("authors").as("author"), //
+								bucketAuto("startsWith", 10) //
+										.andOutput("author").push().as("authors") //
+						).as("authors"));
+	}
+}
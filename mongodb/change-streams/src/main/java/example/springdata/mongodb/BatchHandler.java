@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.core.messaging.Message;
+
+/**
+ * Callback to process {@link Message messages} in batches as handed over by a {@link BatchingMessageListener}.
+ *
+ * @param <S> raw message type.
+ * @param <T> converted message body type.
+ */
+@FunctionalInterface
+public interface BatchHandler<S, T> {
+
+	/**
+	 * Process a batch of {@link Message messages}. Messages are passed in the order they were received.
+	 *
+	 * @param messages never {@literal null} nor empty.
+	 */
+	void handle(List<Message<S, T>> messages);
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.util.Assert;
+
+/**
+ * {@link MessageListener} decoupling message reception from processing. Received {@link Message messages} are put into
+ * a bounded buffer and drained on a dedicated {@link Thread} in batches of up to {@code batchSize} messages that are
+ * handed to a {@link BatchHandler}. A batch is dispatched as soon as it is full or when {@code maxWait} elapsed after
+ * receiving its first message.
+ * <p />
+ * If the {@link BatchHandler} falls behind and the buffer is full the {@link OverflowStrategy} applies:
+ * {@link OverflowStrategy#BLOCK} blocks the thread delivering messages, which is the
+ * {@link org.springframework.data.mongodb.core.messaging.MessageListenerContainer} thread, so no further events are
+ * read from the Change Stream cursor until there's room in the buffer again. It stops blocking and drops the message
+ * once the listener is not running or its draining {@link Thread} died, so that the container can still be stopped.
+ * The {@code DROP_…} strategies keep the cursor moving at the cost of losing messages.
+ * <p />
+ * Throughput and lag figures are exposed as JMX attributes when the listener is registered as a bean.
+ *
+ * @param <S> raw message type.
+ * @param <T> converted message body type.
+ */
+@ManagedResource(description = "Batching Change Stream listener")
+public class BatchingMessageListener<S, T> implements MessageListener<S, T>, SmartLifecycle {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BatchingMessageListener.class);
+
+	private final BatchHandler<S, T> handler;
+	private final BlockingQueue<Envelope<S, T>> buffer;
+	private final int batchSize;
+	private final long maxWaitNanos;
+	private final OverflowStrategy overflowStrategy;
+
+	private final AtomicLong received = new AtomicLong();
+	private final AtomicLong processed = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong lastLagNanos = new AtomicLong();
+	private final AtomicLong maxLagNanos = new AtomicLong();
+
+	private final Object lifecycleMonitor = new Object();
+	private volatile boolean running = false;
+	private volatile Thread drainer;
+
+	/**
+	 * Creates a new {@link BatchingMessageListener}.
+	 *
+	 * @param handler must not be {@literal null}.
+	 * @param capacity buffer capacity, must be greater than zero.
+	 * @param batchSize maximum number of messages per batch, must be greater than zero.
+	 * @param maxWait maximum time to wait for a batch to fill up, must not be {@literal null}.
+	 * @param overflowStrategy must not be {@literal null}.
+	 */
+	public BatchingMessageListener(BatchHandler<S, T> handler, int capacity, int batchSize, Duration maxWait,
+			OverflowStrategy overflowStrategy) {
+
+		Assert.notNull(handler, "BatchHandler must not be null!");
+		Assert.isTrue(capacity > 0, "Capacity must be greater than zero!");
+		Assert.isTrue(batchSize > 0, "Batch size must be greater than zero!");
+		Assert.notNull(maxWait, "Max wait must not be null!");
+		Assert.notNull(overflowStrategy, "OverflowStrategy must not be null!");
+
+		this.handler = handler;
+		this.buffer = new ArrayBlockingQueue<>(capacity);
+		this.batchSize = batchSize;
+		this.maxWaitNanos = maxWait.toNanos();
+		this.overflowStrategy = overflowStrategy;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.data.mongodb.core.messaging.MessageListener#onMessage(org.springframework.data.mongodb.core.messaging.Message)
+	 */
+	@Override
+	public void onMessage(Message<S, T> message) {
+
+		received.incrementAndGet();
+
+		Envelope<S, T> envelope = new Envelope<>(message, System.nanoTime());
+
+		switch (overflowStrategy) {
+
+			case BLOCK:
+				if (!offerWhileDraining(envelope)) {
+					dropped.incrementAndGet();
+				}
+				break;
+
+			case DROP_LATEST:
+				if (!buffer.offer(envelope)) {
+					dropped.incrementAndGet();
+				}
+				break;
+
+			case DROP_OLDEST:
+				while (!buffer.offer(envelope)) {
+					if (buffer.poll() != null) {
+						dropped.incrementAndGet();
+					}
+				}
+				break;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.Lifecycle#start()
+	 */
+	@Override
+	public void start() {
+
+		synchronized (lifecycleMonitor) {
+
+			if (running) {
+				return;
+			}
+
+			running = true;
+			drainer = new Thread(this::drain, "change-stream-batcher");
+			drainer.setDaemon(true);
+			drainer.start();
+		}
+	}
+
+	/**
+	 * Stops draining after dispatching all messages that are currently buffered.
+	 *
+	 * @see org.springframework.context.Lifecycle#stop()
+	 */
+	@Override
+	public void stop() {
+
+		Thread drainer;
+
+		synchronized (lifecycleMonitor) {
+
+			if (!running) {
+				return;
+			}
+
+			running = false;
+			drainer = this.drainer;
+		}
+
+		try {
+			drainer.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.SmartLifecycle#stop(java.lang.Runnable)
+	 */
+	@Override
+	public void stop(Runnable callback) {
+
+		stop();
+		callback.run();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.Lifecycle#isRunning()
+	 */
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.SmartLifecycle#isAutoStartup()
+	 */
+	@Override
+	public boolean isAutoStartup() {
+		return true;
+	}
+
+	/**
+	 * Start before and stop after the {@link org.springframework.data.mongodb.core.messaging.MessageListenerContainer}
+	 * that delivers messages.
+	 *
+	 * @see org.springframework.context.Phased#getPhase()
+	 */
+	@Override
+	public int getPhase() {
+		return Integer.MAX_VALUE - 1;
+	}
+
+	@ManagedAttribute(description = "Number of messages received")
+	public long getReceivedCount() {
+		return received.get();
+	}
+
+	@ManagedAttribute(description = "Number of messages handed to the batch handler")
+	public long getProcessedCount() {
+		return processed.get();
+	}
+
+	@ManagedAttribute(description = "Number of messages dropped due to buffer overflow")
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	@ManagedAttribute(description = "Number of messages in batches the handler failed to process")
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+	@ManagedAttribute(description = "Number of dispatched batches")
+	public long getBatchCount() {
+		return batches.get();
+	}
+
+	@ManagedAttribute(description = "Number of currently buffered messages")
+	public int getBufferedCount() {
+		return buffer.size();
+	}
+
+	@ManagedAttribute(description = "Time in milliseconds the oldest message of the last batch spent in the buffer")
+	public long getLastLagMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(lastLagNanos.get());
+	}
+
+	@ManagedAttribute(description = "Maximum time in milliseconds a message spent in the buffer")
+	public long getMaxLagMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get());
+	}
+
+	/**
+	 * Wait for room in the buffer as long as it is drained.
+	 *
+	 * @return {@literal true} if the envelope was buffered.
+	 */
+	private boolean offerWhileDraining(Envelope<S, T> envelope) {
+
+		try {
+
+			while (!buffer.offer(envelope, 100, TimeUnit.MILLISECONDS)) {
+
+				Thread drainer = this.drainer;
+
+				if (!running || drainer == null || !drainer.isAlive()) {
+					return false;
+				}
+			}
+
+			return true;
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private void drain() {
+
+		List<Envelope<S, T>> batch = new ArrayList<>(batchSize);
+
+		while (running || !buffer.isEmpty()) {
+
+			try {
+				fill(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+
+			if (!batch.isEmpty()) {
+				dispatch(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	private void fill(List<Envelope<S, T>> batch) throws InterruptedException {
+
+		Envelope<S, T> first = buffer.poll(100, TimeUnit.MILLISECONDS);
+
+		if (first == null) {
+			return;
+		}
+
+		batch.add(first);
+
+		long deadline = first.receivedAt + maxWaitNanos;
+
+		while (batch.size() < batchSize) {
+
+			buffer.drainTo(batch, batchSize - batch.size());
+
+			long remaining = deadline - System.nanoTime();
+
+			if (batch.size() >= batchSize || remaining <= 0 || !running) {
+				return;
+			}
+
+			Envelope<S, T> next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+
+			if (next == null) {
+				return;
+			}
+
+			batch.add(next);
+		}
+	}
+
+	private void dispatch(List<Envelope<S, T>> batch) {
+
+		long lag = System.nanoTime() - batch.get(0).receivedAt;
+
+		lastLagNanos.set(lag);
+		maxLagNanos.accumulateAndGet(lag, Math::max);
+
+		try {
+			handler.handle(batch.stream().map(it -> it.message).collect(Collectors.toList()));
+			processed.addAndGet(batch.size());
+		} catch (RuntimeException e) {
+
+			failed.addAndGet(batch.size());
+			LOGGER.error(String.format("Failed to handle batch of %d messages.", batch.size()), e);
+		}
+
+		batches.incrementAndGet();
+	}
+
+	/**
+	 * Strategies to apply when a message is received while the buffer is full.
+	 */
+	public enum OverflowStrategy {
+
+		/**
+		 * Block the receiving thread until buffer capacity becomes available.
+		 */
+		BLOCK,
+
+		/**
+		 * Drop the message just received.
+		 */
+		DROP_LATEST,
+
+		/**
+		 * Drop the oldest buffered message in favor of the message just received.
+		 */
+		DROP_OLDEST
+	}
+
+	private static class Envelope<S, T> {
+
+		final Message<S, T> message;
+		final long receivedAt;
+
+		Envelope(Message<S, T> message, long receivedAt) {
+
+			this.message = message;
+			this.receivedAt = receivedAt;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import java.util.Optional;
+
+import org.bson.BsonValue;
+
+/**
+ * Store for Change Stream resume tokens allowing subscriptions to continue where they left off after a restart.
+ */
+public interface CheckpointStore {
+
+	/**
+	 * Load the last recorded resume token for the given subscription.
+	 *
+	 * @param subscriptionId must not be {@literal null}.
+	 * @return the resume token or {@link Optional#empty()} if no checkpoint was recorded yet.
+	 */
+	Optional<BsonValue> load(String subscriptionId);
+
+	/**
+	 * Record the resume token for the given subscription replacing a previously recorded one.
+	 *
+	 * @param subscriptionId must not be {@literal null}.
+	 * @param resumeToken must not be {@literal null}.
+	 */
+	void save(String subscriptionId, BsonValue resumeToken);
+}
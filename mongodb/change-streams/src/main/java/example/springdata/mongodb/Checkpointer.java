@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import java.time.Duration;
+
+import org.bson.BsonValue;
+import org.springframework.util.Assert;
+
+/**
+ * Tracks the resume token of processed Change Stream events for a single subscription and records it in a
+ * {@link CheckpointStore} every {@code n} events or once {@code interval} elapsed since the last checkpoint, whichever
+ * comes first. After a crash at most the events since the last checkpoint are delivered again.
+ * <p />
+ * The interval is checked when an event is processed. Call {@link #flushIfDue()} periodically to also record the last
+ * position of a stream that went quiet. Once {@link #close() closed} or {@link #cancel() cancelled} a
+ * {@link Checkpointer} no longer records checkpoints so that it cannot overwrite the ones of a later subscription
+ * using the same id.
+ */
+public class Checkpointer {
+
+	private final CheckpointStore store;
+	private final String subscriptionId;
+	private final int everyEvents;
+	private final long intervalMillis;
+
+	private BsonValue pendingToken;
+	private int pendingEvents;
+	private long lastCheckpoint = System.currentTimeMillis();
+	private boolean closed;
+
+	/**
+	 * Creates a new {@link Checkpointer}.
+	 *
+	 * @param store must not be {@literal null}.
+	 * @param subscriptionId must not be {@literal null} or empty.
+	 * @param everyEvents number of events after which to record a checkpoint, must be greater than zero.
+	 * @param interval time after which to record a checkpoint, must not be {@literal null}.
+	 */
+	public Checkpointer(CheckpointStore store, String subscriptionId, int everyEvents, Duration interval) {
+
+		Assert.notNull(store, "CheckpointStore must not be null!");
+		Assert.hasText(subscriptionId, "Subscription id must not be null or empty!");
+		Assert.isTrue(everyEvents > 0, "Number of events must be greater than zero!");
+		Assert.notNull(interval, "Interval must not be null!");
+
+		this.store = store;
+		this.subscriptionId = subscriptionId;
+		this.everyEvents = everyEvents;
+		this.intervalMillis = interval.toMillis();
+	}
+
+	/**
+	 * @return the resume token to start the subscription from, {@literal null} to start from the current time.
+	 */
+	public BsonValue getResumeToken() {
+		return store.load(subscriptionId).orElse(null);
+	}
+
+	/**
+	 * Register the resume token of a processed event and record a checkpoint if due.
+	 *
+	 * @param resumeToken must not be {@literal null}.
+	 * @return {@literal true} if a checkpoint was recorded.
+	 */
+	public boolean processed(BsonValue resumeToken) {
+		return processed(resumeToken, 1);
+	}
+
+	/**
+	 * Register the resume token of the last of the given number of processed events and record a checkpoint if due.
+	 *
+	 * @param resumeToken must not be {@literal null}.
+	 * @param events number of events processed up to and including the one of {@code resumeToken}, must be greater than
+	 *          zero.
+	 * @return {@literal true} if a checkpoint was recorded.
+	 */
+	public synchronized boolean processed(BsonValue resumeToken, int events) {
+
+		Assert.notNull(resumeToken, "Resume token must not be null!");
+		Assert.isTrue(events > 0, "Number of events must be greater than zero!");
+
+		if (closed) {
+			return false;
+		}
+
+		pendingToken = resumeToken;
+		pendingEvents += events;
+
+		if (pendingEvents >= everyEvents || System.currentTimeMillis() - lastCheckpoint >= intervalMillis) {
+			flush();
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Record the resume token of the last processed event if it is not yet recorded and {@code interval} elapsed since
+	 * the last checkpoint.
+	 *
+	 * @return {@literal true} if a checkpoint was recorded.
+	 */
+	public synchronized boolean flushIfDue() {
+
+		if (closed || pendingToken == null || System.currentTimeMillis() - lastCheckpoint < intervalMillis) {
+			return false;
+		}
+
+		flush();
+		return true;
+	}
+
+	/**
+	 * Record the resume token of the last processed event, if not yet recorded.
+	 */
+	public synchronized void flush() {
+
+		if (!closed && pendingToken != null) {
+			store.save(subscriptionId, pendingToken);
+		}
+
+		pendingToken = null;
+		pendingEvents = 0;
+		lastCheckpoint = System.currentTimeMillis();
+	}
+
+	/**
+	 * Record outstanding progress and stop recording checkpoints.
+	 */
+	public synchronized void close() {
+
+		flush();
+		closed = true;
+	}
+
+	/**
+	 * Stop recording checkpoints, discarding outstanding progress.
+	 */
+	public synchronized void cancel() {
+
+		pendingToken = null;
+		pendingEvents = 0;
+		closed = true;
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import static com.mongodb.client.model.Filters.*;
+
+import java.util.Date;
+import java.util.Optional;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.util.Assert;
+
+import com.mongodb.client.model.ReplaceOptions;
+
+/**
+ * {@link CheckpointStore} keeping one document per subscription in a MongoDB collection.
+ */
+public class MongoCheckpointStore implements CheckpointStore {
+
+	static final String DEFAULT_COLLECTION_NAME = "checkpoints";
+
+	private final MongoOperations operations;
+	private final String collectionName;
+
+	/**
+	 * Creates a new {@link MongoCheckpointStore} using the {@value #DEFAULT_COLLECTION_NAME} collection.
+	 *
+	 * @param operations must not be {@literal null}.
+	 */
+	public MongoCheckpointStore(MongoOperations operations) {
+		this(operations, DEFAULT_COLLECTION_NAME);
+	}
+
+	/**
+	 * Creates a new {@link MongoCheckpointStore} using the given collection.
+	 *
+	 * @param operations must not be {@literal null}.
+	 * @param collectionName must not be {@literal null} or empty.
+	 */
+	public MongoCheckpointStore(MongoOperations operations, String collectionName) {
+
+		Assert.notNull(operations, "MongoOperations must not be null!");
+		Assert.hasText(collectionName, "Collection name must not be null or empty!");
+
+		this.operations = operations;
+		this.collectionName = collectionName;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see example.springdata.mongodb.CheckpointStore#load(java.lang.String)
+	 */
+	@Override
+	public Optional<BsonValue> load(String subscriptionId) {
+
+		Assert.notNull(subscriptionId, "Subscription id must not be null!");
+
+		BsonDocument checkpoint = operations.getCollection(collectionName) //
+				.withDocumentClass(BsonDocument.class) //
+				.find(eq("_id", subscriptionId)) //
+				.first();
+
+		return Optional.ofNullable(checkpoint).map(it -> it.get("resumeToken"));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see example.springdata.mongodb.CheckpointStore#save(java.lang.String, org.bson.BsonValue)
+	 */
+	@Override
+	public void save(String subscriptionId, BsonValue resumeToken) {
+
+		Assert.notNull(subscriptionId, "Subscription id must not be null!");
+		Assert.notNull(resumeToken, "Resume token must not be null!");
+
+		Document checkpoint = new Document("_id", subscriptionId) //
+				.append("resumeToken", resumeToken) //
+				.append("updated", new Date());
+
+		operations.getCollection(collectionName).replaceOne(eq("_id", subscriptionId), checkpoint,
+				new ReplaceOptions().upsert(true));
+	}
+}
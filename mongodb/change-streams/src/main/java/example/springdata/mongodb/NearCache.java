@@ -0,0 +1,367 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.util.Assert;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+
+/**
+ * Local read cache in front of a lookup by id, eg. {@link org.springframework.data.repository.CrudRepository#findById}.
+ * Entries are invalidated by a MongoDB Change Stream on the backing collection so that hot reads are served from
+ * memory while staying close to the database state. The cache holds at most {@code maximumSize} entries, evicting the
+ * least recently used one, and drops entries after {@code timeToLive} as a safety net for missed events.
+ * <p />
+ * Nothing is cached before the Change Stream is {@link #register(MessageListenerContainer, String) registered} and
+ * active, and caching stops as soon as the Change Stream fails. A value read from the database is only cached if no
+ * invalidation for its id arrived while it was loaded, so a concurrent write can't leave a stale entry behind while
+ * writes to other ids don't keep it from being cached. {@link #warmUp(Supplier)} pre-populates the cache on cold start
+ * under the same rule.
+ *
+ * @param <ID> identifier type.
+ * @param <T> entity type.
+ */
+@ManagedResource(description = "Change Stream invalidated near cache")
+public class NearCache<ID, T> implements MessageListener<ChangeStreamDocument<Document>, Object> {
+
+	private final Function<? super ID, Optional<T>> loader;
+	private final Function<? super T, ? extends ID> idFunction;
+	private final int maximumSize;
+	private final long timeToLiveMillis;
+	private final Clock clock;
+
+	private final Map<Object, Entry<T>> entries;
+	private final Map<Object, Long> invalidatedAt; // guarded by entries
+	private long sequence = 0; // guarded by entries
+	private long invalidatedBefore = 0; // guarded by entries
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+
+	private volatile boolean active = false;
+
+	/**
+	 * Creates a new {@link NearCache}.
+	 *
+	 * @param loader loads a single entity by its id, must not be {@literal null}.
+	 * @param idFunction extracts the id from an entity, must not be {@literal null}.
+	 * @param maximumSize maximum number of cached entries, must be greater than zero.
+	 * @param timeToLive must not be {@literal null}.
+	 */
+	public NearCache(Function<? super ID, Optional<T>> loader, Function<? super T, ? extends ID> idFunction,
+			int maximumSize, Duration timeToLive) {
+		this(loader, idFunction, maximumSize, timeToLive, Clock.systemUTC());
+	}
+
+	NearCache(Function<? super ID, Optional<T>> loader, Function<? super T, ? extends ID> idFunction, int maximumSize,
+			Duration timeToLive, Clock clock) {
+
+		Assert.notNull(loader, "Loader must not be null!");
+		Assert.notNull(idFunction, "Id function must not be null!");
+		Assert.isTrue(maximumSize > 0, "Maximum size must be greater than zero!");
+		Assert.notNull(timeToLive, "Time to live must not be null!");
+
+		this.loader = loader;
+		this.idFunction = idFunction;
+		this.maximumSize = maximumSize;
+		this.timeToLiveMillis = timeToLive.toMillis();
+		this.clock = clock;
+		this.entries = new LinkedHashMap<Object, Entry<T>>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Entry<T>> eldest) {
+				return size() > NearCache.this.maximumSize;
+			}
+		};
+		this.invalidatedAt = new LinkedHashMap<Object, Long>() {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Long> eldest) {
+
+				if (size() <= NearCache.this.maximumSize) {
+					return false;
+				}
+
+				// forgetting the invalidation of a single id invalidates everything loaded before it
+				invalidatedBefore = Math.max(invalidatedBefore, eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Subscribe to the Change Stream of the given collection and start caching once the subscription is active. Caching
+	 * stops and the cache is cleared if the subscription fails.
+	 *
+	 * @param container must not be {@literal null}.
+	 * @param collectionName must not be {@literal null}.
+	 * @return the {@link Subscription} to remove from the {@link MessageListenerContainer} when done.
+	 * @throws InterruptedException
+	 */
+	public Subscription register(MessageListenerContainer container, String collectionName)
+			throws InterruptedException {
+
+		Assert.notNull(container, "MessageListenerContainer must not be null!");
+		Assert.notNull(collectionName, "Collection name must not be null!");
+
+		ChangeStreamRequest<Object> request = ChangeStreamRequest.builder(this) //
+				.collection(collectionName) //
+				.build();
+
+		Subscription subscription = container.register(request, Object.class, this::onError);
+		subscription.await(Duration.ofSeconds(5));
+
+		active = subscription.isActive();
+		return subscription;
+	}
+
+	/**
+	 * Look up the entity with the given id, either from the cache or via the loader.
+	 *
+	 * @param id must not be {@literal null}.
+	 * @return {@link Optional#empty()} if the loader does not find the entity.
+	 */
+	public Optional<T> findById(ID id) {
+
+		Assert.notNull(id, "Id must not be null!");
+
+		Object key = toKey(id);
+		long now = clock.millis();
+		long loadSequence;
+
+		synchronized (entries) {
+
+			Entry<T> entry = entries.get(key);
+
+			if (entry != null && entry.expiresAt > now) {
+
+				hits.incrementAndGet();
+				return Optional.of(entry.value);
+			}
+
+			if (entry != null) {
+				entries.remove(key);
+			}
+
+			loadSequence = sequence;
+		}
+
+		misses.incrementAndGet();
+
+		Optional<T> value = loader.apply(id);
+		value.ifPresent(it -> put(key, it, loadSequence, now));
+
+		return value;
+	}
+
+	/**
+	 * Pre-populate the cache with the entities returned by the given {@link Supplier}, eg.
+	 * {@code () -> repository.findAll()}. Entities are dropped if an invalidation for their id arrives while they are
+	 * loaded.
+	 *
+	 * @param entities must not be {@literal null}.
+	 * @return the number of entities put into the cache.
+	 */
+	public int warmUp(Supplier<? extends Iterable<? extends T>> entities) {
+
+		Assert.notNull(entities, "Entities must not be null!");
+
+		long loadSequence;
+
+		synchronized (entries) {
+			loadSequence = sequence;
+		}
+
+		long now = clock.millis();
+		int count = 0;
+
+		for (T entity : entities.get()) {
+			if (put(toKey(idFunction.apply(entity)), entity, loadSequence, now)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Remove all entries from the cache.
+	 */
+	@ManagedOperation
+	public void clear() {
+
+		synchronized (entries) {
+
+			invalidatedBefore = ++sequence;
+			invalidatedAt.clear();
+			entries.clear();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.data.mongodb.core.messaging.MessageListener#onMessage(org.springframework.data.mongodb.core.messaging.Message)
+	 */
+	@Override
+	public void onMessage(Message<ChangeStreamDocument<Document>, Object> message) {
+
+		invalidations.incrementAndGet();
+
+		ChangeStreamDocument<Document> raw = message.getRaw();
+		BsonDocument documentKey = raw != null ? raw.getDocumentKey() : null;
+
+		if (documentKey == null || !documentKey.containsKey("_id")) { // invalidate, drop,... - start over
+			clear();
+			return;
+		}
+
+		Object key = toKey(documentKey.get("_id"));
+
+		synchronized (entries) {
+
+			invalidatedAt.remove(key); // keep ordered by sequence
+			invalidatedAt.put(key, ++sequence);
+			entries.remove(key);
+		}
+	}
+
+	/**
+	 * Stop caching once the Change Stream failed as invalidations might get lost from now on.
+	 */
+	void onError(Throwable error) {
+
+		active = false;
+		clear();
+	}
+
+	@ManagedAttribute
+	public int getSize() {
+
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	@ManagedAttribute
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	@ManagedAttribute
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	@ManagedAttribute
+	public long getInvalidationCount() {
+		return invalidations.get();
+	}
+
+	@ManagedAttribute
+	public boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * Put the value into the cache unless it is not active or an invalidation of {@code key} happened since
+	 * {@code loadSequence} was obtained.
+	 */
+	private boolean put(Object key, T value, long loadSequence, long loadedAt) {
+
+		if (!active) {
+			return false;
+		}
+
+		synchronized (entries) {
+
+			if (loadSequence < invalidatedBefore || invalidatedAt.getOrDefault(key, 0L) > loadSequence) {
+				return false;
+			}
+
+			entries.put(key, new Entry<>(value, loadedAt + timeToLiveMillis));
+			return true;
+		}
+	}
+
+	/**
+	 * Normalize ids so that the domain representation and the one found in the Change Stream {@code documentKey} match.
+	 * {@link String} ids are stored as {@link ObjectId} when possible, hence both end up as their hex {@link String}.
+	 */
+	private static Object toKey(Object id) {
+
+		if (id instanceof BsonValue) {
+
+			BsonValue value = (BsonValue) id;
+
+			switch (value.getBsonType()) {
+				case OBJECT_ID:
+					return value.asObjectId().getValue().toHexString();
+				case STRING:
+					return value.asString().getValue();
+				case INT32:
+					return (long) value.asInt32().getValue();
+				case INT64:
+					return value.asInt64().getValue();
+				default:
+					return value;
+			}
+		}
+
+		if (id instanceof ObjectId) {
+			return ((ObjectId) id).toHexString();
+		}
+
+		if (id instanceof Integer || id instanceof Short || id instanceof Byte) {
+			return ((Number) id).longValue();
+		}
+
+		return id;
+	}
+
+	private static class Entry<T> {
+
+		final T value;
+		final long expiresAt;
+
+		Entry(T value, long expiresAt) {
+
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
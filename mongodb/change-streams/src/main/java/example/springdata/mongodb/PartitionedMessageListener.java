@@ -0,0 +1,368 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+
+/**
+ * {@link MessageListener} dispatching Change Stream events to a pool of workers partitioned by the hash of the
+ * {@code documentKey}. Events for the same document are always handled by the same worker and therefore in order while
+ * events for unrelated documents are processed in parallel.
+ * <p />
+ * As events complete out of order, the resume token handed to the optional {@link Checkpointer} is the one of the
+ * latest event all preceding events of which have completed as well (low watermark). Resuming from a checkpoint thus
+ * never skips events that were still in flight. Checkpoints are recorded by one worker at a time outside of the lock
+ * guarding the low watermark, so the other workers don't wait for the {@link CheckpointStore}.
+ * <p />
+ * An event the delegate fails to process holds the low watermark below its sequence number for the lifetime of the
+ * listener. Resuming from the checkpoint thus delivers it again along with all events received after it.
+ * <p />
+ * Each worker has a bounded queue. Once a queue is full, the thread delivering messages blocks, applying backpressure
+ * to the Change Stream cursor.
+ *
+ * @param <T> converted message body type.
+ */
+public class PartitionedMessageListener<T>
+		implements MessageListener<ChangeStreamDocument<Document>, T>, SmartLifecycle {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PartitionedMessageListener.class);
+
+	private final MessageListener<ChangeStreamDocument<Document>, T> delegate;
+	private final @Nullable Checkpointer checkpointer;
+	private final List<BlockingQueue<Task<T>>> queues;
+
+	private final AtomicLong sequence = new AtomicLong();
+	private final TreeMap<Long, BsonValue> completed = new TreeMap<>();
+	private long lowWatermark = 0;
+	private long firstFailure = Long.MAX_VALUE; // guarded by this
+	private @Nullable BsonValue checkpointToken; // guarded by this
+	private int checkpointEvents = 0; // guarded by this
+	private boolean checkpointing = false; // guarded by this
+
+	private final Object lifecycleMonitor = new Object();
+	private volatile boolean running = false;
+	private final List<Thread> workers = new ArrayList<>();
+
+	/**
+	 * Creates a new {@link PartitionedMessageListener} without checkpointing.
+	 *
+	 * @param delegate must not be {@literal null}.
+	 * @param parallelism number of workers, must be greater than zero.
+	 * @param queueCapacity capacity of each worker queue, must be greater than zero.
+	 */
+	public PartitionedMessageListener(MessageListener<ChangeStreamDocument<Document>, T> delegate, int parallelism,
+			int queueCapacity) {
+		this(delegate, parallelism, queueCapacity, null);
+	}
+
+	/**
+	 * Creates a new {@link PartitionedMessageListener}.
+	 *
+	 * @param delegate must not be {@literal null}.
+	 * @param parallelism number of workers, must be greater than zero.
+	 * @param queueCapacity capacity of each worker queue, must be greater than zero.
+	 * @param checkpointer can be {@literal null}.
+	 */
+	public PartitionedMessageListener(MessageListener<ChangeStreamDocument<Document>, T> delegate, int parallelism,
+			int queueCapacity, @Nullable Checkpointer checkpointer) {
+
+		Assert.notNull(delegate, "Delegate MessageListener must not be null!");
+		Assert.isTrue(parallelism > 0, "Parallelism must be greater than zero!");
+		Assert.isTrue(queueCapacity > 0, "Queue capacity must be greater than zero!");
+
+		this.delegate = delegate;
+		this.checkpointer = checkpointer;
+		this.queues = new ArrayList<>(parallelism);
+
+		for (int i = 0; i < parallelism; i++) {
+			queues.add(new ArrayBlockingQueue<>(queueCapacity));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.data.mongodb.core.messaging.MessageListener#onMessage(org.springframework.data.mongodb.core.messaging.Message)
+	 */
+	@Override
+	public void onMessage(Message<ChangeStreamDocument<Document>, T> message) {
+
+		Task<T> task = new Task<>(sequence.incrementAndGet(), message);
+
+		try {
+			queues.get(partition(message.getRaw())).put(task);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.Lifecycle#start()
+	 */
+	@Override
+	public void start() {
+
+		synchronized (lifecycleMonitor) {
+
+			if (running) {
+				return;
+			}
+
+			running = true;
+
+			for (int i = 0; i < queues.size(); i++) {
+
+				BlockingQueue<Task<T>> queue = queues.get(i);
+				Thread worker = new Thread(() -> work(queue), "change-stream-partition-" + i);
+				worker.setDaemon(true);
+				worker.start();
+
+				workers.add(worker);
+			}
+		}
+	}
+
+	/**
+	 * Stops the workers after processing all queued messages and records a final checkpoint.
+	 *
+	 * @see org.springframework.context.Lifecycle#stop()
+	 */
+	@Override
+	public void stop() {
+
+		synchronized (lifecycleMonitor) {
+
+			if (!running) {
+				return;
+			}
+
+			running = false;
+
+			for (Thread worker : workers) {
+				try {
+					worker.join(TimeUnit.SECONDS.toMillis(10));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			workers.clear();
+		}
+
+		if (checkpointer != null) {
+			checkpointer.flush();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.SmartLifecycle#stop(java.lang.Runnable)
+	 */
+	@Override
+	public void stop(Runnable callback) {
+
+		stop();
+		callback.run();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.Lifecycle#isRunning()
+	 */
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.context.SmartLifecycle#isAutoStartup()
+	 */
+	@Override
+	public boolean isAutoStartup() {
+		return true;
+	}
+
+	/**
+	 * Start before and stop after the {@link org.springframework.data.mongodb.core.messaging.MessageListenerContainer}
+	 * that delivers messages.
+	 *
+	 * @see org.springframework.context.Phased#getPhase()
+	 */
+	@Override
+	public int getPhase() {
+		return Integer.MAX_VALUE - 1;
+	}
+
+	/**
+	 * @return the sequence number up to which all received messages have been processed.
+	 */
+	public synchronized long getLowWatermark() {
+		return lowWatermark;
+	}
+
+	private int partition(ChangeStreamDocument<Document> event) {
+
+		Object key = event.getDocumentKey() != null ? event.getDocumentKey() : event.getResumeToken();
+		return Math.floorMod(key.hashCode(), queues.size());
+	}
+
+	private void work(BlockingQueue<Task<T>> queue) {
+
+		while (running || !queue.isEmpty()) {
+
+			Task<T> task;
+
+			try {
+				task = queue.poll(100, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+
+			if (task == null) {
+				continue;
+			}
+
+			try {
+				delegate.onMessage(task.message);
+			} catch (RuntimeException e) {
+
+				LOGGER.error(String.format("Failed to process Change Stream event %s. Not checkpointing past it.",
+						task.message.getRaw()), e);
+				fail(task);
+				continue;
+			}
+
+			if (complete(task)) {
+				checkpoint();
+			}
+		}
+	}
+
+	/**
+	 * Advance the low watermark and collect the resume token to checkpoint.
+	 *
+	 * @return {@literal true} if the caller is in charge of recording the collected checkpoints.
+	 */
+	private synchronized boolean complete(Task<T> task) {
+
+		if (task.sequence > firstFailure) { // the low watermark cannot pass the failed event anyway
+			return false;
+		}
+
+		completed.put(task.sequence, task.message.getRaw().getResumeToken());
+
+		while (!completed.isEmpty() && completed.firstKey() == lowWatermark + 1) {
+
+			BsonValue resumeToken = completed.pollFirstEntry().getValue();
+			lowWatermark++;
+
+			if (checkpointer != null && resumeToken != null) {
+
+				checkpointToken = resumeToken;
+				checkpointEvents++;
+			}
+		}
+
+		if (checkpointEvents == 0 || checkpointing) { // nothing to record or another worker is recording already
+			return false;
+		}
+
+		checkpointing = true;
+		return true;
+	}
+
+	/**
+	 * Hold the low watermark below the given failed task and drop completed tasks it can no longer advance to.
+	 */
+	private synchronized void fail(Task<T> task) {
+
+		firstFailure = Math.min(firstFailure, task.sequence);
+		completed.tailMap(firstFailure).clear();
+	}
+
+	/**
+	 * Hand collected resume tokens to the {@link Checkpointer} until no more are left. Tokens collected meanwhile by
+	 * other workers are picked up as well, so checkpoints are recorded in order.
+	 */
+	private void checkpoint() {
+
+		while (true) {
+
+			BsonValue resumeToken;
+			int events;
+
+			synchronized (this) {
+
+				if (checkpointEvents == 0) {
+
+					checkpointing = false;
+					return;
+				}
+
+				resumeToken = checkpointToken;
+				events = checkpointEvents;
+
+				checkpointToken = null;
+				checkpointEvents = 0;
+			}
+
+			try {
+				checkpointer.processed(resumeToken, events);
+			} catch (RuntimeException e) {
+
+				LOGGER.error("Failed to record checkpoint.", e);
+
+				synchronized (this) {
+					checkpointing = false;
+				}
+
+				return;
+			}
+		}
+	}
+
+	private static class Task<T> {
+
+		final long sequence;
+		final Message<ChangeStreamDocument<Document>, T> message;
+
+		Task(long sequence, Message<ChangeStreamDocument<Document>, T> message) {
+
+			this.sequence = sequence;
+			this.message = message;
+		}
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest.ChangeStreamRequestBuilder;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.util.Assert;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+
+/**
+ * Subscribes to Change Streams identified by a subscription id that resume from the last checkpoint recorded in a
+ * {@link CheckpointStore} instead of starting from the current time. Checkpoints are recorded every
+ * {@code everyEvents} events or {@code interval}, whichever comes first. The interval is also checked periodically so
+ * that the position of a stream that went quiet is recorded as well.
+ * <p />
+ * Registering a subscription id again cancels the previous registration, discarding its outstanding progress, so that
+ * it no longer records checkpoints.
+ * {@link #close() Close} {@link ResumableChangeStreams} to record outstanding progress and stop checking intervals.
+ */
+public class ResumableChangeStreams {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResumableChangeStreams.class);
+
+	private final CheckpointStore store;
+	private final int everyEvents;
+	private final Duration interval;
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+
+		Thread thread = new Thread(runnable, "checkpoint-flush");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+	private final AtomicLong generations = new AtomicLong();
+
+	/**
+	 * Creates a new {@link ResumableChangeStreams}.
+	 *
+	 * @param store must not be {@literal null}.
+	 * @param everyEvents number of events after which to record a checkpoint, must be greater than zero.
+	 * @param interval time after which to record a checkpoint, must not be {@literal null} and must be positive.
+	 */
+	public ResumableChangeStreams(CheckpointStore store, int everyEvents, Duration interval) {
+
+		Assert.notNull(store, "CheckpointStore must not be null!");
+		Assert.isTrue(everyEvents > 0, "Number of events must be greater than zero!");
+		Assert.notNull(interval, "Interval must not be null!");
+		Assert.isTrue(!interval.isNegative() && !interval.isZero(), "Interval must be positive!");
+
+		this.store = store;
+		this.everyEvents = everyEvents;
+		this.interval = interval;
+	}
+
+	/**
+	 * Register a resumable Change Stream subscription with the given {@link MessageListenerContainer}. A checkpoint is
+	 * recorded after {@code listener} returned successfully. Outstanding progress is recorded once the
+	 * {@link Subscription} is no longer active, eg. after it was removed from the container or cancelled. The
+	 * {@code container} is expected to be running so that the {@link Subscription} becomes active within
+	 * {@code interval}.
+	 *
+	 * @param container must not be {@literal null}.
+	 * @param subscriptionId must not be {@literal null} or empty.
+	 * @param collectionName must not be {@literal null}.
+	 * @param filter can be {@literal null}.
+	 * @param listener must not be {@literal null}.
+	 * @param bodyType must not be {@literal null}.
+	 * @return the {@link Subscription}.
+	 */
+	public <T> Subscription register(MessageListenerContainer container, String subscriptionId, String collectionName,
+			Aggregation filter, MessageListener<ChangeStreamDocument<Document>, T> listener, Class<T> bodyType) {
+
+		Assert.notNull(container, "MessageListenerContainer must not be null!");
+		Assert.notNull(listener, "MessageListener must not be null!");
+
+		Registration registration = open(subscriptionId);
+		Checkpointer checkpointer = registration.checkpointer;
+
+		MessageListener<ChangeStreamDocument<Document>, T> checkpointing = message -> {
+
+			listener.onMessage(message);
+			checkpointer.processed(message.getRaw().getResumeToken());
+		};
+
+		ChangeStreamRequestBuilder<T> builder = ChangeStreamRequest.builder(checkpointing) //
+				.collection(collectionName);
+
+		if (filter != null) {
+			builder = builder.filter(filter);
+		}
+
+		BsonValue resumeToken = checkpointer.getResumeToken();
+
+		if (resumeToken != null) {
+			builder = builder.resumeToken(resumeToken);
+		}
+
+		Subscription subscription;
+
+		try {
+			subscription = container.register(builder.build(), bodyType);
+		} catch (RuntimeException e) {
+
+			release(subscriptionId, registration);
+			throw e;
+		}
+
+		registration.flushWith(schedule(() -> {
+
+			if (subscription.isActive()) {
+				checkpointer.flushIfDue();
+			} else {
+				release(subscriptionId, registration);
+			}
+		}));
+
+		return subscription;
+	}
+
+	/**
+	 * Open a resumable Change Stream using the given {@link ReactiveMongoOperations}. Events are considered processed when
+	 * they are emitted downstream, so asynchronous downstream processing may not have completed when a checkpoint is
+	 * recorded. Outstanding progress is recorded when the subscription terminates.
+	 *
+	 * @param operations must not be {@literal null}.
+	 * @param subscriptionId must not be {@literal null} or empty.
+	 * @param collectionName must not be {@literal null}.
+	 * @param filter can be {@literal null}.
+	 * @param resultType must not be {@literal null}.
+	 * @return the Change Stream.
+	 */
+	public <T> Flux<ChangeStreamEvent<T>> changeStream(ReactiveMongoOperations operations, String subscriptionId,
+			String collectionName, Aggregation filter, Class<T> resultType) {
+
+		Assert.notNull(operations, "ReactiveMongoOperations must not be null!");
+
+		// checkpoints are recorded using the blocking driver so move them off the event loop.
+		return Flux.using(() -> {
+
+			Registration registration = open(subscriptionId);
+			registration.flushWith(schedule(registration.checkpointer::flushIfDue));
+			return registration;
+		}, registration -> Mono
+				.fromCallable(() -> Optional.ofNullable(registration.checkpointer.getResumeToken())) //
+				.subscribeOn(Schedulers.elastic()) //
+				.flatMapMany(resumeToken -> {
+
+					ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder();
+					resumeToken.ifPresent(options::resumeToken);
+
+					return operations.changeStream(filter, resultType, options.build(), collectionName);
+				}) //
+				.publishOn(Schedulers.elastic()) //
+				.doOnNext(event -> registration.checkpointer.processed(event.getRaw().getResumeToken())), //
+				registration -> release(subscriptionId, registration));
+	}
+
+	/**
+	 * Record outstanding progress of all registered subscriptions and stop checking their checkpoint interval.
+	 */
+	@PreDestroy
+	public void close() {
+
+		registrations.values().forEach(Registration::close);
+		registrations.clear();
+		scheduler.shutdown();
+	}
+
+	/**
+	 * Start a new generation of checkpoints for the given subscription id, cancelling the previous one so that it cannot
+	 * overwrite the checkpoints of the new one.
+	 */
+	private Registration open(String subscriptionId) {
+
+		Registration registration = new Registration(generations.incrementAndGet(),
+				new Checkpointer(store, subscriptionId, everyEvents, interval));
+
+		Registration previous = registrations.put(subscriptionId, registration);
+
+		if (previous != null) {
+			previous.cancel();
+		}
+
+		return registration;
+	}
+
+	/**
+	 * Record outstanding progress of the given {@link Registration} and remove it unless superseded by a later one.
+	 */
+	private void release(String subscriptionId, Registration registration) {
+
+		registration.close();
+		registrations.computeIfPresent(subscriptionId,
+				(id, current) -> current.generation == registration.generation ? null : current);
+	}
+
+	private ScheduledFuture<?> schedule(Runnable flush) {
+
+		long millis = Math.max(1, interval.toMillis());
+
+		return scheduler.scheduleWithFixedDelay(() -> {
+
+			try {
+				flush.run();
+			} catch (RuntimeException e) { // keep trying, a failing write must not stop further checkpoints
+				LOGGER.warn("Recording checkpoint failed.", e);
+			}
+		}, millis, millis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * A single registration of a subscription id along with its periodic interval check.
+	 */
+	private static class Registration {
+
+		private final long generation;
+		private final Checkpointer checkpointer;
+
+		private ScheduledFuture<?> flushes;
+		private boolean closed;
+
+		Registration(long generation, Checkpointer checkpointer) {
+
+			this.generation = generation;
+			this.checkpointer = checkpointer;
+		}
+
+		synchronized void flushWith(ScheduledFuture<?> flushes) {
+
+			this.flushes = flushes;
+
+			if (closed) {
+				flushes.cancel(false);
+			}
+		}
+
+		synchronized void close() {
+
+			stopFlushes();
+			checkpointer.close();
+		}
+
+		synchronized void cancel() {
+
+			stopFlushes();
+			checkpointer.cancel();
+		}
+
+		private void stopFlushes() {
+
+			if (flushes != null) {
+				flushes.cancel(false);
+			}
+
+			closed = true;
+		}
+	}
+}
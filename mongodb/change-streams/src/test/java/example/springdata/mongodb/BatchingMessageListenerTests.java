@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.messaging.Message;
+
+import example.springdata.mongodb.BatchingMessageListener.OverflowStrategy;
+
+/**
+ * Tests for {@link BatchingMessageListener}.
+ */
+public class BatchingMessageListenerTests {
+
+	BatchingMessageListener<String, String> listener;
+
+	@After
+	public void tearDown() {
+
+		if (listener != null) {
+			listener.stop();
+		}
+	}
+
+	@Test
+	public void dispatchesMessagesInBatches() throws InterruptedException {
+
+		List<List<String>> batches = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(10);
+
+		listener = new BatchingMessageListener<>(messages -> {
+			batches.add(messages.stream().map(Message::getBody).collect(Collectors.toList()));
+			messages.forEach(it -> latch.countDown());
+		}, 100, 4, Duration.ofMillis(200), OverflowStrategy.BLOCK);
+
+		for (int i = 0; i < 10; i++) {
+			listener.onMessage(new StringMessage("m" + i));
+		}
+
+		listener.start();
+
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(batches).hasSize(3);
+		assertThat(batches.get(0)).containsExactly("m0", "m1", "m2", "m3");
+		assertThat(batches.get(2)).containsExactly("m8", "m9");
+		assertThat(listener.getProcessedCount()).isEqualTo(10);
+		assertThat(listener.getBatchCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void dropsLatestMessagesWhenBufferIsFull() {
+
+		listener = new BatchingMessageListener<>(messages -> {}, 2, 10, Duration.ofMillis(10),
+				OverflowStrategy.DROP_LATEST);
+
+		listener.onMessage(new StringMessage("m0"));
+		listener.onMessage(new StringMessage("m1"));
+		listener.onMessage(new StringMessage("m2"));
+
+		assertThat(listener.getReceivedCount()).isEqualTo(3);
+		assertThat(listener.getBufferedCount()).isEqualTo(2);
+		assertThat(listener.getDroppedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void dropsOldestMessagesWhenBufferIsFull() throws InterruptedException {
+
+		List<String> received = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(2);
+
+		listener = new BatchingMessageListener<>(messages -> {
+			messages.forEach(it -> {
+				received.add(it.getBody());
+				latch.countDown();
+			});
+		}, 2, 10, Duration.ofMillis(10), OverflowStrategy.DROP_OLDEST);
+
+		listener.onMessage(new StringMessage("m0"));
+		listener.onMessage(new StringMessage("m1"));
+		listener.onMessage(new StringMessage("m2"));
+
+		listener.start();
+
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(received).containsExactly("m1", "m2");
+		assertThat(listener.getDroppedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void blocksReceiverWhenBufferIsFull() throws InterruptedException {
+
+		CountDownLatch release = new CountDownLatch(1);
+
+		listener = new BatchingMessageListener<>(messages -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, 1, 1, Duration.ofMillis(10), OverflowStrategy.BLOCK);
+		listener.start();
+
+		Thread receiver = new Thread(() -> {
+			for (int i = 0; i < 3; i++) {
+				listener.onMessage(new StringMessage("m" + i));
+			}
+		});
+		receiver.start();
+		receiver.join(500);
+
+		assertThat(receiver.isAlive()).isTrue();
+		assertThat(listener.getDroppedCount()).isZero();
+
+		release.countDown();
+		receiver.join(5000);
+
+		assertThat(receiver.isAlive()).isFalse();
+	}
+
+	@Test
+	public void stopsBlockingReceiverOnceStopped() throws InterruptedException {
+
+		CountDownLatch release = new CountDownLatch(1);
+
+		listener = new BatchingMessageListener<>(messages -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, 1, 1, Duration.ofMillis(10), OverflowStrategy.BLOCK);
+		listener.start();
+
+		Thread receiver = new Thread(() -> {
+			for (int i = 0; i < 3; i++) {
+				listener.onMessage(new StringMessage("m" + i));
+			}
+		});
+		receiver.start();
+		receiver.join(500);
+
+		assertThat(receiver.isAlive()).isTrue();
+
+		Thread stopper = new Thread(listener::stop);
+		stopper.start();
+		receiver.join(5000);
+
+		assertThat(receiver.isAlive()).isFalse();
+		assertThat(listener.getDroppedCount()).isEqualTo(1);
+
+		release.countDown();
+		stopper.join(5000);
+	}
+
+	static class StringMessage implements Message<String, String> {
+
+		final String body;
+
+		StringMessage(String body) {
+			this.body = body;
+		}
+
+		@Override
+		public String getRaw() {
+			return body;
+		}
+
+		@Override
+		public String getBody() {
+			return body;
+		}
+
+		@Override
+		public MessageProperties getProperties() {
+			return MessageProperties.builder().collectionName("person").build();
+		}
+	}
+}
@@ -21,13 +21,23 @@ import static org.springframework.data.mongodb.core.query.Criteria.*;
 import static org.springframework.data.mongodb.core.query.Query.*;
 import static org.springframework.data.mongodb.core.query.Update.*;
 
+import example.springdata.mongodb.BatchingMessageListener.OverflowStrategy;
 import example.springdata.mongodb.util.EmbeddedMongo;
 import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -43,6 +53,7 @@ import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.ReactiveMongoOperations;
 import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
 import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
 import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
 import org.springframework.data.mongodb.core.messaging.Message;
@@ -65,7 +76,9 @@ import com.mongodb.reactivestreams.client.MongoClients;
 @DataMongoTest
 public class ChangeStreamsTests {
 
-	public static @ClassRule EmbeddedMongo replSet = EmbeddedMongo.replSet().configure();
+	public static @ClassRule EmbeddedMongo replSet = EmbeddedMongo.singleNodeReplSet() //
+			.withSharedInstance(true) //
+			.configure();
 
 	@Autowired MessageListenerContainer container; // for imperative style
 
@@ -90,7 +103,7 @@ public class ChangeStreamsTests {
 		 */
 		@Bean
 		SimpleMongoDbFactory mongoDbFactory() {
-			return new SimpleMongoDbFactory(replSet.getMongoClient(), "changestreams");
+			return new SimpleMongoDbFactory(replSet.getMongoClient(), replSet.getDatabaseName());
 		}
 
 		/**
@@ -101,7 +114,7 @@ public class ChangeStreamsTests {
 		@Bean
 		SimpleReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory() {
 			return new SimpleReactiveMongoDatabaseFactory(MongoClients.create(replSet.getConnectionString()),
-					"changestreams");
+					replSet.getDatabaseName());
 		}
 
 		/**
@@ -171,6 +184,136 @@ public class ChangeStreamsTests {
 		assertThat(messageListener.messageCount()).isEqualTo(3); // there we go, all events received.
 	}
 
+	/**
+	 * Use a {@link BatchingMessageListener} to decouple receiving Change Stream events from processing them in batches.
+	 */
+	@Test
+	public void batchedImperativeChangeEvents() throws InterruptedException {
+
+		List<Person> persons = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(3);
+
+		BatchingMessageListener<ChangeStreamDocument<Document>, Person> messageListener = new BatchingMessageListener<>(
+				messages -> messages.forEach(it -> {
+					persons.add(it.getBody());
+					latch.countDown();
+				}), 1024, 100, Duration.ofMillis(50), OverflowStrategy.BLOCK);
+		messageListener.start();
+
+		ChangeStreamRequest<Person> request = ChangeStreamRequest.builder(messageListener) //
+				.collection("person") //
+				.filter(newAggregation(match(where("operationType").is("insert")))) //
+				.build();
+
+		Subscription subscription = container.register(request, Person.class);
+		subscription.await(Duration.ofMillis(200));
+
+		template.save(gabriel);
+		template.save(ash);
+		template.save(michael);
+
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(persons).extracting(Person::getFirstname).containsExactly("Gabriel", "Ash", "Michael");
+		assertThat(messageListener.getDroppedCount()).isZero();
+
+		container.remove(subscription);
+		messageListener.stop();
+	}
+
+	/**
+	 * Use {@link ResumableChangeStreams} to continue a subscription from its last checkpoint after it was terminated
+	 * without recording outstanding progress, as it would happen on a crash.
+	 */
+	@Test
+	public void resumesImperativeChangeEventsFromCheckpoint() throws InterruptedException {
+
+		template.dropCollection(MongoCheckpointStore.DEFAULT_COLLECTION_NAME);
+
+		ResumableChangeStreams changeStreams = new ResumableChangeStreams(new MongoCheckpointStore(template), 5,
+				Duration.ofMinutes(1));
+		Aggregation inserts = newAggregation(match(where("operationType").is("insert")));
+
+		BlockingQueue<Person> received = new LinkedBlockingQueue<>();
+		Subscription subscription = changeStreams.register(container, "person-subscription", "person", inserts,
+				message -> received.add(message.getBody()), Person.class);
+		subscription.await(Duration.ofMillis(200));
+
+		for (int i = 0; i < 12; i++) {
+			template.save(new Person("Kelpien", "Saru", i));
+		}
+
+		assertThat(take(received, 12)).extracting(Person::getAge).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+
+		container.remove(subscription); // checkpoint recorded after the tenth event
+
+		for (int i = 12; i < 15; i++) {
+			template.save(new Person("Kelpien", "Saru", i));
+		}
+
+		BlockingQueue<Person> resumed = new LinkedBlockingQueue<>();
+		subscription = changeStreams.register(container, "person-subscription", "person", inserts,
+				message -> resumed.add(message.getBody()), Person.class);
+		subscription.await(Duration.ofMillis(200));
+
+		// no gaps, events after the last checkpoint are replayed
+		assertThat(take(resumed, 5)).extracting(Person::getAge).containsExactly(10, 11, 12, 13, 14);
+
+		container.remove(subscription);
+	}
+
+	/**
+	 * Use a {@link NearCache} to serve repeated reads from memory while a Change Stream evicts entries that got modified.
+	 */
+	@Test
+	public void nearCacheInvalidatedByChangeEvents() throws InterruptedException {
+
+		template.save(gabriel);
+		template.save(michael);
+
+		NearCache<ObjectId, Person> cache = new NearCache<>(id -> Optional.ofNullable(template.findById(id, Person.class)),
+				Person::getId, 100, Duration.ofMinutes(5));
+
+		Subscription subscription = cache.register(container, "person");
+		cache.warmUp(() -> template.findAll(Person.class));
+
+		assertThat(cache.findById(gabriel.getId()).map(Person::getAge)).contains(30);
+		assertThat(cache.getHitCount()).isOne();
+		assertThat(cache.getMissCount()).isZero();
+
+		template.update(Person.class) //
+				.matching(query(where("id").is(gabriel.getId()))) //
+				.apply(update("age", 31)) //
+				.first();
+
+		for (int i = 0; i < 50 && cache.getInvalidationCount() == 0; i++) {
+			Thread.sleep(20);
+		}
+
+		assertThat(cache.findById(gabriel.getId()).map(Person::getAge)).contains(31);
+		assertThat(cache.findById(michael.getId()).map(Person::getAge)).contains(30);
+		assertThat(cache.getMissCount()).isOne();
+
+		container.remove(subscription);
+	}
+
+	private static List<Person> take(BlockingQueue<Person> queue, int count) throws InterruptedException {
+
+		List<Person> result = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+
+			Person person = queue.poll(5, TimeUnit.SECONDS);
+
+			if (person == null) {
+				break;
+			}
+
+			result.add(person);
+		}
+
+		return result;
+	}
+
 	/**
 	 * Use a {@link reactor.core.publisher.Flux} to subscribe to MongoDB Change Streams.
 	 */
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.data.mongodb.core.messaging.SubscriptionRequest;
+import org.springframework.util.ErrorHandler;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+/**
+ * Tests for {@link NearCache}.
+ */
+public class NearCacheTests {
+
+	Map<ObjectId, Person> database = new ConcurrentHashMap<>();
+	AtomicInteger loads = new AtomicInteger();
+	MutableClock clock = new MutableClock();
+
+	Person gabriel = person("Gabriel", "Lorca", 30);
+	Person michael = person("Michael", "Burnham", 30);
+
+	@Before
+	public void setUp() {
+
+		database.put(gabriel.getId(), gabriel);
+		database.put(michael.getId(), michael);
+	}
+
+	@Test
+	public void servesRepeatedReadsFromMemory() throws InterruptedException {
+
+		NearCache<ObjectId, Person> cache = activeCache(10, Duration.ofMinutes(1));
+
+		assertThat(cache.findById(gabriel.getId())).contains(gabriel);
+		assertThat(cache.findById(gabriel.getId())).contains(gabriel);
+		assertThat(cache.findById(gabriel.getId())).contains(gabriel);
+
+		assertThat(loads).hasValue(1);
+		assertThat(cache.getHitCount()).isEqualTo(2);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void doesNotCacheBeforeRegistration() {
+
+		NearCache<ObjectId, Person> cache = new NearCache<>(loader(), Person::getId, 10, Duration.ofMinutes(1), clock);
+
+		cache.findById(gabriel.getId());
+		cache.findById(gabriel.getId());
+
+		assertThat(loads).hasValue(2);
+		assertThat(cache.getSize()).isZero();
+	}
+
+	@Test
+	public void invalidatesEntryOnChangeEvent() throws InterruptedException {
+
+		NearCache<ObjectId, Person> cache = activeCache(10, Duration.ofMinutes(1));
+
+		cache.findById(gabriel.getId());
+		cache.findById(michael.getId());
+
+		gabriel.setAge(31);
+		cache.onMessage(changeOf(gabriel.getId()));
+
+		assertThat(cache.getSize()).isOne();
+		assertThat(cache.findById(gabriel.getId()).map(Person::getAge)).contains(31);
+		assertThat(loads).hasValue(3);
+	}
+
+	@Test
+	public void clearsCacheOnEventWithoutDocumentKey() throws InterruptedException {
+
+		NearCache<ObjectId, Person> cache = activeCache(10, Duration.ofMinutes(1));
+
+		cache.findById(gabriel.getId());
+		cache.findById(michael.getId());
+
+		cache.onMessage(changeOf(null));
+
+		assertThat(cache.getSize()).isZero();
+	}
+
+	@Test
+	public void skipsValueInvalidatedWhileLoading() throws InterruptedException {
+
+		NearCache<ObjectId, Person>[] cache = new NearCache[1];
+
+		cache[0] = activeCache(id -> {
+
+			Optional<Person> stale = loader().apply(id);
+			cache[0].onMessage(changeOf(id)); // concurrent write arrives before the load returns
+			return stale;
+		}, 10, Duration.ofMinutes(1));
+
+		assertThat(cache[0].findById(gabriel.getId())).contains(gabriel);
+		assertThat(cache[0].getSize()).isZero();
+	}
+
+	@Test
+	public void cachesValueWhileOtherIdsAreInvalidated() throws InterruptedException {
+
+		NearCache<ObjectId, Person>[] cache = new NearCache[1];
+
+		cache[0] = activeCache(id -> {
+
+			Optional<Person> value = loader().apply(id);
+			cache[0].onMessage(changeOf(michael.getId())); // steady writes to other documents
+			return value;
+		}, 10, Duration.ofMinutes(1));
+
+		cache[0].findById(gabriel.getId());
+
+		assertThat(cache[0].getSize()).isOne();
+		assertThat(cache[0].warmUp(() -> Arrays.asList(gabriel, michael))).isEqualTo(2);
+	}
+
+	@Test
+	public void stopsCachingWhenSubscriptionFails() throws InterruptedException {
+
+		NearCache<ObjectId, Person> cache = activeCache(10, Duration.ofMinutes(1));
+
+		cache.findById(gabriel.getId());
+		cache.onError(new IllegalStateException("cursor killed"));
+
+		assertThat(cache.isActive()).isFalse();
+		assertThat(cache.getSize()).isZero();
+
+		cache.findById(gabriel.getId());
+		cache.findById(gabriel.getId());
+
+		assertThat(loads).hasValue(3);
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedEntry() throws InterruptedException {
+
+		Person ash = person("Ash", "Tyler", 35);
+		database.put(ash.getId(), ash);
+
+		NearCache<ObjectId, Person> cache = activeCache(2, Duration.ofMinutes(1));
+
+		cache.findById(gabriel.getId());
+		cache.findById(michael.getId());
+		cache.findById(gabriel.getId()); // gabriel is now more recent than michael
+		cache.findById(ash.getId());
+
+		assertThat(cache.getSize()).isEqualTo(2);
+
+		loads.set(0);
+		cache.findById(gabriel.getId());
+		cache.findById(michael.getId());
+
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	public void expiresEntriesAfterTimeToLive() throws InterruptedException {
+
+		NearCache<ObjectId, Person> cache = activeCache(10, Duration.ofSeconds(30));
+
+		cache.findById(gabriel.getId());
+
+		clock.advance(Duration.ofSeconds(29));
+		cache.findById(gabriel.getId());
+		assertThat(loads).hasValue(1);
+
+		clock.advance(Duration.ofSeconds(2));
+		cache.findById(gabriel.getId());
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	public void warmsUpCache() throws InterruptedException {
+
+		NearCache<ObjectId, Person> cache = activeCache(10, Duration.ofMinutes(1));
+
+		assertThat(cache.warmUp(() -> Arrays.asList(gabriel, michael))).isEqualTo(2);
+
+		cache.findById(gabriel.getId());
+		cache.findById(michael.getId());
+
+		assertThat(loads).hasValue(0);
+	}
+
+	private NearCache<ObjectId, Person> activeCache(int maximumSize, Duration timeToLive) throws InterruptedException {
+		return activeCache(loader(), maximumSize, timeToLive);
+	}
+
+	private NearCache<ObjectId, Person> activeCache(Function<ObjectId, Optional<Person>> loader, int maximumSize,
+			Duration timeToLive) throws InterruptedException {
+
+		Subscription subscription = mock(Subscription.class);
+		when(subscription.isActive()).thenReturn(true);
+
+		MessageListenerContainer container = mock(MessageListenerContainer.class);
+		when(container.register(any(SubscriptionRequest.class), any(Class.class), any(ErrorHandler.class)))
+				.thenReturn(subscription);
+
+		NearCache<ObjectId, Person> cache = new NearCache<>(loader, Person::getId, maximumSize, timeToLive, clock);
+		cache.register(container, "person");
+
+		return cache;
+	}
+
+	private Function<ObjectId, Optional<Person>> loader() {
+
+		return id -> {
+
+			loads.incrementAndGet();
+			return Optional.ofNullable(database.get(id));
+		};
+	}
+
+	private static Person person(String firstname, String lastname, int age) {
+
+		Person person = new Person(firstname, lastname, age);
+		person.setId(new ObjectId());
+		return person;
+	}
+
+	private static Message<ChangeStreamDocument<Document>, Object> changeOf(ObjectId id) {
+
+		BsonDocument documentKey = id != null ? new BsonDocument("_id", new BsonObjectId(id)) : null;
+		ChangeStreamDocument<Document> raw = new ChangeStreamDocument<>(new BsonDocument(),
+				new MongoNamespace("db.person"), null, documentKey, id != null ? OperationType.UPDATE : OperationType.INVALIDATE,
+				null);
+
+		Message<ChangeStreamDocument<Document>, Object> message = mock(Message.class);
+		when(message.getRaw()).thenReturn(raw);
+		return message;
+	}
+
+	static class MutableClock extends Clock {
+
+		Instant instant = Instant.now();
+
+		void advance(Duration duration) {
+			instant = instant.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.messaging.Message;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+/**
+ * Tests for {@link PartitionedMessageListener}.
+ */
+public class PartitionedMessageListenerTests {
+
+	@Test
+	public void keepsOrderPerDocumentWhileProcessingInParallel() throws InterruptedException {
+
+		int documents = 10, updates = 50;
+
+		Map<Integer, List<Long>> processed = new ConcurrentHashMap<>();
+		Set<String> threads = ConcurrentHashMap.newKeySet();
+		CountDownLatch latch = new CountDownLatch(documents * updates);
+
+		PartitionedMessageListener<Document> listener = new PartitionedMessageListener<>(message -> {
+
+			sleepRandomly();
+
+			threads.add(Thread.currentThread().getName());
+			processed.computeIfAbsent(message.getRaw().getDocumentKey().getInt32("_id").getValue(),
+					key -> new CopyOnWriteArrayList<>()).add(message.getRaw().getResumeToken().getInt64("seq").getValue());
+			latch.countDown();
+		}, 4, 16);
+		listener.start();
+
+		long seq = 0;
+		for (int update = 0; update < updates; update++) {
+			for (int id = 0; id < documents; id++) {
+				listener.onMessage(event(id, ++seq));
+			}
+		}
+
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		listener.stop();
+
+		assertThat(threads).hasSize(4);
+		assertThat(processed).hasSize(documents);
+		processed.values().forEach(sequences -> {
+			assertThat(sequences).hasSize(updates);
+			assertThat(sequences).isSorted();
+		});
+		assertThat(listener.getLowWatermark()).isEqualTo(documents * updates);
+	}
+
+	@Test
+	public void checkpointsLowWatermark() throws InterruptedException {
+
+		InMemoryCheckpointStore store = new InMemoryCheckpointStore();
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch processed = new CountDownLatch(3);
+
+		PartitionedMessageListener<Document> listener = new PartitionedMessageListener<>(message -> {
+
+			if (message.getRaw().getDocumentKey().getInt32("_id").getValue() == 0) {
+				try {
+					blocked.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			processed.countDown();
+		}, 2, 16, new Checkpointer(store, "partitioned", 1, Duration.ofMinutes(1)));
+		listener.start();
+
+		listener.onMessage(event(0, 1)); // blocks
+		listener.onMessage(event(1, 2));
+		listener.onMessage(event(3, 3));
+
+		Thread.sleep(200);
+
+		assertThat(listener.getLowWatermark()).isZero();
+		assertThat(store.load("partitioned")).isEmpty();
+
+		blocked.countDown();
+		assertThat(processed.await(5, TimeUnit.SECONDS)).isTrue();
+		listener.stop();
+
+		assertThat(listener.getLowWatermark()).isEqualTo(3);
+		assertThat(store.load("partitioned")).contains(new BsonDocument("seq", new BsonInt64(3)));
+	}
+
+	private static Message<ChangeStreamDocument<Document>, Document> event(int id, long seq) {
+
+		ChangeStreamDocument<Document> raw = new ChangeStreamDocument<>(new BsonDocument("seq", new BsonInt64(seq)),
+				new MongoNamespace("db.person"), new Document("_id", id), new BsonDocument("_id", new BsonInt32(id)),
+				OperationType.UPDATE, null);
+
+		return new Message<ChangeStreamDocument<Document>, Document>() {
+
+			@Override
+			public ChangeStreamDocument<Document> getRaw() {
+				return raw;
+			}
+
+			@Override
+			public Document getBody() {
+				return raw.getFullDocument();
+			}
+
+			@Override
+			public MessageProperties getProperties() {
+				return MessageProperties.builder().collectionName("person").build();
+			}
+		};
+	}
+
+	private static void sleepRandomly() {
+
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextInt(2));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void keepsProcessingWhileCheckpointIsRecorded() throws InterruptedException {
+
+		CountDownLatch saving = new CountDownLatch(1);
+		CountDownLatch slowStore = new CountDownLatch(1);
+		InMemoryCheckpointStore store = new InMemoryCheckpointStore() {
+
+			@Override
+			public void save(String subscriptionId, BsonValue resumeToken) {
+
+				saving.countDown();
+				try {
+					slowStore.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.save(subscriptionId, resumeToken);
+			}
+		};
+
+		CountDownLatch processed = new CountDownLatch(3);
+		PartitionedMessageListener<Document> listener = new PartitionedMessageListener<>(message -> processed.countDown(),
+				2, 16, new Checkpointer(store, "partitioned", 1, Duration.ofMinutes(1)));
+		listener.start();
+
+		listener.onMessage(event(0, 1));
+		assertThat(saving.await(5, TimeUnit.SECONDS)).isTrue(); // the worker of document 0 is now recording
+
+		int other = partitionOf(0) == partitionOf(1) ? 2 : 1;
+		listener.onMessage(event(other, 2));
+		listener.onMessage(event(other, 3));
+
+		assertThat(processed.await(5, TimeUnit.SECONDS)).isTrue();
+
+		slowStore.countDown();
+		listener.stop();
+
+		assertThat(listener.getLowWatermark()).isEqualTo(3);
+		assertThat(store.load("partitioned")).contains(new BsonDocument("seq", new BsonInt64(3)));
+	}
+
+	@Test
+	public void redeliversFailedEventAfterResume() throws InterruptedException {
+
+		InMemoryCheckpointStore store = new InMemoryCheckpointStore();
+		List<Message<ChangeStreamDocument<Document>, Document>> stream = LongStream.rangeClosed(1, 6) //
+				.mapToObj(seq -> event((int) seq % 3, seq)) //
+				.collect(Collectors.toList());
+
+		CountDownLatch attempted = new CountDownLatch(stream.size());
+		PartitionedMessageListener<Document> failing = new PartitionedMessageListener<>(message -> {
+
+			attempted.countDown();
+
+			if (sequenceOf(message) == 3) {
+				throw new IllegalStateException("Cannot process event 3");
+			}
+		}, 2, 16, new Checkpointer(store, "partitioned", 1, Duration.ofMinutes(1)));
+		failing.start();
+
+		stream.forEach(failing::onMessage);
+
+		assertThat(attempted.await(5, TimeUnit.SECONDS)).isTrue();
+		failing.stop();
+
+		assertThat(failing.getLowWatermark()).isEqualTo(2);
+		assertThat(store.load("partitioned")).contains(new BsonDocument("seq", new BsonInt64(2)));
+
+		// resume: the Change Stream delivers all events after the checkpoint again
+		List<Long> redelivered = new CopyOnWriteArrayList<>();
+		CountDownLatch processed = new CountDownLatch(4);
+		PartitionedMessageListener<Document> resumed = new PartitionedMessageListener<>(message -> {
+
+			redelivered.add(sequenceOf(message));
+			processed.countDown();
+		}, 2, 16, new Checkpointer(store, "partitioned", 1, Duration.ofMinutes(1)));
+		resumed.start();
+
+		long checkpoint = store.load("partitioned").get().asDocument().getInt64("seq").getValue();
+		stream.stream().filter(message -> sequenceOf(message) > checkpoint).forEach(resumed::onMessage);
+
+		assertThat(processed.await(5, TimeUnit.SECONDS)).isTrue();
+		resumed.stop();
+
+		assertThat(redelivered).containsExactlyInAnyOrder(3L, 4L, 5L, 6L);
+		assertThat(store.load("partitioned")).contains(new BsonDocument("seq", new BsonInt64(6)));
+	}
+
+	private static long sequenceOf(Message<ChangeStreamDocument<Document>, Document> message) {
+		return message.getRaw().getResumeToken().getInt64("seq").getValue();
+	}
+
+	private static int partitionOf(int id) {
+		return Math.floorMod(new BsonDocument("_id", new BsonInt32(id)).hashCode(), 2);
+	}
+
+	static class InMemoryCheckpointStore implements CheckpointStore {
+
+		final Map<String, BsonValue> checkpoints = new ConcurrentHashMap<>();
+
+		@Override
+		public Optional<BsonValue> load(String subscriptionId) {
+			return Optional.ofNullable(checkpoints.get(subscriptionId));
+		}
+
+		@Override
+		public void save(String subscriptionId, BsonValue resumeToken) {
+			checkpoints.put(subscriptionId, resumeToken);
+		}
+	}
+}
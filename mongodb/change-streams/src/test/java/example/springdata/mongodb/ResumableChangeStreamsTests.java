@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+/**
+ * Tests for {@link ResumableChangeStreams}.
+ */
+public class ResumableChangeStreamsTests {
+
+	Map<String, BsonValue> checkpoints = new ConcurrentHashMap<>();
+
+	CheckpointStore store = new CheckpointStore() {
+
+		@Override
+		public Optional<BsonValue> load(String subscriptionId) {
+			return Optional.ofNullable(checkpoints.get(subscriptionId));
+		}
+
+		@Override
+		public void save(String subscriptionId, BsonValue resumeToken) {
+			checkpoints.put(subscriptionId, resumeToken);
+		}
+	};
+
+	@Test
+	public void recordsLastPositionOfQuietStream() throws InterruptedException {
+
+		Subscription subscription = mock(Subscription.class);
+		when(subscription.isActive()).thenReturn(true);
+
+		MessageListener<ChangeStreamDocument<Document>, Object> listener = register(
+				new ResumableChangeStreams(store, 100, Duration.ofMillis(20)), subscription);
+
+		listener.onMessage(event(1));
+		listener.onMessage(event(2));
+
+		long deadline = System.currentTimeMillis() + 1000;
+		while (!token(2).equals(checkpoints.get("quiet")) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+
+		assertThat(checkpoints.get("quiet")).isEqualTo(token(2));
+	}
+
+	@Test
+	public void recordsProgressOnceSubscriptionIsInactive() throws InterruptedException {
+
+		Subscription subscription = mock(Subscription.class);
+		when(subscription.isActive()).thenReturn(false);
+
+		MessageListener<ChangeStreamDocument<Document>, Object> listener = register(
+				new ResumableChangeStreams(store, 100, Duration.ofMillis(20)), subscription);
+
+		listener.onMessage(event(1));
+
+		long deadline = System.currentTimeMillis() + 1000;
+		while (!checkpoints.containsKey("quiet") && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+
+		assertThat(checkpoints.get("quiet")).isEqualTo(token(1));
+
+		int checks = mockingDetails(subscription).getInvocations().size();
+		Thread.sleep(100);
+
+		assertThat(mockingDetails(subscription).getInvocations()).hasSize(checks);
+	}
+
+	@Test
+	public void cancelsPreviousRegistrationOfSameId() {
+
+		Subscription subscription = mock(Subscription.class);
+		when(subscription.isActive()).thenReturn(true);
+
+		ResumableChangeStreams streams = new ResumableChangeStreams(store, 100, Duration.ofMinutes(1));
+
+		MessageListener<ChangeStreamDocument<Document>, Object> previous = register(streams, subscription);
+		previous.onMessage(event(1));
+
+		MessageListener<ChangeStreamDocument<Document>, Object> current = register(streams, subscription);
+
+		assertThat(checkpoints).doesNotContainKey("quiet");
+
+		current.onMessage(event(5));
+		previous.onMessage(event(3));
+		streams.close();
+
+		assertThat(checkpoints.get("quiet")).isEqualTo(token(5));
+	}
+
+	@SuppressWarnings("unchecked")
+	private MessageListener<ChangeStreamDocument<Document>, Object> register(ResumableChangeStreams streams,
+			Subscription subscription) {
+
+		MessageListenerContainer container = mock(MessageListenerContainer.class);
+		ArgumentCaptor<ChangeStreamRequest<Object>> request = ArgumentCaptor.forClass(ChangeStreamRequest.class);
+		when(container.register(request.capture(), eq(Object.class))).thenReturn(subscription);
+
+		streams.register(container, "quiet", "person", null, message -> {}, Object.class);
+
+		return request.getValue().getMessageListener();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Message<ChangeStreamDocument<Document>, Object> event(long seq) {
+
+		ChangeStreamDocument<Document> raw = new ChangeStreamDocument<>(token(seq), new MongoNamespace("db.person"), null,
+				new BsonDocument("_id", new BsonInt64(seq)), OperationType.UPDATE, null);
+
+		Message<ChangeStreamDocument<Document>, Object> message = mock(Message.class);
+		when(message.getRaw()).thenReturn(raw);
+		return message;
+	}
+
+	private static BsonDocument token(long seq) {
+		return new BsonDocument("seq", new BsonInt64(seq));
+	}
+}
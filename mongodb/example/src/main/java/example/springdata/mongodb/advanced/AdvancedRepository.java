@@ -46,4 +46,15 @@ public interface AdvancedRepository extends CustomerRepository {
 	 */
 	@Meta(comment = META_COMMENT)
 	List<Customer> findByFirstname(String firstname);
+
+	/**
+	 * Derived query tuned through {@link QueryTuning}. The query may run for at most one second, reads batches of 50
+	 * documents using the {@code lastname} index and prefers the primary. Its operations carry the comment
+	 * {@code AdvancedRepository.findByLastname} so they show up in the {@link SlowQueryLog} and the profiler.
+	 *
+	 * @param lastname
+	 * @return
+	 */
+	@QueryTuning(maxTimeMs = 1000, batchSize = 50, hint = "{ 'lastname' : 1 }", readPreference = "primaryPreferred")
+	List<Customer> findByLastname(String lastname);
 }
@@ -15,27 +15,45 @@
  */
 package example.springdata.mongodb.advanced;
 
+import example.springdata.mongodb.customer.Customer;
+
+import java.time.Duration;
+
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
 import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.MongoDbFactory;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
 import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
 
 /**
  * Test configuration to connect to a MongoDB named "test" and using a {@link MongoClient} with profiling enabled.
+ * Repository methods are tuned through {@link QueryTuning} and slow operations are recorded in the {@link SlowQueryLog}.
  *
  * @author Christoph Strobl
  */
 @SpringBootApplication
+@EnableMongoRepositories(repositoryFactoryBeanClass = TuningMongoRepositoryFactoryBean.class)
 class ApplicationConfiguration {
 
 	static final String SYSTEM_PROFILE_DB = "system.profile";
 
 	@Autowired MongoOperations operations;
+	@Autowired MongoClient client;
+	@Autowired SlowQueryLog slowQueryLog;
 
 	/**
 	 * Initialize db instance with defaults.
@@ -45,6 +63,11 @@ class ApplicationConfiguration {
 
 		// Enable profiling
 		setProfilingLevel(2);
+
+		// Index used by the QueryTuning hint of AdvancedRepository.findByLastname(String)
+		operations.indexOps(Customer.class).ensureIndex(new Index("lastname", Direction.ASC));
+
+		slowQueryLog.capturePlansWith(client);
 	}
 
 	/**
@@ -64,4 +87,27 @@ class ApplicationConfiguration {
 	private void setProfilingLevel(int level) {
 		operations.executeCommand(new Document("profile", level));
 	}
+
+	/**
+	 * Infrastructure applying {@link QueryTuning} and recording slow operations. Kept separate as the
+	 * {@link MongoClient} and {@link MongoOperations} used above depend on it.
+	 */
+	@Configuration
+	static class QueryTuningConfiguration {
+
+		@Bean
+		public SlowQueryLog slowQueryLog(@Value("${example.slow-query.threshold-ms:100}") long thresholdMs) {
+			return new SlowQueryLog(Duration.ofMillis(thresholdMs), 100);
+		}
+
+		@Bean
+		public MongoClientOptions mongoClientOptions(SlowQueryLog slowQueryLog) {
+			return MongoClientOptions.builder().addCommandListener(slowQueryLog).build();
+		}
+
+		@Bean
+		public MongoTemplate mongoTemplate(MongoDbFactory mongoDbFactory, MongoConverter converter) {
+			return new TuningMongoTemplate(mongoDbFactory, converter);
+		}
+	}
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.advanced;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Tunes the MongoDB operations issued by a repository method. Settings are applied to all {@code find} and
+ * {@code aggregate} operations run while the method executes. Attributes of
+ * {@link org.springframework.data.mongodb.repository.Meta} take precedence where both apply.
+ *
+ * @see QueryTuningInterceptor
+ * @see TuningMongoTemplate
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface QueryTuning {
+
+	/**
+	 * @return maximum server-side execution time in milliseconds. Negative values leave the time unlimited.
+	 */
+	long maxTimeMs() default -1;
+
+	/**
+	 * @return number of documents per cursor batch. Zero uses the server default.
+	 */
+	int batchSize() default 0;
+
+	/**
+	 * @return key pattern of the index to use, e.g. {@code { 'lastname' : 1 }}. Empty leaves the index choice to the
+	 *         query planner.
+	 */
+	String hint() default "";
+
+	/**
+	 * @return name of the {@link com.mongodb.ReadPreference}, e.g. {@code secondaryPreferred}. Empty uses the read
+	 *         preference of the template.
+	 */
+	String readPreference() default "";
+
+	/**
+	 * @return whether aggregations may write temporary files when exceeding the memory limit of a pipeline stage.
+	 */
+	boolean allowDiskUse() default false;
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.advanced;
+
+import lombok.Value;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.bson.Document;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StringUtils;
+
+import com.mongodb.ReadPreference;
+
+/**
+ * {@link MethodInterceptor} exposing the {@link QueryTuning} of the invoked repository method to the current thread so
+ * {@link TuningMongoTemplate} can apply it. Every method gets a comment identifying the repository method, unless it
+ * declares one through {@link Meta#comment()}, so operations can be correlated in the {@link SlowQueryLog} and the
+ * profiler.
+ */
+class QueryTuningInterceptor implements MethodInterceptor {
+
+	private static final ThreadLocal<Settings> CURRENT = new ThreadLocal<>();
+
+	private final Class<?> repositoryInterface;
+	private final Map<Method, Settings> settings = new ConcurrentHashMap<>();
+
+	QueryTuningInterceptor(Class<?> repositoryInterface) {
+		this.repositoryInterface = repositoryInterface;
+	}
+
+	/**
+	 * @return the {@link Settings} of the repository method currently executing on this thread.
+	 */
+	static Optional<Settings> current() {
+		return Optional.ofNullable(CURRENT.get());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.aopalliance.intercept.MethodInterceptor#invoke(org.aopalliance.intercept.MethodInvocation)
+	 */
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+
+		Settings previous = CURRENT.get();
+		CURRENT.set(settings.computeIfAbsent(invocation.getMethod(), this::settingsFor));
+
+		try {
+			return invocation.proceed();
+		} finally {
+
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	private Settings settingsFor(Method method) {
+
+		Meta meta = AnnotatedElementUtils.findMergedAnnotation(method, Meta.class);
+		String comment = meta != null && StringUtils.hasText(meta.comment()) ? meta.comment()
+				: repositoryInterface.getSimpleName() + "." + method.getName();
+
+		QueryTuning tuning = AnnotatedElementUtils.findMergedAnnotation(method, QueryTuning.class);
+
+		if (tuning == null) {
+			return new Settings(comment, null, null, null, null, false);
+		}
+
+		return new Settings(comment, //
+				tuning.maxTimeMs() < 0 ? null : tuning.maxTimeMs(), //
+				tuning.batchSize() <= 0 ? null : tuning.batchSize(), //
+				StringUtils.hasText(tuning.hint()) ? Document.parse(tuning.hint()) : null, //
+				StringUtils.hasText(tuning.readPreference()) ? ReadPreference.valueOf(tuning.readPreference()) : null, //
+				tuning.allowDiskUse());
+	}
+
+	/**
+	 * Resolved {@link QueryTuning} of a repository method.
+	 */
+	@Value
+	static class Settings {
+
+		String comment;
+		@Nullable Long maxTimeMs;
+		@Nullable Integer batchSize;
+		@Nullable Document hint;
+		@Nullable ReadPreference readPreference;
+		boolean allowDiskUse;
+	}
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.advanced;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import com.mongodb.MongoClient;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+/**
+ * {@link CommandListener} recording read operations taking longer than a threshold. Each {@link SlowQuery} carries the
+ * comment of the operation, which {@link QueryTuningInterceptor} sets to the repository method that issued it.
+ * <p>
+ * Once {@link #capturePlansWith(MongoClient) enabled}, slow operations are explained in the background and the
+ * {@link SlowQuery#getPlanSummary() plan summary} of the winning plan is recorded, e.g. {@code IXSCAN { "lastname" : 1 }}
+ * or {@code COLLSCAN}.
+ */
+public class SlowQueryLog implements CommandListener, DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+	private static final Set<String> TRACKED_COMMANDS = new HashSet<>(Arrays.asList("find", "aggregate", "count",
+			"distinct"));
+	private static final Set<String> EXPLAINABLE_COMMANDS = new HashSet<>(Arrays.asList("find", "aggregate", "count"));
+
+	private final long thresholdMs;
+	private final int capacity;
+
+	private final Map<Integer, CommandStartedEvent> running = new ConcurrentHashMap<>();
+	private final Deque<SlowQuery> slowQueries = new ConcurrentLinkedDeque<>();
+	private final ExecutorService explainer = Executors.newSingleThreadExecutor(runnable -> {
+
+		Thread thread = new Thread(runnable, "slow-query-explainer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private volatile @Nullable MongoClient client;
+
+	/**
+	 * Creates a new {@link SlowQueryLog}.
+	 *
+	 * @param threshold operations taking at least this long are recorded, must not be {@literal null}.
+	 * @param capacity maximum number of slow operations kept, older ones are discarded.
+	 */
+	public SlowQueryLog(Duration threshold, int capacity) {
+
+		Assert.notNull(threshold, "Threshold must not be null!");
+		Assert.isTrue(capacity > 0, "Capacity must be greater than zero!");
+
+		this.thresholdMs = threshold.toMillis();
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Explain slow operations through the given {@link MongoClient} to record their plan summary.
+	 *
+	 * @param client must not be {@literal null}.
+	 */
+	public void capturePlansWith(MongoClient client) {
+
+		Assert.notNull(client, "MongoClient must not be null!");
+
+		this.client = client;
+	}
+
+	/**
+	 * @return the recorded slow operations, oldest first.
+	 */
+	public List<SlowQuery> getSlowQueries() {
+		return new ArrayList<>(slowQueries);
+	}
+
+	/**
+	 * @param comment must not be {@literal null}.
+	 * @return the recorded slow operations carrying the given comment, oldest first.
+	 */
+	public List<SlowQuery> getSlowQueries(String comment) {
+		return slowQueries.stream().filter(it -> comment.equals(it.getComment())).collect(Collectors.toList());
+	}
+
+	/**
+	 * Discards all recorded slow operations.
+	 */
+	public void clear() {
+		slowQueries.clear();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.mongodb.event.CommandListener#commandStarted(com.mongodb.event.CommandStartedEvent)
+	 */
+	@Override
+	public void commandStarted(CommandStartedEvent event) {
+
+		if (TRACKED_COMMANDS.contains(event.getCommandName())) {
+			running.put(event.getRequestId(), event);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.mongodb.event.CommandListener#commandSucceeded(com.mongodb.event.CommandSucceededEvent)
+	 */
+	@Override
+	public void commandSucceeded(CommandSucceededEvent event) {
+		completed(event.getRequestId(), event.getElapsedTime(TimeUnit.MILLISECONDS));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.mongodb.event.CommandListener#commandFailed(com.mongodb.event.CommandFailedEvent)
+	 */
+	@Override
+	public void commandFailed(CommandFailedEvent event) {
+		completed(event.getRequestId(), event.getElapsedTime(TimeUnit.MILLISECONDS));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	@Override
+	public void destroy() {
+		explainer.shutdownNow();
+	}
+
+	private void completed(int requestId, long elapsedMs) {
+
+		CommandStartedEvent started = running.remove(requestId);
+
+		if (started == null || elapsedMs < thresholdMs) {
+			return;
+		}
+
+		BsonDocument command = strip(started.getCommand());
+		BsonValue comment = command.get("comment");
+
+		SlowQuery slowQuery = new SlowQuery(comment != null && comment.isString() ? comment.asString().getValue() : null,
+				started.getDatabaseName(), started.getCommandName(), command, elapsedMs);
+
+		slowQueries.addLast(slowQuery);
+
+		while (slowQueries.size() > capacity) {
+			slowQueries.pollFirst();
+		}
+
+		LOGGER.warn("Slow {} on {}.{} took {} ms ({}).", slowQuery.getCommandName(), slowQuery.getDatabase(),
+				command.get(slowQuery.getCommandName()), elapsedMs, slowQuery.getComment());
+
+		MongoClient client = this.client;
+
+		if (client != null && EXPLAINABLE_COMMANDS.contains(slowQuery.getCommandName())) {
+			explainer.execute(() -> explain(client, slowQuery));
+		}
+	}
+
+	private static void explain(MongoClient client, SlowQuery slowQuery) {
+
+		try {
+
+			BsonDocument explain = new BsonDocument("explain", slowQuery.getCommand()) //
+					.append("verbosity", new BsonString("queryPlanner"));
+
+			BsonDocument result = client.getDatabase(slowQuery.getDatabase()).runCommand(explain, BsonDocument.class);
+
+			findWinningPlan(result).map(SlowQueryLog::summarize).ifPresent(slowQuery::setPlanSummary);
+		} catch (RuntimeException e) {
+			LOGGER.debug("Failed to explain slow query {}.", slowQuery.getCommand(), e);
+		}
+	}
+
+	/**
+	 * Removes fields the driver adds to each command, like {@code $db} and {@code lsid}, so the command can be explained.
+	 */
+	private static BsonDocument strip(BsonDocument command) {
+
+		BsonDocument stripped = new BsonDocument();
+
+		command.forEach((key, value) -> {
+			if (!key.startsWith("$") && !key.equals("lsid") && !key.equals("txnNumber")) {
+				stripped.append(key, value);
+			}
+		});
+
+		return stripped;
+	}
+
+	/**
+	 * Finds the winning plan in an explain result. Aggregations report it for their initial cursor stage.
+	 */
+	static Optional<BsonDocument> findWinningPlan(BsonValue value) {
+
+		if (value.isDocument()) {
+
+			BsonDocument document = value.asDocument();
+
+			if (document.isDocument("winningPlan")) {
+				return Optional.of(document.getDocument("winningPlan"));
+			}
+
+			return document.values().stream().map(SlowQueryLog::findWinningPlan).filter(Optional::isPresent)
+					.map(Optional::get).findFirst();
+		}
+
+		if (value.isArray()) {
+			return value.asArray().stream().map(SlowQueryLog::findWinningPlan).filter(Optional::isPresent)
+					.map(Optional::get).findFirst();
+		}
+
+		return Optional.empty();
+	}
+
+	/**
+	 * Summarizes a plan by its leaf stages like the {@code planSummary} of the profiler.
+	 */
+	static String summarize(BsonDocument plan) {
+
+		List<String> leaves = new ArrayList<>();
+		collectLeaves(plan, leaves);
+
+		return String.join(", ", leaves);
+	}
+
+	private static void collectLeaves(BsonDocument stage, List<String> leaves) {
+
+		if (stage.isDocument("inputStage")) {
+			collectLeaves(stage.getDocument("inputStage"), leaves);
+			return;
+		}
+
+		if (stage.isArray("inputStages")) {
+			stage.getArray("inputStages").forEach(input -> collectLeaves(input.asDocument(), leaves));
+			return;
+		}
+
+		String name = stage.getString("stage", new BsonString("UNKNOWN")).getValue();
+		leaves.add(stage.isDocument("keyPattern") ? name + " " + stage.getDocument("keyPattern").toJson() : name);
+	}
+
+	/**
+	 * A read operation that took longer than the threshold.
+	 */
+	public static class SlowQuery {
+
+		private final @Nullable String comment;
+		private final String database;
+		private final String commandName;
+		private final BsonDocument command;
+		private final long durationMs;
+		private volatile @Nullable String planSummary;
+
+		SlowQuery(@Nullable String comment, String database, String commandName, BsonDocument command, long durationMs) {
+
+			this.comment = comment;
+			this.database = database;
+			this.commandName = commandName;
+			this.command = command;
+			this.durationMs = durationMs;
+		}
+
+		/**
+		 * @return the comment of the operation, usually identifying the repository method.
+		 */
+		@Nullable
+		public String getComment() {
+			return comment;
+		}
+
+		public String getDatabase() {
+			return database;
+		}
+
+		public String getCommandName() {
+			return commandName;
+		}
+
+		public BsonDocument getCommand() {
+			return command;
+		}
+
+		public long getDurationMs() {
+			return durationMs;
+		}
+
+		/**
+		 * @return the summary of the winning plan once the operation was explained.
+		 */
+		public Optional<String> getPlanSummary() {
+			return Optional.ofNullable(planSummary);
+		}
+
+		void setPlanSummary(String planSummary) {
+			this.planSummary = planSummary;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return String.format("%s %s %d ms %s [%s]", commandName, command.get(commandName), durationMs, comment,
+					planSummary);
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.advanced;
+
+import java.io.Serializable;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactoryBean;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+
+/**
+ * {@link MongoRepositoryFactoryBean} adding a {@link QueryTuningInterceptor} to each repository proxy.
+ */
+class TuningMongoRepositoryFactoryBean<T extends Repository<S, ID>, S, ID extends Serializable>
+		extends MongoRepositoryFactoryBean<T, S, ID> {
+
+	public TuningMongoRepositoryFactoryBean(Class<? extends T> repositoryInterface) {
+		super(repositoryInterface);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.data.mongodb.repository.support.MongoRepositoryFactoryBean#getFactoryInstance(org.springframework.data.mongodb.core.MongoOperations)
+	 */
+	@Override
+	protected RepositoryFactorySupport getFactoryInstance(MongoOperations operations) {
+
+		RepositoryFactorySupport factory = super.getFactoryInstance(operations);
+		factory.addRepositoryProxyPostProcessor((proxyFactory, information) -> proxyFactory
+				.addAdvice(new QueryTuningInterceptor(information.getRepositoryInterface())));
+
+		return factory;
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.advanced;
+
+import example.springdata.mongodb.advanced.QueryTuningInterceptor.Settings;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+
+/**
+ * {@link MongoTemplate} applying the {@link QueryTuning} of the repository method currently executing. Collections
+ * handed to template callbacks use the configured read preference and apply the remaining settings to each
+ * {@link FindIterable} and {@link AggregateIterable} they create. Aggregations run through {@code aggregate} commands
+ * get the settings added to the command.
+ */
+class TuningMongoTemplate extends MongoTemplate {
+
+	TuningMongoTemplate(MongoDbFactory mongoDbFactory, MongoConverter mongoConverter) {
+		super(mongoDbFactory, mongoConverter);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.data.mongodb.core.MongoTemplate#prepareCollection(com.mongodb.client.MongoCollection)
+	 */
+	@Override
+	protected MongoCollection<Document> prepareCollection(MongoCollection<Document> collection) {
+
+		MongoCollection<Document> prepared = super.prepareCollection(collection);
+
+		return QueryTuningInterceptor.current().map(settings -> {
+
+			ReadPreference readPreference = settings.getReadPreference();
+			return tune(readPreference == null ? prepared : prepared.withReadPreference(readPreference), settings);
+		}).orElse(prepared);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.data.mongodb.core.MongoTemplate#executeCommand(org.bson.Document, com.mongodb.ReadPreference)
+	 */
+	@Override
+	public Document executeCommand(Document command, ReadPreference readPreference) {
+
+		Optional<Settings> current = QueryTuningInterceptor.current();
+
+		if (!current.isPresent()) {
+			return super.executeCommand(command, readPreference);
+		}
+
+		Settings settings = current.get();
+
+		if (!command.containsKey("aggregate")) {
+			return super.executeCommand(command, settings.getReadPreference() != null ? settings.getReadPreference()
+					: readPreference);
+		}
+
+		Document tuned = new Document(command);
+
+		tuned.putIfAbsent("comment", settings.getComment());
+
+		if (settings.getMaxTimeMs() != null) {
+			tuned.putIfAbsent("maxTimeMS", settings.getMaxTimeMs());
+		}
+
+		if (settings.getHint() != null) {
+			tuned.putIfAbsent("hint", settings.getHint());
+		}
+
+		if (settings.isAllowDiskUse()) {
+			tuned.put("allowDiskUse", true);
+		}
+
+		if (settings.getBatchSize() != null) {
+			tuned.put("cursor", new Document("batchSize", settings.getBatchSize()));
+		}
+
+		return super.executeCommand(tuned,
+				settings.getReadPreference() != null ? settings.getReadPreference() : readPreference);
+	}
+
+	/**
+	 * Wraps the given {@link MongoCollection} so that cursors it creates are tuned with the given {@link Settings}.
+	 * Collections derived from it, e.g. through {@link MongoCollection#withDocumentClass(Class)}, are wrapped as well.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> MongoCollection<T> tune(MongoCollection<T> collection, Settings settings) {
+
+		return (MongoCollection<T>) Proxy.newProxyInstance(TuningMongoTemplate.class.getClassLoader(),
+				new Class<?>[] { MongoCollection.class }, (proxy, method, args) -> {
+
+					Object result;
+
+					try {
+						result = method.invoke(collection, args);
+					} catch (InvocationTargetException e) {
+						throw e.getTargetException();
+					}
+
+					if (result instanceof FindIterable) {
+						return tune((FindIterable<?>) result, settings);
+					}
+
+					if (result instanceof AggregateIterable) {
+						return tune((AggregateIterable<?>) result, settings);
+					}
+
+					if (result instanceof MongoCollection) {
+						return tune((MongoCollection<?>) result, settings);
+					}
+
+					return result;
+				});
+	}
+
+	private static <T> FindIterable<T> tune(FindIterable<T> iterable, Settings settings) {
+
+		iterable.comment(settings.getComment());
+
+		if (settings.getMaxTimeMs() != null) {
+			iterable.maxTime(settings.getMaxTimeMs(), TimeUnit.MILLISECONDS);
+		}
+
+		if (settings.getBatchSize() != null) {
+			iterable.batchSize(settings.getBatchSize());
+		}
+
+		if (settings.getHint() != null) {
+			iterable.hint(settings.getHint());
+		}
+
+		return iterable;
+	}
+
+	private static <T> AggregateIterable<T> tune(AggregateIterable<T> iterable, Settings settings) {
+
+		iterable.comment(settings.getComment());
+
+		if (settings.getMaxTimeMs() != null) {
+			iterable.maxTime(settings.getMaxTimeMs(), TimeUnit.MILLISECONDS);
+		}
+
+		if (settings.getBatchSize() != null) {
+			iterable.batchSize(settings.getBatchSize());
+		}
+
+		if (settings.getHint() != null) {
+			iterable.hint(settings.getHint());
+		}
+
+		if (settings.isAllowDiskUse()) {
+			iterable.allowDiskUse(true);
+		}
+
+		return iterable;
+	}
+}
@@ -28,7 +28,7 @@ import org.springframework.data.repository.CrudRepository;
  *
  * @author Oliver Gierke
  */
-interface CustomerRepository extends CrudRepository<Customer, ObjectId> {
+interface CustomerRepository extends CrudRepository<Customer, ObjectId>, CustomerRepositoryCustom {
 
 	/**
 	 * Uses a projection interface to indicate the fields to be returned. As the projection doesn't use any dynamic
@@ -82,7 +82,8 @@ interface CustomerRepository extends CrudRepository<Customer, ObjectId> {
 	<T> T findProjectedById(ObjectId id, Class<T> projection);
 
 	/**
-	 * Projections used with pagination.
+	 * Projections used with pagination. Note that this issues an exact {@code count} for every page that doesn't reveal
+	 * the total by itself, see {@link CustomerRepositoryCustom} for count-free alternatives.
 	 *
 	 * @param pageable
 	 * @return
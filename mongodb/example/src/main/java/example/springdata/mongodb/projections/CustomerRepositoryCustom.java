@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.projections;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Custom repository methods paging through projections without counting all matching documents.
+ */
+interface CustomerRepositoryCustom {
+
+	/**
+	 * Returns a {@link Slice} of customers projected into {@code projection}. Instead of counting all documents one
+	 * additional element is fetched to determine whether there is a next slice. Closed projection interfaces and DTOs
+	 * only read the fields they need.
+	 *
+	 * @param pageable must not be {@literal null}.
+	 * @param projection must not be {@literal null}.
+	 * @return
+	 */
+	<T> Slice<T> findSliceProjectedBy(Pageable pageable, Class<T> projection);
+
+	/**
+	 * Returns a {@link Page} of customers projected into {@code projection}. The total is taken from the collection
+	 * metadata instead of counting documents and is only looked up if it can't be derived from the page content. Closed
+	 * projection interfaces and DTOs only read the fields they need.
+	 *
+	 * @param pageable must not be {@literal null}.
+	 * @param projection must not be {@literal null}.
+	 * @return
+	 */
+	<T> Page<T> findEstimatedPageProjectedBy(Pageable pageable, Class<T> projection);
+}
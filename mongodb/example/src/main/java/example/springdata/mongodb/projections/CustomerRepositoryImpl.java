@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.projections;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.ProjectionInformation;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.util.Assert;
+
+@RequiredArgsConstructor
+class CustomerRepositoryImpl implements CustomerRepositoryCustom {
+
+	private static final ProjectionFactory PROJECTION_FACTORY = new SpelAwareProxyProjectionFactory();
+
+	private final MongoOperations operations;
+
+	/*
+	 * (non-Javadoc)
+	 * @see example.springdata.mongodb.projections.CustomerRepositoryCustom#findSliceProjectedBy(org.springframework.data.domain.Pageable, java.lang.Class)
+	 */
+	@Override
+	public <T> Slice<T> findSliceProjectedBy(Pageable pageable, Class<T> projection) {
+
+		Assert.isTrue(pageable != null && pageable.isPaged(), "Pageable must be paged!");
+
+		Query query = projectedQuery(projection).with(pageable).limit(pageable.getPageSize() + 1);
+		List<T> content = operations.query(Customer.class).as(projection).matching(query).all();
+
+		boolean hasNext = content.size() > pageable.getPageSize();
+
+		return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+	}
+
+	/**
+	 * Uses the document count kept in the collection metadata which doesn't require a scan but may be off after an
+	 * unclean shutdown or while chunks migrate in a sharded cluster.
+	 *
+	 * @see example.springdata.mongodb.projections.CustomerRepositoryCustom#findEstimatedPageProjectedBy(org.springframework.data.domain.Pageable, java.lang.Class)
+	 */
+	@Override
+	public <T> Page<T> findEstimatedPageProjectedBy(Pageable pageable, Class<T> projection) {
+
+		Assert.notNull(pageable, "Pageable must not be null!");
+
+		Query query = projectedQuery(projection).with(pageable);
+		List<T> content = operations.query(Customer.class).as(projection).matching(query).all();
+
+		return PageableExecutionUtils.getPage(content, pageable,
+				() -> operations.getCollection(operations.getCollectionName(Customer.class)).count());
+	}
+
+	/**
+	 * Restricts the fields read to the properties of closed projection interfaces and DTOs. Open projections need the
+	 * entire document as their expressions may access any property.
+	 *
+	 * @param projection must not be {@literal null}.
+	 * @return
+	 */
+	Query projectedQuery(Class<?> projection) {
+
+		Assert.notNull(projection, "Projection must not be null!");
+
+		Query query = new Query();
+
+		if (projection.isAssignableFrom(Customer.class)) {
+			return query;
+		}
+
+		if (projection.isInterface()) {
+
+			ProjectionInformation information = PROJECTION_FACTORY.getProjectionInformation(projection);
+
+			if (information.isClosed()) {
+				information.getInputProperties().forEach(property -> query.fields().include(property.getName()));
+			}
+
+			return query;
+		}
+
+		operations.getConverter().getMappingContext().getRequiredPersistentEntity(projection) //
+				.doWithProperties((PropertyHandler<MongoPersistentProperty>) property -> query.fields()
+						.include(property.getName()));
+
+		return query;
+	}
+}
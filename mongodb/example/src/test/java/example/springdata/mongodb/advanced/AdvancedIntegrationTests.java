@@ -17,8 +17,13 @@ package example.springdata.mongodb.advanced;
 
 import static org.assertj.core.api.Assertions.*;
 
+import example.springdata.mongodb.advanced.SlowQueryLog.SlowQuery;
 import example.springdata.mongodb.customer.Customer;
 
+import java.util.List;
+
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
 import org.bson.Document;
 import org.junit.Before;
 import org.junit.Test;
@@ -38,11 +43,12 @@ import com.mongodb.client.FindIterable;
  * @author Oliver Gierke
  */
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "example.slow-query.threshold-ms=0")
 public class AdvancedIntegrationTests {
 
 	@Autowired AdvancedRepository repository;
 	@Autowired MongoOperations operations;
+	@Autowired SlowQueryLog slowQueryLog;
 
 	Customer dave, oliver, carter;
 
@@ -80,4 +86,29 @@ public class AdvancedIntegrationTests {
 			assertThat(query).containsKey("foo");
 		}
 	}
+
+	/**
+	 * This test demonstrates {@link QueryTuning} applied to a derived finder. The operation carries a comment naming the
+	 * repository method so the {@link SlowQueryLog}, here recording every operation, correlates it with the method and
+	 * the plan that was used.
+	 */
+	@Test
+	public void findByLastnameUsingQueryTuning() throws Exception {
+
+		slowQueryLog.clear();
+
+		assertThat(repository.findByLastname(dave.getLastname())).containsExactlyInAnyOrder(dave, oliver);
+
+		List<SlowQuery> slowQueries = slowQueryLog.getSlowQueries("AdvancedRepository.findByLastname");
+
+		assertThat(slowQueries).hasSize(1);
+		assertThat(slowQueries.get(0).getCommand()).containsEntry("batchSize", new BsonInt32(50))
+				.containsEntry("maxTimeMS", new BsonInt64(1000)).containsKey("hint");
+
+		for (int i = 0; i < 50 && !slowQueries.get(0).getPlanSummary().isPresent(); i++) {
+			Thread.sleep(100);
+		}
+
+		assertThat(slowQueries.get(0).getPlanSummary()).hasValueSatisfying(plan -> assertThat(plan).startsWith("IXSCAN"));
+	}
 }
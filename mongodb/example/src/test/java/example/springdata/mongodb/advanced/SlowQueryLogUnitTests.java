@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.advanced;
+
+import static org.assertj.core.api.Assertions.*;
+
+import example.springdata.mongodb.advanced.SlowQueryLog.SlowQuery;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.junit.Test;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+/**
+ * Unit tests for {@link SlowQueryLog}.
+ */
+public class SlowQueryLogUnitTests {
+
+	static final ConnectionDescription CONNECTION = new ConnectionDescription(
+			new ServerId(new ClusterId(), new ServerAddress()));
+
+	SlowQueryLog log = new SlowQueryLog(Duration.ofMillis(100), 2);
+
+	@Test
+	public void recordsSlowOperationsWithComment() {
+
+		run(1, "find", "{ find : 'customer', filter : { lastname : 'Matthews' }, comment : 'AdvancedRepository.findByLastname',"
+				+ " $db : 'test', lsid : { id : 1 } }", 150);
+		run(2, "find", "{ find : 'customer', comment : 'AdvancedRepository.findByFirstname', $db : 'test' }", 50);
+
+		assertThat(log.getSlowQueries()).hasSize(1);
+
+		SlowQuery slowQuery = log.getSlowQueries("AdvancedRepository.findByLastname").get(0);
+
+		assertThat(slowQuery.getCommandName()).isEqualTo("find");
+		assertThat(slowQuery.getDatabase()).isEqualTo("test");
+		assertThat(slowQuery.getDurationMs()).isEqualTo(150);
+		assertThat(slowQuery.getCommand()).containsKeys("find", "filter", "comment").doesNotContainKeys("$db", "lsid");
+	}
+
+	@Test
+	public void ignoresUntrackedCommands() {
+
+		run(1, "insert", "{ insert : 'customer' }", 500);
+
+		assertThat(log.getSlowQueries()).isEmpty();
+	}
+
+	@Test
+	public void keepsMostRecentSlowOperations() {
+
+		run(1, "find", "{ find : 'customer', comment : 'first' }", 200);
+		run(2, "find", "{ find : 'customer', comment : 'second' }", 200);
+		run(3, "find", "{ find : 'customer', comment : 'third' }", 200);
+
+		assertThat(log.getSlowQueries()).extracting(SlowQuery::getComment).containsExactly("second", "third");
+	}
+
+	@Test
+	public void summarizesWinningPlanOfFind() {
+
+		BsonDocument explain = BsonDocument.parse("{ queryPlanner : { winningPlan : { stage : 'FETCH', "
+				+ "inputStage : { stage : 'IXSCAN', keyPattern : { lastname : 1 } } } } }");
+
+		assertThat(SlowQueryLog.findWinningPlan(explain).map(SlowQueryLog::summarize))
+				.hasValue("IXSCAN { \"lastname\" : 1 }");
+	}
+
+	@Test
+	public void summarizesWinningPlanOfAggregation() {
+
+		BsonDocument explain = BsonDocument.parse("{ stages : [ { $cursor : { queryPlanner : { winningPlan : "
+				+ "{ stage : 'OR', inputStages : [ { stage : 'COLLSCAN' }, { stage : 'IXSCAN', keyPattern : { _id : 1 } } ] } } } } ] }");
+
+		assertThat(SlowQueryLog.findWinningPlan(explain).map(SlowQueryLog::summarize))
+				.hasValue("COLLSCAN, IXSCAN { \"_id\" : 1 }");
+	}
+
+	private void run(int requestId, String commandName, String command, long elapsedMs) {
+
+		log.commandStarted(new CommandStartedEvent(requestId, CONNECTION, "test", commandName, BsonDocument.parse(command)));
+		log.commandSucceeded(new CommandSucceededEvent(requestId, CONNECTION, commandName, new BsonDocument(),
+				TimeUnit.MILLISECONDS.toNanos(elapsedMs)));
+	}
+}
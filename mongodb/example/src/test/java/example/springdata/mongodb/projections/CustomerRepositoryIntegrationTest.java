@@ -19,7 +19,11 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
 import java.util.Collection;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -29,8 +33,11 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.projection.TargetAware;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
@@ -48,6 +55,7 @@ public class CustomerRepositoryIntegrationTest {
 	static class Config {}
 
 	@Autowired CustomerRepository customers;
+	@Autowired MongoOperations operations;
 
 	Customer dave, carter;
 
@@ -117,4 +125,67 @@ public class CustomerRepositoryIntegrationTest {
 
 		assertThat(page.getContent().get(0).getFirstname(), is("Carter"));
 	}
+
+	@Test
+	public void slicesProjectionsWithoutCounting() {
+
+		Slice<CustomerDto> first = customers.findSliceProjectedBy(PageRequest.of(0, 1, Sort.by("lastname")),
+				CustomerDto.class);
+
+		assertThat(first.getContent(), hasSize(1));
+		assertThat(first.getContent().get(0).getFirstname(), is("Carter"));
+		assertThat(first.hasNext(), is(true));
+
+		Slice<CustomerDto> second = customers.findSliceProjectedBy(first.nextPageable(), CustomerDto.class);
+
+		assertThat(second.getContent().get(0).getFirstname(), is("Dave"));
+		assertThat(second.hasNext(), is(false));
+	}
+
+	@Test
+	public void pagesProjectionsWithEstimatedTotal() {
+
+		Page<CustomerProjection> page = customers.findEstimatedPageProjectedBy(PageRequest.of(0, 1, Sort.by("lastname")),
+				CustomerProjection.class);
+
+		assertThat(page.getContent().get(0).getFirstname(), is("Carter"));
+		assertThat(page.getTotalElements(), is(2L));
+	}
+
+	/**
+	 * Compares the BSON bytes sent over the wire when reading entire documents versus the fields of a closed projection.
+	 */
+	@Test
+	public void projectedQueriesTransferFewerBytes() {
+
+		customers.saveAll(IntStream.range(0, 10000) //
+				.mapToObj(i -> new Customer("Firstname " + i, "Lastname " + i)) //
+				.collect(Collectors.toList()));
+
+		Query projected = new CustomerRepositoryImpl(operations).projectedQuery(CustomerProjection.class);
+
+		assertThat(readRaw(projected), is(lessThan(readRaw(new Query()))));
+	}
+
+	/**
+	 * Reads all customers matching the given {@link Query} as raw BSON.
+	 *
+	 * @return the number of bytes read.
+	 */
+	private long readRaw(Query query) {
+
+		Document fields = query.getFieldsObject();
+
+		return operations.execute(Customer.class, collection -> {
+
+			long bytes = 0;
+
+			for (RawBsonDocument document : collection.withDocumentClass(RawBsonDocument.class).find()
+					.projection(fields)) {
+				bytes += document.getByteBuffer().remaining();
+			}
+
+			return bytes;
+		});
+	}
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.fluent;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+/**
+ * {@link ExecutableBulkWriteOperation} allows creation and execution of MongoDB unordered bulk writes in a fluent API
+ * style, complementing {@link org.springframework.data.mongodb.core.FluentMongoOperations}. <br />
+ * The collection to operate on is by default derived from the initial {@literal domainType} and can be defined there
+ * via {@link org.springframework.data.mongodb.core.mapping.Document}. Using {@code inCollection} allows to override the
+ * collection name for the execution.
+ *
+ * <pre>
+ *     <code>
+ *         try (BulkWriter&lt;Jedi&gt; writer = bulkOps.bulkWrite(Jedi.class)
+ *             .flushEvery(1000)
+ *             .flushAfter(Duration.ofMillis(100))
+ *             .open()) {
+ *
+ *             writer.insert(luke)
+ *                 .upsert(query(where("lastname").is("windu")), update("name", "mace"))
+ *                 .remove(query(where("lastname").is("vader")));
+ *         }
+ *     </code>
+ * </pre>
+ */
+public interface ExecutableBulkWriteOperation {
+
+	/**
+	 * Start creating a bulk write for the given {@literal domainType}.
+	 *
+	 * @param domainType must not be {@literal null}.
+	 * @return new instance of {@link ExecutableBulkWrite}.
+	 * @throws IllegalArgumentException if domainType is {@literal null}.
+	 */
+	<T> ExecutableBulkWrite<T> bulkWrite(Class<T> domainType);
+
+	/**
+	 * Trigger opening a {@link BulkWriter}.
+	 */
+	interface TerminatingBulkWrite<T> {
+
+		/**
+		 * Open a {@link BulkWriter} queueing operations until one of the configured thresholds is reached.
+		 *
+		 * @return new instance of {@link BulkWriter}.
+		 */
+		BulkWriter<T> open();
+	}
+
+	/**
+	 * Collection override (optional).
+	 */
+	interface BulkWriteWithCollection<T> {
+
+		/**
+		 * Explicitly set the name of the collection to write to. <br />
+		 * Skip this step to use the default collection derived from the domain type.
+		 *
+		 * @param collection must not be {@literal null} nor {@literal empty}.
+		 * @return new instance of {@link BulkWriteWithThresholds}.
+		 * @throws IllegalArgumentException if collection is {@literal null}.
+		 */
+		BulkWriteWithThresholds<T> inCollection(String collection);
+	}
+
+	/**
+	 * Flush thresholds (optional).
+	 */
+	interface BulkWriteWithThresholds<T> extends TerminatingBulkWrite<T> {
+
+		/**
+		 * Flush queued operations once the given number of operations is reached. Defaults to {@literal 1000}.
+		 *
+		 * @param operations must be greater than {@literal 0}.
+		 * @return new instance of {@link BulkWriteWithThresholds}.
+		 * @throws IllegalArgumentException if operations is not positive.
+		 */
+		BulkWriteWithThresholds<T> flushEvery(int operations);
+
+		/**
+		 * Flush queued operations at the latest the given time after queueing the first of them. By default, operations
+		 * are only flushed on reaching the {@link #flushEvery(int) size threshold} or explicitly.
+		 *
+		 * @param delay must not be {@literal null} and must be positive.
+		 * @return new instance of {@link BulkWriteWithThresholds}.
+		 * @throws IllegalArgumentException if delay is {@literal null} or not positive.
+		 */
+		BulkWriteWithThresholds<T> flushAfter(Duration delay);
+	}
+
+	/**
+	 * {@link ExecutableBulkWrite} provides methods for constructing bulk write operations in a fluent way.
+	 */
+	interface ExecutableBulkWrite<T> extends BulkWriteWithCollection<T>, BulkWriteWithThresholds<T> {}
+
+	/**
+	 * Queues mixed write operations and flushes them as unordered bulk writes. Queries and updates are mapped against
+	 * the domain type. Operations may run in any order within a flush and a failing operation does not prevent the
+	 * others of the same flush from being applied. <br />
+	 * Inserted objects are converted when queued, later changes to them are not written and generated identifiers are
+	 * not propagated back to them. <br />
+	 * Failures of time based flushes are rethrown by the next {@link #flush()} or {@link #close()}. <br />
+	 * {@link BulkWriter} instances are thread-safe. Closing the writer flushes remaining operations.
+	 */
+	interface BulkWriter<T> extends AutoCloseable {
+
+		/**
+		 * Queue inserting the given object.
+		 *
+		 * @param object must not be {@literal null}.
+		 * @return this {@link BulkWriter}.
+		 */
+		BulkWriter<T> insert(T object);
+
+		/**
+		 * Queue inserting the given objects.
+		 *
+		 * @param objects must not be {@literal null}.
+		 * @return this {@link BulkWriter}.
+		 */
+		BulkWriter<T> insert(Collection<? extends T> objects);
+
+		/**
+		 * Queue applying the given {@link Update} to the first document matching the {@link Query}.
+		 *
+		 * @param query must not be {@literal null}.
+		 * @param update must not be {@literal null}.
+		 * @return this {@link BulkWriter}.
+		 */
+		BulkWriter<T> updateOne(Query query, Update update);
+
+		/**
+		 * Queue applying the given {@link Update} to all documents matching the {@link Query}.
+		 *
+		 * @param query must not be {@literal null}.
+		 * @param update must not be {@literal null}.
+		 * @return this {@link BulkWriter}.
+		 */
+		BulkWriter<T> updateMulti(Query query, Update update);
+
+		/**
+		 * Queue applying the given {@link Update} to all documents matching the {@link Query}, inserting a new document
+		 * if none matches.
+		 *
+		 * @param query must not be {@literal null}.
+		 * @param update must not be {@literal null}.
+		 * @return this {@link BulkWriter}.
+		 */
+		BulkWriter<T> upsert(Query query, Update update);
+
+		/**
+		 * Queue removing all documents matching the {@link Query}.
+		 *
+		 * @param query must not be {@literal null}.
+		 * @return this {@link BulkWriter}.
+		 */
+		BulkWriter<T> remove(Query query);
+
+		/**
+		 * Write all queued operations.
+		 *
+		 * @return the {@link BulkWriteResult} of the flush or {@link Optional#empty()} if no operations were queued.
+		 * @throws org.springframework.dao.DataAccessException if operations of this or an earlier time based flush failed.
+		 *           Operations not failing are applied nonetheless and included in {@link #getResult()}.
+		 */
+		Optional<BulkWriteResult> flush();
+
+		/**
+		 * Get the {@link BulkWriteResult} aggregated over all flushes so far. Indexes of
+		 * {@link BulkWriteResult#getUpserts() upserts} refer to the position of the operation across all operations
+		 * written through this {@link BulkWriter}.
+		 *
+		 * @return never {@literal null}.
+		 */
+		BulkWriteResult getResult();
+
+		/**
+		 * Flush remaining operations and stop any time based flushing. Further operations are rejected. Remaining operations
+		 * are flushed even if an earlier time based flush failed. That failure is rethrown afterwards.
+		 *
+		 * @throws org.springframework.dao.DataAccessException if operations of the final or an earlier time based flush
+		 *           failed.
+		 */
+		@Override
+		void close();
+	}
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.fluent;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.bson.BsonValue;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClient;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+
+/**
+ * Implementation of {@link ExecutableBulkWriteOperation} on top of {@link MongoOperations#bulkOps(BulkMode, Class,
+ * String) unordered bulk operations}.
+ */
+public class ExecutableBulkWriteOperationSupport implements ExecutableBulkWriteOperation {
+
+	private static final int DEFAULT_FLUSH_SIZE = 1000;
+
+	private final MongoOperations operations;
+
+	/**
+	 * Create new {@link ExecutableBulkWriteOperationSupport}.
+	 *
+	 * @param operations must not be {@literal null}.
+	 * @throws IllegalArgumentException if operations is {@literal null}.
+	 */
+	public ExecutableBulkWriteOperationSupport(MongoOperations operations) {
+
+		Assert.notNull(operations, "Operations must not be null!");
+
+		this.operations = operations;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation#bulkWrite(java.lang.Class)
+	 */
+	@Override
+	public <T> ExecutableBulkWrite<T> bulkWrite(Class<T> domainType) {
+
+		Assert.notNull(domainType, "DomainType must not be null!");
+
+		return new ExecutableBulkWriteSupport<>(operations, domainType, null, DEFAULT_FLUSH_SIZE, null);
+	}
+
+	@RequiredArgsConstructor
+	@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+	static class ExecutableBulkWriteSupport<T> implements ExecutableBulkWrite<T> {
+
+		MongoOperations operations;
+		Class<T> domainType;
+		@Nullable String collection;
+		int flushSize;
+		@Nullable Duration flushDelay;
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriteWithCollection#inCollection(java.lang.String)
+		 */
+		@Override
+		public BulkWriteWithThresholds<T> inCollection(String collection) {
+
+			Assert.hasText(collection, "Collection must not be null nor empty!");
+
+			return new ExecutableBulkWriteSupport<>(operations, domainType, collection, flushSize, flushDelay);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriteWithThresholds#flushEvery(int)
+		 */
+		@Override
+		public BulkWriteWithThresholds<T> flushEvery(int operations) {
+
+			Assert.isTrue(operations > 0, "Operations must be greater than zero!");
+
+			return new ExecutableBulkWriteSupport<>(this.operations, domainType, collection, operations, flushDelay);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriteWithThresholds#flushAfter(java.time.Duration)
+		 */
+		@Override
+		public BulkWriteWithThresholds<T> flushAfter(Duration delay) {
+
+			Assert.notNull(delay, "Delay must not be null!");
+			Assert.isTrue(!delay.isNegative() && !delay.isZero(), "Delay must be positive!");
+
+			return new ExecutableBulkWriteSupport<>(operations, domainType, collection, flushSize, delay);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.TerminatingBulkWrite#open()
+		 */
+		@Override
+		public BulkWriter<T> open() {
+
+			String collectionName = StringUtils.hasText(collection) ? collection
+					: operations.getCollectionName(domainType);
+
+			return new DefaultBulkWriter<>(() -> operations.bulkOps(BulkMode.UNORDERED, domainType, collectionName),
+					flushSize, flushDelay);
+		}
+	}
+
+	/**
+	 * {@link BulkWriter} collecting operations in a {@link BulkOperations} instance that is executed and replaced on
+	 * each flush. Time based flushes run on a single daemon thread owned by the writer.
+	 */
+	static class DefaultBulkWriter<T> implements BulkWriter<T> {
+
+		private final Supplier<BulkOperations> bulkOperations;
+		private final int flushSize;
+		private final @Nullable Duration flushDelay;
+		private final @Nullable ScheduledExecutorService scheduler;
+
+		private @Nullable BulkOperations pending;
+		private int queued;
+		private long generation;
+		private @Nullable ScheduledFuture<?> scheduledFlush;
+		private @Nullable RuntimeException scheduledFlushFailure;
+		private boolean closed;
+
+		private int written;
+		private int insertedCount, matchedCount, deletedCount, modifiedCount;
+		private boolean modifiedCountAvailable = true;
+		private final List<BulkWriteUpsert> upserts = new ArrayList<>();
+
+		DefaultBulkWriter(Supplier<BulkOperations> bulkOperations, int flushSize,
+				@Nullable Duration flushDelay) {
+
+			this.bulkOperations = bulkOperations;
+			this.flushSize = flushSize;
+			this.flushDelay = flushDelay;
+			this.scheduler = flushDelay == null ? null : Executors.newSingleThreadScheduledExecutor(runnable -> {
+
+				Thread thread = new Thread(runnable, "bulk-writer-flush");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriter#insert(java.lang.Object)
+		 */
+		@Override
+		public BulkWriter<T> insert(T object) {
+
+			Assert.notNull(object, "Object must not be null!");
+
+			return enqueue(it -> it.insert(object));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriter#insert(java.util.Collection)
+		 */
+		@Override
+		public BulkWriter<T> insert(Collection<? extends T> objects) {
+
+			Assert.notNull(objects, "Objects must not be null!");
+
+			objects.forEach(this::insert);
+			return this;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriter#updateOne(org.springframework.data.mongodb.core.query.Query, org.springframework.data.mongodb.core.query.Update)
+		 */
+		@Override
+		public BulkWriter<T> updateOne(Query query, Update update) {
+
+			Assert.notNull(query, "Query must not be null!");
+			Assert.notNull(update, "Update must not be null!");
+
+			return enqueue(it -> it.updateOne(query, update));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriter#updateMulti(org.springframework.data.mongodb.core.query.Query, org.springframework.data.mongodb.core.query.Update)
+		 */
+		@Override
+		public BulkWriter<T> updateMulti(Query query, Update update) {
+
+			Assert.notNull(query, "Query must not be null!");
+			Assert.notNull(update, "Update must not be null!");
+
+			return enqueue(it -> it.updateMulti(query, update));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriter#upsert(org.springframework.data.mongodb.core.query.Query, org.springframework.data.mongodb.core.query.Update)
+		 */
+		@Override
+		public BulkWriter<T> upsert(Query query, Update update) {
+
+			Assert.notNull(query, "Query must not be null!");
+			Assert.notNull(update, "Update must not be null!");
+
+			return enqueue(it -> it.upsert(query, update));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriter#remove(org.springframework.data.mongodb.core.query.Query)
+		 */
+		@Override
+		public BulkWriter<T> remove(Query query) {
+
+			Assert.notNull(query, "Query must not be null!");
+
+			return enqueue(it -> it.remove(query));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriter#flush()
+		 */
+		@Override
+		public synchronized Optional<BulkWriteResult> flush() {
+			return flushAndRethrowScheduledFlushFailure();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriter#getResult()
+		 */
+		@Override
+		public synchronized BulkWriteResult getResult() {
+
+			return BulkWriteResult.acknowledged(insertedCount, matchedCount, deletedCount,
+					modifiedCountAvailable ? modifiedCount : null, new ArrayList<>(upserts));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriter#close()
+		 */
+		@Override
+		public void close() {
+
+			try {
+
+				synchronized (this) {
+
+					if (closed) {
+						return;
+					}
+
+					closed = true;
+					flushAndRethrowScheduledFlushFailure();
+				}
+			} finally {
+
+				if (scheduler != null) {
+					scheduler.shutdownNow();
+				}
+			}
+		}
+
+		private synchronized BulkWriter<T> enqueue(Consumer<BulkOperations> operation) {
+
+			Assert.state(!closed, "BulkWriter already closed!");
+
+			if (pending == null) {
+				pending = bulkOperations.get();
+			}
+
+			operation.accept(pending);
+			queued++;
+
+			if (queued >= flushSize) {
+				doFlush();
+			} else if (queued == 1 && scheduler != null) {
+
+				long scheduledGeneration = generation;
+				scheduledFlush = scheduler.schedule(() -> scheduledFlush(scheduledGeneration), flushDelay.toNanos(),
+						TimeUnit.NANOSECONDS);
+			}
+
+			return this;
+		}
+
+		/**
+		 * Flush operations queued since the flush was scheduled unless they have been flushed already.
+		 */
+		private synchronized void scheduledFlush(long scheduledGeneration) {
+
+			if (scheduledGeneration != generation) {
+				return;
+			}
+
+			try {
+				doFlush();
+			} catch (RuntimeException e) {
+
+				if (scheduledFlushFailure == null) {
+					scheduledFlushFailure = e;
+				} else {
+					scheduledFlushFailure.addSuppressed(e);
+				}
+			}
+		}
+
+		/**
+		 * Flush queued operations and rethrow the failure of a time based flush afterwards, so that operations queued
+		 * after that failure are not lost.
+		 */
+		private Optional<BulkWriteResult> flushAndRethrowScheduledFlushFailure() {
+
+			RuntimeException failure = scheduledFlushFailure;
+			scheduledFlushFailure = null;
+
+			Optional<BulkWriteResult> result;
+
+			try {
+				result = doFlush();
+			} catch (RuntimeException e) {
+
+				if (failure != null) {
+					e.addSuppressed(failure);
+				}
+
+				throw e;
+			}
+
+			if (failure != null) {
+				throw failure;
+			}
+
+			return result;
+		}
+
+		private Optional<BulkWriteResult> doFlush() {
+
+			if (scheduledFlush != null) {
+
+				scheduledFlush.cancel(false);
+				scheduledFlush = null;
+			}
+
+			if (pending == null) {
+				return Optional.empty();
+			}
+
+			BulkOperations bulk = pending;
+			int count = queued;
+
+			pending = null;
+			queued = 0;
+			generation++;
+
+			try {
+
+				BulkWriteResult result = bulk.execute();
+				aggregate(result);
+
+				return Optional.of(result);
+			} catch (RuntimeException e) {
+
+				// unordered writes not failing have been applied nevertheless
+				BulkWriteResult partialResult = getPartialResult(e);
+
+				if (partialResult != null) {
+					aggregate(partialResult);
+				}
+
+				throw e;
+			} finally {
+				written += count;
+			}
+		}
+
+		private void aggregate(BulkWriteResult result) {
+
+			if (!result.wasAcknowledged()) {
+				return;
+			}
+
+			insertedCount += result.getInsertedCount();
+			matchedCount += result.getMatchedCount();
+			deletedCount += result.getDeletedCount();
+
+			if (result.isModifiedCountAvailable()) {
+				modifiedCount += result.getModifiedCount();
+			} else {
+				modifiedCountAvailable = false;
+			}
+
+			for (BulkWriteUpsert upsert : result.getUpserts()) {
+				upserts.add(new BulkWriteUpsert(written + upsert.getIndex(), upsert.getId()));
+			}
+		}
+
+		/**
+		 * Extract the result of the writes applied by a partially failed bulk. Depending on the driver API in use the
+		 * failure is either reported as {@link BulkOperationException} or carries the {@link MongoBulkWriteException} as
+		 * cause of the translated exception.
+		 */
+		@Nullable
+		private static BulkWriteResult getPartialResult(RuntimeException e) {
+
+			if (e instanceof BulkOperationException) {
+				return toBulkWriteResult(((BulkOperationException) e).getResult());
+			}
+
+			for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+
+				if (cause instanceof MongoBulkWriteException) {
+					return ((MongoBulkWriteException) cause).getWriteResult();
+				}
+			}
+
+			return null;
+		}
+
+		private static BulkWriteResult toBulkWriteResult(com.mongodb.BulkWriteResult result) {
+
+			if (!result.isAcknowledged()) {
+				return BulkWriteResult.unacknowledged();
+			}
+
+			List<BulkWriteUpsert> upserts = new ArrayList<>();
+
+			for (com.mongodb.BulkWriteUpsert upsert : result.getUpserts()) {
+
+				BsonValue id = new BasicDBObject("_id", upsert.getId())
+						.toBsonDocument(BasicDBObject.class, MongoClient.getDefaultCodecRegistry()).get("_id");
+				upserts.add(new BulkWriteUpsert(upsert.getIndex(), id));
+			}
+
+			return BulkWriteResult.acknowledged(result.getInsertedCount(), result.getMatchedCount(),
+					result.getRemovedCount(), result.isModifiedCountAvailable() ? result.getModifiedCount() : null, upserts);
+		}
+	}
+}
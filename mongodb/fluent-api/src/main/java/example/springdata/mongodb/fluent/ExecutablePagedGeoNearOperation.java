@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.fluent;
+
+import example.springdata.mongodb.fluent.GeoNearSlice.Continuation;
+
+import org.springframework.data.mongodb.core.query.NearQuery;
+
+/**
+ * {@link ExecutablePagedGeoNearOperation} allows reading {@literal $geoNear} results page by page in a fluent API
+ * style, complementing {@code near(…).all()} of {@link org.springframework.data.mongodb.core.FluentMongoOperations}
+ * that loads all matches at once. <br />
+ * Pages do not skip over previous results but continue at the distance of the last result read, so reading a page
+ * costs the same no matter how far into the results it is.
+ *
+ * <pre>
+ *     <code>
+ *         GeoNearSlice&lt;Jedi&gt; page = pagedGeoNear.pagedGeoNear(SWCharacter.class)
+ *             .as(Jedi.class)
+ *             .near(alderaanWithin3Parsecs)
+ *             .page(10);
+ *
+ *         while (page.hasNext()) {
+ *             page = ….page(10, page.getContinuation().get());
+ *         }
+ *     </code>
+ * </pre>
+ */
+public interface ExecutablePagedGeoNearOperation {
+
+	/**
+	 * Start creating a paged {@literal $geoNear} query for the given {@literal domainType}.
+	 *
+	 * @param domainType must not be {@literal null}.
+	 * @return new instance of {@link PagedGeoNear}.
+	 * @throws IllegalArgumentException if domainType is {@literal null}.
+	 */
+	<T> PagedGeoNear<T> pagedGeoNear(Class<T> domainType);
+
+	/**
+	 * Trigger reading a page.
+	 */
+	interface TerminatingPagedGeoNear<T> {
+
+		/**
+		 * Answer queries from the given {@link GeoNearTileCache} where possible. Only spherical queries with a maximum
+		 * distance are cached.
+		 *
+		 * @param cache must not be {@literal null}.
+		 * @return new instance of {@link TerminatingPagedGeoNear}.
+		 * @throws IllegalArgumentException if cache is {@literal null}.
+		 */
+		TerminatingPagedGeoNear<T> cachedIn(GeoNearTileCache cache);
+
+		/**
+		 * Read the first page.
+		 *
+		 * @param size maximum number of results, must be greater than {@literal 0}.
+		 * @return never {@literal null}.
+		 */
+		GeoNearSlice<T> page(int size);
+
+		/**
+		 * Read the page following the given {@link Continuation}.
+		 *
+		 * @param size maximum number of results, must be greater than {@literal 0}.
+		 * @param after must not be {@literal null}.
+		 * @return never {@literal null}.
+		 */
+		GeoNearSlice<T> page(int size, Continuation after);
+	}
+
+	/**
+	 * Provide the {@link NearQuery}.
+	 */
+	interface PagedGeoNearWithQuery<T> {
+
+		/**
+		 * Set the {@link NearQuery} to run. {@code skip} and {@code num} of the query are replaced by paging.
+		 *
+		 * @param nearQuery must not be {@literal null}.
+		 * @return new instance of {@link TerminatingPagedGeoNear}.
+		 * @throws IllegalArgumentException if nearQuery is {@literal null}.
+		 */
+		TerminatingPagedGeoNear<T> near(NearQuery nearQuery);
+	}
+
+	/**
+	 * Result type override (optional).
+	 */
+	interface PagedGeoNearWithProjection<T> extends PagedGeoNearWithQuery<T> {
+
+		/**
+		 * Define the target type results should be mapped to. <br />
+		 * Skip this step if you are anyway only interested in the original domain type.
+		 *
+		 * @param resultType must not be {@literal null}.
+		 * @param <R> result type.
+		 * @return new instance of {@link PagedGeoNearWithQuery}.
+		 * @throws IllegalArgumentException if resultType is {@literal null}.
+		 */
+		<R> PagedGeoNearWithQuery<R> as(Class<R> resultType);
+	}
+
+	/**
+	 * Collection override (optional).
+	 */
+	interface PagedGeoNearWithCollection<T> {
+
+		/**
+		 * Explicitly set the name of the collection to query. <br />
+		 * Skip this step to use the default collection derived from the domain type.
+		 *
+		 * @param collection must not be {@literal null} nor {@literal empty}.
+		 * @return new instance of {@link PagedGeoNearWithProjection}.
+		 * @throws IllegalArgumentException if collection is {@literal null}.
+		 */
+		PagedGeoNearWithProjection<T> inCollection(String collection);
+	}
+
+	/**
+	 * {@link PagedGeoNear} provides methods for constructing paged {@literal $geoNear} queries in a fluent way.
+	 */
+	interface PagedGeoNear<T> extends PagedGeoNearWithCollection<T>, PagedGeoNearWithProjection<T> {}
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.fluent;
+
+import example.springdata.mongodb.fluent.GeoNearSlice.Continuation;
+import example.springdata.mongodb.fluent.GeoNearTileCache.Candidate;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metric;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Implementation of {@link ExecutablePagedGeoNearOperation} running {@literal $geoNear} aggregations.
+ */
+public class ExecutablePagedGeoNearOperationSupport implements ExecutablePagedGeoNearOperation {
+
+	private static final String DISTANCE_FIELD = "__distance";
+	private static final String LOCATION_FIELD = "__location";
+
+	private final MongoOperations operations;
+	private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+	/**
+	 * Create new {@link ExecutablePagedGeoNearOperationSupport}.
+	 *
+	 * @param operations must not be {@literal null}.
+	 * @throws IllegalArgumentException if operations is {@literal null}.
+	 */
+	public ExecutablePagedGeoNearOperationSupport(MongoOperations operations) {
+
+		Assert.notNull(operations, "Operations must not be null!");
+
+		this.operations = operations;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see example.springdata.mongodb.fluent.ExecutablePagedGeoNearOperation#pagedGeoNear(java.lang.Class)
+	 */
+	@Override
+	public <T> PagedGeoNear<T> pagedGeoNear(Class<T> domainType) {
+
+		Assert.notNull(domainType, "DomainType must not be null!");
+
+		return new PagedGeoNearSupport<>(this, domainType, domainType, null, null, null);
+	}
+
+	@RequiredArgsConstructor
+	@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+	static class PagedGeoNearSupport<T> implements PagedGeoNear<T>, TerminatingPagedGeoNear<T> {
+
+		ExecutablePagedGeoNearOperationSupport support;
+		Class<?> domainType;
+		Class<T> resultType;
+		@Nullable String collection;
+		@Nullable NearQuery nearQuery;
+		@Nullable GeoNearTileCache cache;
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutablePagedGeoNearOperation.PagedGeoNearWithCollection#inCollection(java.lang.String)
+		 */
+		@Override
+		public PagedGeoNearWithProjection<T> inCollection(String collection) {
+
+			Assert.hasText(collection, "Collection must not be null nor empty!");
+
+			return new PagedGeoNearSupport<>(support, domainType, resultType, collection, nearQuery, cache);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutablePagedGeoNearOperation.PagedGeoNearWithProjection#as(java.lang.Class)
+		 */
+		@Override
+		public <R> PagedGeoNearWithQuery<R> as(Class<R> resultType) {
+
+			Assert.notNull(resultType, "ResultType must not be null!");
+
+			return new PagedGeoNearSupport<>(support, domainType, resultType, collection, nearQuery, cache);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutablePagedGeoNearOperation.PagedGeoNearWithQuery#near(org.springframework.data.mongodb.core.query.NearQuery)
+		 */
+		@Override
+		public TerminatingPagedGeoNear<T> near(NearQuery nearQuery) {
+
+			Assert.notNull(nearQuery, "NearQuery must not be null!");
+
+			return new PagedGeoNearSupport<>(support, domainType, resultType, collection, nearQuery, cache);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutablePagedGeoNearOperation.TerminatingPagedGeoNear#cachedIn(example.springdata.mongodb.fluent.GeoNearTileCache)
+		 */
+		@Override
+		public TerminatingPagedGeoNear<T> cachedIn(GeoNearTileCache cache) {
+
+			Assert.notNull(cache, "Cache must not be null!");
+
+			return new PagedGeoNearSupport<>(support, domainType, resultType, collection, nearQuery, cache);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutablePagedGeoNearOperation.TerminatingPagedGeoNear#page(int)
+		 */
+		@Override
+		public GeoNearSlice<T> page(int size) {
+			return doPage(size, null);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see example.springdata.mongodb.fluent.ExecutablePagedGeoNearOperation.TerminatingPagedGeoNear#page(int, example.springdata.mongodb.fluent.GeoNearSlice.Continuation)
+		 */
+		@Override
+		public GeoNearSlice<T> page(int size, Continuation after) {
+
+			Assert.notNull(after, "Continuation must not be null!");
+
+			return doPage(size, after);
+		}
+
+		private GeoNearSlice<T> doPage(int size, @Nullable Continuation after) {
+
+			Assert.isTrue(size > 0, "Size must be greater than zero!");
+
+			String collectionName = StringUtils.hasText(collection) ? collection
+					: support.operations.getCollectionName(domainType);
+
+			return support.page(domainType, resultType, collectionName, nearQuery, cache, size, after);
+		}
+	}
+
+	<T> GeoNearSlice<T> page(Class<?> domainType, Class<T> resultType, String collection, NearQuery nearQuery,
+			@Nullable GeoNearTileCache cache, int size, @Nullable Continuation after) {
+
+		Document geoNear = nearQuery.toDocument();
+
+		// distances are read raw and converted into the query metric per result, so continuations stay exact
+		geoNear.remove("distanceMultiplier");
+		geoNear.remove("skip");
+
+		if (cache != null && isCacheable(geoNear)) {
+
+			List<Candidate<T>> candidates = cache.candidates(
+					Arrays.asList(collection, domainType, resultType, String.valueOf(geoNear.get("query"))), x(geoNear),
+					y(geoNear), ((Number) geoNear.get("maxDistance")).doubleValue(),
+					(x, y, radius, limit) -> loadCandidates(domainType, resultType, collection, geoNear, x, y, radius, limit));
+
+			// distances of cached pages are computed locally and may differ from the server's in the last bits
+			if (candidates != null) {
+				return slice(matches(candidates, geoNear, size, after), nearQuery.getMetric(), size, after);
+			}
+		}
+
+		Document page = new Document(geoNear);
+		page.put("num", size + 1);
+
+		if (after != null) {
+
+			Number minDistance = (Number) geoNear.get("minDistance");
+			page.put("minDistance",
+					minDistance == null ? after.getDistance() : Math.max(minDistance.doubleValue(), after.getDistance()));
+
+			if (!after.getIdsAtDistance().isEmpty()) {
+				page.put("query", and((Document) geoNear.get("query"),
+						new Document("_id", new Document("$nin", after.getIdsAtDistance()))));
+			}
+		}
+
+		List<Match<T>> matches = geoNear(domainType, collection, page).stream() //
+				.map(it -> new Match<>(it.get("_id"), ((Number) it.remove(DISTANCE_FIELD)).doubleValue(),
+						read(domainType, resultType, it))) //
+				.collect(Collectors.toList());
+
+		return slice(matches, nearQuery.getMetric(), size, after);
+	}
+
+	/**
+	 * Load all documents within the given radius around the given location, along with their location.
+	 */
+	private <T> List<Candidate<T>> loadCandidates(Class<?> domainType, Class<T> resultType, String collection,
+			Document geoNear, double x, double y, double radius, int limit) {
+
+		Document tile = new Document(geoNear);
+		tile.put("near", Arrays.asList(x, y));
+		tile.put("maxDistance", radius);
+		tile.remove("minDistance");
+		tile.put("num", limit);
+		tile.put("includeLocs", LOCATION_FIELD);
+
+		List<Candidate<T>> candidates = new ArrayList<>();
+
+		for (Document document : geoNear(domainType, collection, tile)) {
+
+			document.remove(DISTANCE_FIELD);
+			double[] location = coordinates(document.remove(LOCATION_FIELD));
+
+			candidates.add(new Candidate<>(document.get("_id"), location[0], location[1],
+					read(domainType, resultType, document)));
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Compute the exact distances of the given candidates and select those following the {@link Continuation}.
+	 */
+	private static <T> List<Match<T>> matches(List<Candidate<T>> candidates, Document geoNear, int size,
+			@Nullable Continuation after) {
+
+		double x = x(geoNear);
+		double y = y(geoNear);
+		double maxDistance = ((Number) geoNear.get("maxDistance")).doubleValue();
+		Number minDistance = (Number) geoNear.get("minDistance");
+		Set<Object> seen = after == null ? Collections.emptySet() : new HashSet<>(after.getIdsAtDistance());
+
+		return candidates.stream() //
+				.map(it -> new Match<>(it.getId(), GeoNearTileCache.sphericalDistance(x, y, it.getX(), it.getY()),
+						it.getContent())) //
+				.filter(it -> it.distance <= maxDistance) //
+				.filter(it -> minDistance == null || it.distance >= minDistance.doubleValue()) //
+				.filter(it -> after == null || it.distance > after.getDistance()
+						|| it.distance == after.getDistance() && !seen.contains(it.id)) //
+				.sorted(Comparator.comparingDouble(it -> it.distance)) //
+				.limit(size + 1) //
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Create the {@link GeoNearSlice} from up to {@code size + 1} matches ordered by distance.
+	 */
+	private static <T> GeoNearSlice<T> slice(List<Match<T>> matches, Metric metric, int size,
+			@Nullable Continuation after) {
+
+		List<Match<T>> page = matches.subList(0, Math.min(size, matches.size()));
+		List<GeoResult<T>> results = page.stream() //
+				.map(it -> new GeoResult<>(it.content, new Distance(it.distance * metric.getMultiplier(), metric))) //
+				.collect(Collectors.toList());
+
+		if (matches.size() <= size) {
+			return new GeoNearSlice<>(new GeoResults<>(results, metric), null);
+		}
+
+		double lastDistance = page.get(page.size() - 1).distance;
+		List<Object> ids = new ArrayList<>();
+
+		// results at the same distance may span several pages
+		if (after != null && after.getDistance() == lastDistance) {
+			ids.addAll(after.getIdsAtDistance());
+		}
+
+		page.stream().filter(it -> it.distance == lastDistance).forEach(it -> ids.add(it.id));
+
+		return new GeoNearSlice<>(new GeoResults<>(results, metric), new Continuation(lastDistance, ids));
+	}
+
+	private List<Document> geoNear(Class<?> domainType, String collection, Document geoNear) {
+
+		Document stage = new Document(geoNear);
+		stage.put("distanceField", DISTANCE_FIELD);
+
+		AggregationOperation operation = context -> {
+
+			if (stage.get("query") instanceof Document) {
+				stage.put("query", context.getMappedObject((Document) stage.get("query")));
+			}
+
+			return new Document("$geoNear", stage);
+		};
+
+		return operations.aggregate(Aggregation.newAggregation(domainType, operation), collection, Document.class)
+				.getMappedResults();
+	}
+
+	private <T> T read(Class<?> domainType, Class<T> resultType, Document document) {
+
+		if (resultType.isInterface()) {
+			return projectionFactory.createProjection(resultType, operations.getConverter().read(domainType, document));
+		}
+
+		return operations.getConverter().read(resultType, document);
+	}
+
+	private static boolean isCacheable(Document geoNear) {
+
+		return Boolean.TRUE.equals(geoNear.get("spherical")) && geoNear.get("maxDistance") instanceof Number
+				&& geoNear.get("near") instanceof List;
+	}
+
+	private static double x(Document geoNear) {
+		return ((Number) ((List<?>) geoNear.get("near")).get(0)).doubleValue();
+	}
+
+	private static double y(Document geoNear) {
+		return ((Number) ((List<?>) geoNear.get("near")).get(1)).doubleValue();
+	}
+
+	private static Document and(@Nullable Document query, Document criteria) {
+		return query == null || query.isEmpty() ? criteria : new Document("$and", Arrays.asList(query, criteria));
+	}
+
+	/**
+	 * Read the coordinates of a location stored as legacy coordinate pair, embedded {@code x}/{@code y} document or
+	 * GeoJSON point.
+	 */
+	private static double[] coordinates(Object location) {
+
+		if (location instanceof Document && ((Document) location).containsKey("coordinates")) {
+			return coordinates(((Document) location).get("coordinates"));
+		}
+
+		List<?> values = location instanceof Document ? new ArrayList<>(((Document) location).values())
+				: (List<?>) location;
+
+		return new double[] { ((Number) values.get(0)).doubleValue(), ((Number) values.get(1)).doubleValue() };
+	}
+
+	@RequiredArgsConstructor
+	private static class Match<T> {
+
+		final Object id;
+		final double distance;
+		final T content;
+	}
+}
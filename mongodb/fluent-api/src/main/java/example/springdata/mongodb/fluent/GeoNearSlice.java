@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.fluent;
+
+import lombok.Value;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.geo.GeoResults;
+import org.springframework.lang.Nullable;
+
+/**
+ * A page of {@link GeoResults} ordered by distance along with the {@link Continuation} to read the next page.
+ */
+public class GeoNearSlice<T> {
+
+	private final GeoResults<T> results;
+	private final @Nullable Continuation continuation;
+
+	GeoNearSlice(GeoResults<T> results, @Nullable Continuation continuation) {
+
+		this.results = results;
+		this.continuation = continuation;
+	}
+
+	/**
+	 * @return the results of this page, never {@literal null}.
+	 */
+	public GeoResults<T> getResults() {
+		return results;
+	}
+
+	/**
+	 * @return whether there are more results after this page.
+	 */
+	public boolean hasNext() {
+		return continuation != null;
+	}
+
+	/**
+	 * @return the {@link Continuation} to read the next page or {@link Optional#empty()} if this is the last page.
+	 */
+	public Optional<Continuation> getContinuation() {
+		return Optional.ofNullable(continuation);
+	}
+
+	/**
+	 * Position after the last result of a page. Instead of skipping the results of previous pages, the next page starts
+	 * at the {@link #getDistance() distance} of the last result and excludes the results already read at exactly that
+	 * distance. Distances are kept in the raw unit of the server, radians for spherical queries.
+	 * <p />
+	 * Pages answered from a {@link GeoNearTileCache} compute distances locally, which may differ from the ones computed by
+	 * the server in the last bits. A {@link Continuation} of a cached page used once the tile is no longer cached, or vice
+	 * versa, may thus repeat or skip results right at its distance.
+	 */
+	@Value
+	public static class Continuation implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		double distance;
+		List<Object> idsAtDistance;
+	}
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.fluent;
+
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Cache for spherical {@literal $geoNear} results shared by queries from nearby locations. Queries are grouped by the
+ * geohash tile their location falls into and by their maximum distance, rounded up to the next power of two meters.
+ * Per group, all documents within that radius of any location of the tile are loaded once from the tile center. Pages
+ * for a concrete location are then computed in memory from those candidates with exact distances.
+ * <p />
+ * Tiles with more than the configured number of candidates are not cached and queries for them go to the database.
+ * Cached results are shared between callers and thus must not be modified.
+ */
+public class GeoNearTileCache {
+
+	private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+	private static final double EARTH_RADIUS_METERS = 6378137;
+	private static final double METER = 1 / EARTH_RADIUS_METERS;
+
+	private final int geohashPrecision;
+	private final int maxCandidatesPerTile;
+	private final long timeToLiveNanos;
+	private final Map<TileKey, Tile<?>> tiles;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Create a new {@link GeoNearTileCache}.
+	 *
+	 * @param geohashPrecision number of geohash characters defining a tile, {@literal 6} is about 1.2 by 0.6 kilometers.
+	 * @param maxTiles maximum number of tiles to keep, least recently used ones are evicted first.
+	 * @param maxCandidatesPerTile maximum number of documents to keep per tile.
+	 * @param timeToLive must not be {@literal null}.
+	 */
+	public GeoNearTileCache(int geohashPrecision, int maxTiles, int maxCandidatesPerTile, Duration timeToLive) {
+
+		Assert.isTrue(geohashPrecision > 0 && geohashPrecision <= 12, "Geohash precision must be between 1 and 12!");
+		Assert.isTrue(maxTiles > 0, "Max tiles must be greater than zero!");
+		Assert.isTrue(maxCandidatesPerTile > 0, "Max candidates per tile must be greater than zero!");
+		Assert.notNull(timeToLive, "Time to live must not be null!");
+
+		this.geohashPrecision = geohashPrecision;
+		this.maxCandidatesPerTile = maxCandidatesPerTile;
+		this.timeToLiveNanos = timeToLive.toNanos();
+		this.tiles = new LinkedHashMap<TileKey, Tile<?>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<TileKey, Tile<?>> eldest) {
+				return size() > maxTiles;
+			}
+		};
+	}
+
+	/**
+	 * @return number of lookups answered from memory, including those for tiles known to exceed the candidate limit.
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return number of lookups that had to load a tile.
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Discard all cached tiles, e.g. after modifying the underlying collection.
+	 */
+	public void clear() {
+
+		synchronized (tiles) {
+			tiles.clear();
+		}
+	}
+
+	/**
+	 * Look up the candidates for a query at the given location, loading them if required.
+	 *
+	 * @param query identifies everything but the location and distance of the query.
+	 * @param x longitude of the query location.
+	 * @param y latitude of the query location.
+	 * @param maxDistance maximum distance in radians.
+	 * @param loader loads the candidates within a radius around a location.
+	 * @return the candidates or {@literal null} if the tile exceeds the candidate limit.
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	<T> List<Candidate<T>> candidates(Object query, double x, double y, double maxDistance, CandidateLoader<T> loader) {
+
+		TileBounds bounds = tile(x, y, geohashPrecision);
+		double bucket = radiusBucket(maxDistance);
+		TileKey key = new TileKey(query, bounds.getGeohash(), bucket);
+		long now = System.nanoTime();
+
+		synchronized (tiles) {
+
+			Tile<T> tile = (Tile<T>) tiles.get(key);
+
+			if (tile != null && now - tile.getLoadedAt() < timeToLiveNanos) {
+
+				hits.incrementAndGet();
+				return tile.getCandidates();
+			}
+		}
+
+		misses.incrementAndGet();
+
+		double centerX = bounds.getCenterX();
+		double centerY = bounds.getCenterY();
+		double radius = bucket + coveringRadius(bounds);
+
+		List<Candidate<T>> candidates = loader.load(centerX, centerY, radius, maxCandidatesPerTile + 1);
+		List<Candidate<T>> cached = candidates.size() > maxCandidatesPerTile ? null : candidates;
+
+		synchronized (tiles) {
+			tiles.put(key, new Tile<>(now, cached));
+		}
+
+		return cached;
+	}
+
+	/**
+	 * Compute the geohash tile containing the given location.
+	 */
+	static TileBounds tile(double x, double y, int precision) {
+
+		double minX = -180, maxX = 180, minY = -90, maxY = 90;
+		StringBuilder geohash = new StringBuilder(precision);
+		boolean even = true;
+		int bit = 0, character = 0;
+
+		while (geohash.length() < precision) {
+
+			if (even) {
+
+				double middle = (minX + maxX) / 2;
+
+				if (x >= middle) {
+					character = character << 1 | 1;
+					minX = middle;
+				} else {
+					character = character << 1;
+					maxX = middle;
+				}
+			} else {
+
+				double middle = (minY + maxY) / 2;
+
+				if (y >= middle) {
+					character = character << 1 | 1;
+					minY = middle;
+				} else {
+					character = character << 1;
+					maxY = middle;
+				}
+			}
+
+			even = !even;
+
+			if (++bit == 5) {
+
+				geohash.append(BASE32.charAt(character));
+				bit = 0;
+				character = 0;
+			}
+		}
+
+		return new TileBounds(geohash.toString(), minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Spherical distance in radians from the center of the given tile to its farthest corner. Corners closer to the
+	 * equator are farther away from the center than the ones closer to the poles.
+	 */
+	static double coveringRadius(TileBounds bounds) {
+
+		double centerX = bounds.getCenterX();
+		double centerY = bounds.getCenterY();
+
+		return Math.max(
+				Math.max(sphericalDistance(centerX, centerY, bounds.getMinX(), bounds.getMinY()),
+						sphericalDistance(centerX, centerY, bounds.getMaxX(), bounds.getMinY())),
+				Math.max(sphericalDistance(centerX, centerY, bounds.getMinX(), bounds.getMaxY()),
+						sphericalDistance(centerX, centerY, bounds.getMaxX(), bounds.getMaxY())));
+	}
+
+	/**
+	 * Round the given distance in radians up to the next power of two meters.
+	 */
+	static double radiusBucket(double radians) {
+		return METER * Math.pow(2, Math.ceil(Math.log(Math.max(radians / METER, 1)) / Math.log(2)));
+	}
+
+	/**
+	 * Spherical distance in radians between two locations given as longitude and latitude in degrees.
+	 */
+	static double sphericalDistance(double x1, double y1, double x2, double y2) {
+
+		double lat1 = Math.toRadians(y1);
+		double lat2 = Math.toRadians(y2);
+		double sinLat = Math.sin((lat2 - lat1) / 2);
+		double sinLon = Math.sin(Math.toRadians(x2 - x1) / 2);
+
+		return 2 * Math.asin(Math.min(1, Math.sqrt(sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon)));
+	}
+
+	/**
+	 * Loads the documents within a radius around a location.
+	 */
+	interface CandidateLoader<T> {
+
+		/**
+		 * @param x longitude of the location.
+		 * @param y latitude of the location.
+		 * @param radius in radians.
+		 * @param limit maximum number of candidates to load.
+		 * @return the candidates, never {@literal null}.
+		 */
+		List<Candidate<T>> load(double x, double y, double radius, int limit);
+	}
+
+	/**
+	 * A document of a tile along with its identifier and location.
+	 */
+	@Value
+	static class Candidate<T> {
+
+		Object id;
+		double x;
+		double y;
+		T content;
+	}
+
+	@Value
+	static class TileBounds {
+
+		String geohash;
+		double minX, minY, maxX, maxY;
+
+		double getCenterX() {
+			return (minX + maxX) / 2;
+		}
+
+		double getCenterY() {
+			return (minY + maxY) / 2;
+		}
+	}
+
+	@Value
+	private static class TileKey {
+
+		Object query;
+		String geohash;
+		double radiusBucket;
+	}
+
+	@Value
+	private static class Tile<T> {
+
+		long loadedAt;
+		@Nullable List<Candidate<T>> candidates;
+	}
+}
@@ -15,6 +15,8 @@
  */
 package example.springdata.mongodb.fluent;
 
+import java.time.Duration;
+
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -31,6 +33,21 @@ public class ApplicationConfiguration {
 
 	static final String COLLECTION = "star-wars";
 
+	@Bean
+	ExecutableBulkWriteOperation bulkOps(MongoTemplate template) {
+		return new ExecutableBulkWriteOperationSupport(template);
+	}
+
+	@Bean
+	ExecutablePagedGeoNearOperation pagedGeoNear(MongoTemplate template) {
+		return new ExecutablePagedGeoNearOperationSupport(template);
+	}
+
+	@Bean
+	GeoNearTileCache geoNearTileCache() {
+		return new GeoNearTileCache(6, 10_000, 500, Duration.ofSeconds(30));
+	}
+
 	@Bean
 	CommandLineRunner init(MongoTemplate template) {
 
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.fluent;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.data.mongodb.core.query.Criteria.*;
+import static org.springframework.data.mongodb.core.query.Query.*;
+import static org.springframework.data.mongodb.core.query.Update.*;
+
+import example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriter;
+import example.springdata.mongodb.fluent.ExecutableBulkWriteOperationSupport.DefaultBulkWriter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+
+/**
+ * Unit tests for {@link DefaultBulkWriter}.
+ */
+public class BulkWriterUnitTests {
+
+	List<BulkOperations> flushes = new ArrayList<>();
+
+	@Test
+	public void flushesOnSizeThreshold() {
+
+		BulkWriter<Jedi> writer = new DefaultBulkWriter<>(this::bulkOperations, 2, null);
+
+		writer.insert(new Jedi("luke", "skywalker"));
+		assertThat(flushes).hasSize(1);
+		verify(flushes.get(0), never()).execute();
+
+		writer.remove(query(where("lastname").is("vader")));
+		verify(flushes.get(0)).execute();
+
+		writer.insert(new Jedi("leia", "organa"));
+		assertThat(flushes).hasSize(2);
+		verify(flushes.get(1), never()).execute();
+	}
+
+	@Test
+	public void flushesOnTimeThreshold() {
+
+		BulkWriter<Jedi> writer = new DefaultBulkWriter<>(this::bulkOperations, 1000, Duration.ofMillis(10));
+
+		writer.insert(new Jedi("luke", "skywalker"));
+		verify(flushes.get(0), timeout(1000)).execute();
+
+		writer.close();
+	}
+
+	@Test
+	public void aggregatesResultsAcrossFlushes() {
+
+		BulkWriter<Jedi> writer = new DefaultBulkWriter<>(this::bulkOperations, 2, null);
+
+		writer.insert(Arrays.asList(new Jedi("luke", "skywalker"), new Jedi("leia", "organa")));
+		writer.upsert(query(where("lastname").is("windu")), update("name", "mace"));
+		writer.close();
+
+		BulkWriteResult result = writer.getResult();
+
+		assertThat(result.getInsertedCount()).isEqualTo(4);
+		assertThat(result.getUpserts()).extracting(BulkWriteUpsert::getIndex).containsExactly(0, 2);
+	}
+
+	@Test
+	public void closeFlushesRemainingOperationsAndRejectsFurtherOnes() {
+
+		BulkWriter<Jedi> writer = new DefaultBulkWriter<>(this::bulkOperations, 1000, Duration.ofMinutes(1));
+
+		writer.updateMulti(query(where("lastname").is("skywalker")), update("rank", "master"));
+		writer.close();
+
+		verify(flushes.get(0)).execute();
+		assertThatIllegalStateException().isThrownBy(() -> writer.insert(new Jedi("han", "solo")));
+	}
+
+	@Test
+	public void skipsFlushWithoutQueuedOperations() {
+
+		BulkWriter<Jedi> writer = new DefaultBulkWriter<>(this::bulkOperations, 1000, null);
+
+		assertThat(writer.flush()).isEmpty();
+		assertThat(flushes).isEmpty();
+	}
+
+	@Test
+	public void closeFlushesRemainingOperationsAfterFailedTimedFlush() {
+
+		BulkWriter<Jedi> writer = new DefaultBulkWriter<>(() -> flushes.isEmpty() ? failingBulkOperations()
+				: bulkOperations(), 1000, Duration.ofMillis(10));
+
+		writer.insert(new Jedi("luke", "skywalker"));
+		verify(flushes.get(0), timeout(1000)).execute();
+
+		writer.insert(new Jedi("leia", "organa"));
+
+		assertThatExceptionOfType(DataIntegrityViolationException.class).isThrownBy(writer::close);
+
+		assertThat(flushes).hasSize(2);
+		verify(flushes.get(1)).execute();
+		assertThat(writer.getResult().getInsertedCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void aggregatesPartialResultOfFailedFlush() {
+
+		BulkWriter<Jedi> writer = new DefaultBulkWriter<>(this::failingBulkOperations, 1000, null);
+
+		writer.insert(Arrays.asList(new Jedi("luke", "skywalker"), new Jedi("luke", "skywalker")));
+
+		assertThatExceptionOfType(DataIntegrityViolationException.class).isThrownBy(writer::flush);
+		assertThat(writer.getResult().getInsertedCount()).isEqualTo(1);
+	}
+
+	/**
+	 * Each flush reports two inserts and an upsert at index {@literal 0}.
+	 */
+	BulkOperations bulkOperations() {
+
+		BulkOperations bulk = mock(BulkOperations.class);
+		when(bulk.execute()).thenReturn(BulkWriteResult.acknowledged(2, 0, 0, 0,
+				Collections.singletonList(new BulkWriteUpsert(0, new BsonInt32(flushes.size())))));
+
+		flushes.add(bulk);
+		return bulk;
+	}
+
+	/**
+	 * Each flush fails with a single write error after inserting one document, as translated by
+	 * {@link org.springframework.data.mongodb.core.MongoExceptionTranslator}.
+	 */
+	BulkOperations failingBulkOperations() {
+
+		MongoBulkWriteException failure = new MongoBulkWriteException(BulkWriteResult.acknowledged(1, 0, 0, 0,
+				Collections.emptyList()),
+				Collections.singletonList(new BulkWriteError(121, "Document failed validation", new BsonDocument(), 1)), null,
+				new ServerAddress());
+
+		BulkOperations bulk = mock(BulkOperations.class);
+		when(bulk.execute()).thenThrow(new DataIntegrityViolationException(failure.getMessage(), failure));
+
+		flushes.add(bulk);
+		return bulk;
+	}
+}
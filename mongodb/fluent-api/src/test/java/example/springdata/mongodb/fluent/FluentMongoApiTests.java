@@ -21,6 +21,10 @@ import static org.springframework.data.mongodb.core.query.Criteria.*;
 import static org.springframework.data.mongodb.core.query.Query.*;
 import static org.springframework.data.mongodb.core.query.Update.*;
 
+import example.springdata.mongodb.fluent.ExecutableBulkWriteOperation.BulkWriter;
+import example.springdata.mongodb.fluent.ExecutablePagedGeoNearOperation.TerminatingPagedGeoNear;
+
+import java.time.Duration;
 import java.util.List;
 
 import org.junit.Before;
@@ -37,6 +41,7 @@ import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.NearQuery;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.result.UpdateResult;
 
 /**
@@ -58,6 +63,9 @@ import com.mongodb.client.result.UpdateResult;
 public class FluentMongoApiTests {
 
 	@Autowired FluentMongoOperations mongoOps;
+	@Autowired ExecutableBulkWriteOperation bulkOps;
+	@Autowired ExecutablePagedGeoNearOperation pagedGeoNear;
+	@Autowired GeoNearTileCache geoNearTileCache;
 
 	/**
 	 * A predefined, reusable lookup method.
@@ -187,6 +195,33 @@ public class FluentMongoApiTests {
 		assertThat(results.getContent()).hasSize(2);
 	}
 
+	/**
+	 * {@link ExecutablePagedGeoNearOperation#pagedGeoNear(Class)} reads {@literal $geoNear} results page by page. Instead
+	 * of skipping previous results, each page continues at the distance of the last result read via the
+	 * {@link GeoNearSlice.Continuation}. <br />
+	 * Using {@code cachedIn(GeoNearTileCache)} answers queries from locations within the same geohash tile and a similar
+	 * distance from memory.
+	 */
+	@Test
+	public void pagedGeoNearQuery() {
+
+		TerminatingPagedGeoNear<Jedi> nearAlderaan = pagedGeoNear.pagedGeoNear(SWCharacter.class) // defines the collection
+				.as(Jedi.class) // but we want to map the results to Jedi
+				.near(alderaanWithin3Parsecs) // and find those with home planet near alderaan
+				.cachedIn(geoNearTileCache); // answering queries from nearby locations from memory.
+
+		long hits = geoNearTileCache.getHitCount();
+
+		GeoNearSlice<Jedi> first = nearAlderaan.page(1);
+		GeoNearSlice<Jedi> second = nearAlderaan.page(1, first.getContinuation().get());
+
+		assertThat(first.getResults().getContent()).extracting(it -> it.getContent().getName()).containsExactly("leia");
+		assertThat(second.getResults().getContent()).extracting(it -> it.getContent().getName())
+				.containsExactly("obi-wan");
+		assertThat(second.hasNext()).isFalse();
+		assertThat(geoNearTileCache.getHitCount()).isGreaterThan(hits);
+	}
+
 	/**
 	 * In this case {@link Human} does not have an explicit {@link org.springframework.data.mongodb.core.mapping.Document}
 	 * annotation which results in {@literal human} as the default collection name. Via {@code inCollection(String)} it is
@@ -253,4 +288,48 @@ public class FluentMongoApiTests {
 				mongoOps.query(Human.class).inCollection("star-wars").matching(query(where("firstname").is("mence"))).one())
 						.contains(new Human("mence", "windu"));
 	}
+
+	/**
+	 * {@link ExecutableBulkWriteOperation#bulkWrite(Class)} queues mixed inserts, updates, upserts and removals and sends
+	 * them as unordered bulk writes once {@code flushEvery} operations are queued, {@code flushAfter} elapsed since
+	 * queueing the first one, or the {@link BulkWriter} gets closed. The {@link BulkWriteResult} sums up all flushes.
+	 * <br />
+	 * The sample below would read something like the following using classic {@link MongoOperations}.
+	 *
+	 * <pre>
+	 *     <code>
+	 *         template.bulkOps(BulkMode.UNORDERED, Jedi.class)
+	 *             .insert(yoda)
+	 *             .upsert(query(where("lastname").is("billaba")), update("name", "depa"))
+	 *             .updateMulti(query(where("lastname").is("skywalker")), update("rank", "master"))
+	 *             .remove(query(where("lastname").is("unknown")))
+	 *             .execute();
+	 *     </code>
+	 * </pre>
+	 */
+	@Test
+	public void bulkWrite() {
+
+		BulkWriter<Jedi> writer = bulkOps.bulkWrite(Jedi.class) // Jedi defines the collection and field mapping
+				.flushEvery(2) // send a bulk write every 2 operations
+				.flushAfter(Duration.ofMillis(100)) // or at the latest 100ms after queueing the first of them.
+				.open();
+
+		try {
+
+			writer.insert(new Jedi("yoda", "unknown")) //
+					.upsert(query(where("lastname").is("billaba")), update("name", "depa")) // flushed together,
+					.updateMulti(query(where("lastname").is("skywalker")), update("rank", "master")) // so removing
+					.remove(query(where("lastname").is("unknown"))); // yoda is guaranteed to run after the insert.
+		} finally {
+			writer.close();
+		}
+
+		BulkWriteResult result = writer.getResult();
+
+		assertThat(result.getInsertedCount()).isEqualTo(1);
+		assertThat(result.getUpserts()).hasSize(1);
+		assertThat(result.getMatchedCount()).isEqualTo(2);
+		assertThat(result.getDeletedCount()).isEqualTo(1);
+	}
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.fluent;
+
+import static org.assertj.core.api.Assertions.*;
+
+import example.springdata.mongodb.fluent.GeoNearTileCache.Candidate;
+import example.springdata.mongodb.fluent.GeoNearTileCache.TileBounds;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link GeoNearTileCache}.
+ */
+public class GeoNearTileCacheUnitTests {
+
+	static final double METER = 1 / 6378137d;
+
+	GeoNearTileCache cache = new GeoNearTileCache(6, 10, 2, Duration.ofMinutes(1));
+	List<double[]> loads = new ArrayList<>();
+
+	@Test
+	public void computesGeohashTile() {
+
+		TileBounds tile = GeoNearTileCache.tile(10.40744, 57.64911, 11);
+
+		assertThat(tile.getGeohash()).isEqualTo("u4pruydqqvj");
+		assertThat(tile.getMinX()).isLessThanOrEqualTo(10.40744);
+		assertThat(tile.getMaxX()).isGreaterThanOrEqualTo(10.40744);
+		assertThat(tile.getMinY()).isLessThanOrEqualTo(57.64911);
+		assertThat(tile.getMaxY()).isGreaterThanOrEqualTo(57.64911);
+	}
+
+	@Test
+	public void roundsRadiusUpToPowerOfTwoMeters() {
+
+		assertThat(GeoNearTileCache.radiusBucket(3000 * METER)).isCloseTo(4096 * METER, within(1e-12));
+		assertThat(GeoNearTileCache.radiusBucket(4096 * METER)).isCloseTo(4096 * METER, within(1e-12));
+		assertThat(GeoNearTileCache.radiusBucket(0)).isCloseTo(METER, within(1e-12));
+	}
+
+	@Test
+	public void sharesCandidatesWithinTileAndRadiusBucket() {
+
+		cache.candidates("query", -73.9667, 40.78, 3000 * METER, this::load);
+		List<Candidate<String>> candidates = cache.candidates("query", -73.9668, 40.7801, 3500 * METER, this::load);
+
+		assertThat(candidates).hasSize(1);
+		assertThat(loads).hasSize(1);
+		assertThat(cache.getHitCount()).isEqualTo(1);
+		assertThat(cache.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void loadsTileCoveringWholeTileAndRadius() {
+
+		cache.candidates("query", -73.9667, 40.78, 3000 * METER, this::load);
+
+		TileBounds tile = GeoNearTileCache.tile(-73.9667, 40.78, 6);
+		double[] load = loads.get(0);
+
+		assertThat(load[0]).isEqualTo(tile.getCenterX());
+		assertThat(load[1]).isEqualTo(tile.getCenterY());
+		assertThat(load[2]).isGreaterThan(4096 * METER + GeoNearTileCache.sphericalDistance(tile.getCenterX(),
+				tile.getCenterY(), tile.getMaxX(), tile.getMaxY()) - 1e-12);
+	}
+
+	@Test
+	public void loadsCandidateNearEquatorSideCornerOfTile() {
+
+		GeoNearTileCache coarse = new GeoNearTileCache(1, 10, 10, Duration.ofMinutes(1));
+
+		// geohash tile "u" spans 0 to 45 degrees longitude and 45 to 90 degrees latitude
+		double[] near = { 0.01, 45.01 };
+
+		List<Candidate<String>> candidates = coarse.candidates("query", 44.99, 89.99, METER, (x, y, radius, limit) -> {
+
+			loads.add(new double[] { x, y, radius, limit });
+			return GeoNearTileCache.sphericalDistance(x, y, near[0], near[1]) <= radius
+					? Collections.singletonList(new Candidate<>(1, near[0], near[1], "leia"))
+					: Collections.emptyList();
+		});
+
+		assertThat(candidates).hasSize(1);
+
+		TileBounds tile = GeoNearTileCache.tile(near[0], near[1], 1);
+		assertThat(GeoNearTileCache.coveringRadius(tile)).isGreaterThan(
+				GeoNearTileCache.sphericalDistance(tile.getCenterX(), tile.getCenterY(), tile.getMaxX(), tile.getMaxY()));
+	}
+
+	@Test
+	public void separatesQueriesAndRadiusBuckets() {
+
+		cache.candidates("query", -73.9667, 40.78, 3000 * METER, this::load);
+		cache.candidates("other", -73.9667, 40.78, 3000 * METER, this::load);
+		cache.candidates("query", -73.9667, 40.78, 5000 * METER, this::load);
+		cache.candidates("query", 13.4, 52.5, 3000 * METER, this::load);
+
+		assertThat(loads).hasSize(4);
+	}
+
+	@Test
+	public void doesNotCacheCandidatesOfDenseTiles() {
+
+		assertThat(cache.<String> candidates("query", -73.9667, 40.78, 3000 * METER,
+				(x, y, radius, limit) -> Collections.nCopies(limit, new Candidate<>(1, x, y, "dense")))).isNull();
+	}
+
+	List<Candidate<String>> load(double x, double y, double radius, int limit) {
+
+		loads.add(new double[] { x, y, radius, limit });
+		return Collections.singletonList(new Candidate<>(1, x, y, "leia"));
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.fluent;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.data.geo.Metrics.*;
+
+import example.springdata.mongodb.fluent.ExecutablePagedGeoNearOperation.TerminatingPagedGeoNear;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.DbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.NearQuery;
+
+/**
+ * Unit tests for {@link ExecutablePagedGeoNearOperationSupport} running against a simplified in-memory
+ * {@literal $geoNear}.
+ */
+public class PagedGeoNearUnitTests {
+
+	MongoOperations operations = mock(MongoOperations.class);
+	List<Document> stages = new ArrayList<>();
+	List<Document> documents = new ArrayList<>();
+
+	NearQuery alderaanWithin5Miles = NearQuery.near(-73.9667, 40.78).maxDistance(new Distance(5, MILES));
+
+	@Before
+	public void setUp() {
+
+		MongoMappingContext context = new MongoMappingContext();
+		context.afterPropertiesSet();
+
+		MappingMongoConverter converter = new MappingMongoConverter(mock(DbRefResolver.class), context);
+		converter.afterPropertiesSet();
+
+		when(operations.getConverter()).thenReturn(converter);
+		when(operations.getCollectionName(SWCharacter.class)).thenReturn("star-wars");
+		when(operations.aggregate(any(TypedAggregation.class), anyString(), eq(Document.class)))
+				.thenAnswer(it -> geoNear(it.getArgument(0)));
+
+		// two characters at the same distance span pages
+		add("leia", "organa", -73.9667, 40.78);
+		add("obi-wan", "kenobi", -73.9836, 40.7538);
+		add("anakin", "skywalker", -73.9928, 40.7193);
+		add("luke", "skywalker", -73.9928, 40.7193);
+		add("han", "solo", -74.5, 41.5);
+	}
+
+	@Test
+	public void readsAllPagesContinuingAtLastDistance() {
+
+		TerminatingPagedGeoNear<Jedi> query = new ExecutablePagedGeoNearOperationSupport(operations) //
+				.pagedGeoNear(SWCharacter.class).as(Jedi.class).near(alderaanWithin5Miles);
+
+		List<String> names = readAll(query, 1);
+
+		assertThat(names).containsExactly("leia", "obi-wan", "anakin", "luke");
+		assertThat(stages).hasSize(4).allSatisfy(it -> assertThat(it).doesNotContainKey("skip"));
+		assertThat(stages.get(3).get("query").toString()).contains("$nin");
+	}
+
+	@Test
+	public void reportsDistancesInQueryMetric() {
+
+		List<GeoResult<Jedi>> results = new ExecutablePagedGeoNearOperationSupport(operations) //
+				.pagedGeoNear(SWCharacter.class).as(Jedi.class).near(alderaanWithin5Miles).page(2).getResults().getContent();
+
+		assertThat(results.get(0).getDistance().getValue()).isZero();
+		assertThat(results.get(1).getDistance().getMetric()).isEqualTo(MILES);
+		assertThat(results.get(1).getDistance().getValue()).isBetween(1.0, 5.0);
+	}
+
+	@Test
+	public void answersNearbyQueriesFromTileCache() {
+
+		GeoNearTileCache cache = new GeoNearTileCache(6, 10, 100, Duration.ofMinutes(1));
+		ExecutablePagedGeoNearOperationSupport support = new ExecutablePagedGeoNearOperationSupport(operations);
+
+		List<String> direct = readAll(support.pagedGeoNear(SWCharacter.class).as(Jedi.class)
+				.near(NearQuery.near(-73.9668, 40.7801).maxDistance(new Distance(5, MILES))), 2);
+		stages.clear();
+
+		List<String> cached = readAll(support.pagedGeoNear(SWCharacter.class).as(Jedi.class)
+				.near(alderaanWithin5Miles).cachedIn(cache), 1);
+		List<String> nearby = readAll(support.pagedGeoNear(SWCharacter.class).as(Jedi.class)
+				.near(NearQuery.near(-73.9668, 40.7801).maxDistance(new Distance(5, MILES))).cachedIn(cache), 2);
+
+		assertThat(cached).containsExactly("leia", "obi-wan", "anakin", "luke");
+		assertThat(nearby).isEqualTo(direct);
+		assertThat(stages).hasSize(1);
+		assertThat(stages.get(0)).containsEntry("includeLocs", "__location");
+		assertThat(cache.getMissCount()).isEqualTo(1);
+	}
+
+	static List<String> readAll(TerminatingPagedGeoNear<Jedi> query, int size) {
+
+		List<String> names = new ArrayList<>();
+		GeoNearSlice<Jedi> page = query.page(size);
+
+		while (true) {
+
+			page.getResults().forEach(it -> names.add(it.getContent().getName()));
+
+			if (!page.hasNext()) {
+				return names;
+			}
+
+			page = query.page(size, page.getContinuation().get());
+		}
+	}
+
+	void add(String firstname, String lastname, double x, double y) {
+
+		documents.add(new Document("_id", new ObjectId()).append("firstname", firstname).append("lastname", lastname)
+				.append("homePlanet", new Document("coordinates", new Document("x", x).append("y", y))));
+	}
+
+	/**
+	 * Evaluate the {@literal $geoNear} stage on {@link #documents}, supporting {@literal $nin} on {@literal _id} only.
+	 */
+	@SuppressWarnings("unchecked")
+	AggregationResults<Document> geoNear(TypedAggregation<?> aggregation) {
+
+		Document stage = (Document) ((List<Document>) aggregation.toDocument("star-wars", Aggregation.DEFAULT_CONTEXT)
+				.get("pipeline")).get(0).get("$geoNear");
+		stages.add(stage);
+
+		List<Double> near = (List<Double>) stage.get("near");
+		double maxDistance = stage.get("maxDistance", Number.class).doubleValue();
+		double minDistance = stage.containsKey("minDistance") ? stage.get("minDistance", Number.class).doubleValue() : 0;
+		Object query = stage.get("query");
+		Collection<?> excluded = query instanceof Document && ((Document) query).get("_id") instanceof Document
+				? ((Document) ((Document) query).get("_id")).get("$nin", List.class)
+				: Collections.emptyList();
+
+		List<Document> results = documents.stream() //
+				.filter(it -> !excluded.contains(it.get("_id"))) //
+				.map(it -> {
+
+					Document location = (Document) ((Document) it.get("homePlanet")).get("coordinates");
+					Document result = new Document(it);
+					result.put((String) stage.get("distanceField"), GeoNearTileCache.sphericalDistance(near.get(0), near.get(1),
+							location.getDouble("x"), location.getDouble("y")));
+
+					if (stage.containsKey("includeLocs")) {
+						result.put((String) stage.get("includeLocs"), location);
+					}
+
+					return result;
+				}) //
+				.filter(it -> it.getDouble(stage.get("distanceField")) <= maxDistance) //
+				.filter(it -> it.getDouble(stage.get("distanceField")) >= minDistance) //
+				.sorted(Comparator.comparingDouble(it -> it.getDouble(stage.get("distanceField")))) //
+				.limit(stage.get("num", Number.class).longValue()) //
+				.collect(Collectors.toList());
+
+		return new AggregationResults<>(results, new Document());
+	}
+}
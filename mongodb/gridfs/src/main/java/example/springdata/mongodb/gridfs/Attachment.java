@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.gridfs;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Reference to content stored by {@link ContentAddressedGridFsStore}. Many {@link Attachment attachments} may point to
+ * the same GridFS file via their {@link #getDigest() digest}, identified by its {@link #getFileId() file id}.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "attachments")
+public class Attachment {
+
+	@Id private String id;
+
+	private String filename;
+	private String digest;
+	private Object fileId;
+	private long length;
+	private Date uploadDate;
+	private Object metadata;
+
+	Attachment(String filename, String digest, Object fileId, long length, Object metadata) {
+
+		this.filename = filename;
+		this.digest = digest;
+		this.fileId = fileId;
+		this.length = length;
+		this.uploadDate = new Date();
+		this.metadata = metadata;
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.gridfs;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.*;
+import static org.springframework.data.mongodb.core.query.Criteria.*;
+import static org.springframework.data.mongodb.core.query.Query.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+/**
+ * Deduplicating layer on top of {@link GridFsOperations}. Content is stored once per SHA-256 digest, using the digest
+ * as GridFS filename, while each call to {@code store(…)} only adds a lightweight {@link Attachment} holding the
+ * original filename and metadata.
+ * <p />
+ * A {@code blobs} document per digest maps it to the GridFS file and counts the {@link Attachment attachments}
+ * referencing it. {@link Attachment Attachments} hold the id of the GridFS file handed out by that document and
+ * resolve their content by it, as the digest filename is not unique while uploads of the same content or deletes race. The counter is maintained with atomic updates so that concurrent uploads of the same content keep a
+ * single copy, and the GridFS file is only removed once its last {@link Attachment} was
+ * {@link #delete(String) deleted}.
+ * <p />
+ * Content passed as {@link InputStream} is hashed while it is uploaded, so it is always transferred completely and the
+ * copy is removed afterwards if the digest turns out to be known already. A {@link Resource} that can be read twice is
+ * hashed up front so that repeated content is not transferred at all.
+ */
+public class ContentAddressedGridFsStore {
+
+	static final String BLOBS_COLLECTION = "blobs";
+	static final String FILES_COLLECTION = "fs.files";
+
+	private final GridFsOperations gridFsOperations;
+	private final MongoOperations operations;
+	private final MongoDbFactory dbFactory;
+
+	/**
+	 * Creates a new {@link ContentAddressedGridFsStore} using the default GridFS bucket.
+	 *
+	 * @param gridFsOperations must not be {@literal null}.
+	 * @param operations must not be {@literal null}.
+	 * @param dbFactory must not be {@literal null}.
+	 */
+	public ContentAddressedGridFsStore(GridFsOperations gridFsOperations, MongoOperations operations,
+			MongoDbFactory dbFactory) {
+
+		Assert.notNull(gridFsOperations, "GridFsOperations must not be null!");
+		Assert.notNull(operations, "MongoOperations must not be null!");
+		Assert.notNull(dbFactory, "MongoDbFactory must not be null!");
+
+		this.gridFsOperations = gridFsOperations;
+		this.operations = operations;
+		this.dbFactory = dbFactory;
+	}
+
+	/**
+	 * Store the given content unless it is known already and add an {@link Attachment} referencing it.
+	 *
+	 * @param content must not be {@literal null}.
+	 * @param filename must not be {@literal null}.
+	 * @param metadata can be {@literal null}.
+	 * @return the new {@link Attachment}.
+	 * @throws IOException
+	 */
+	public Attachment store(InputStream content, String filename, @Nullable Object metadata) throws IOException {
+
+		Assert.notNull(content, "Content must not be null!");
+		Assert.notNull(filename, "Filename must not be null!");
+
+		DigestInputStream digestStream = new DigestInputStream(content, newDigest());
+		ObjectId fileId = gridFsOperations.store(digestStream, filename);
+		String digest = toHex(digestStream.getMessageDigest().digest());
+
+		operations.updateFirst(query(where("_id").is(fileId)), Update.update("filename", digest), FILES_COLLECTION);
+
+		Object referencedFileId = reference(digest, fileId);
+
+		if (!fileId.equals(referencedFileId)) { // someone else stored the same content before
+			gridFsOperations.delete(query(where("_id").is(fileId)));
+		}
+
+		return attach(filename, digest, referencedFileId, metadata);
+	}
+
+	/**
+	 * Store the content of the given {@link Resource}. If the {@link Resource} can be opened more than once its digest is
+	 * computed first and the upload is skipped if the content is known already.
+	 *
+	 * @param resource must not be {@literal null}.
+	 * @param filename must not be {@literal null}.
+	 * @param metadata can be {@literal null}.
+	 * @return the new {@link Attachment}.
+	 * @throws IOException
+	 */
+	public Attachment store(Resource resource, String filename, @Nullable Object metadata) throws IOException {
+
+		Assert.notNull(resource, "Resource must not be null!");
+
+		if (resource.isOpen()) {
+			try (InputStream content = resource.getInputStream()) {
+				return store(content, filename, metadata);
+			}
+		}
+
+		String digest;
+		try (DigestInputStream digestStream = new DigestInputStream(resource.getInputStream(), newDigest())) {
+
+			StreamUtils.drain(digestStream);
+			digest = toHex(digestStream.getMessageDigest().digest());
+		}
+
+		Document blob = operations.findAndModify(query(where("_id").is(digest)), new Update().inc("refCount", 1),
+				options().returnNew(true), Document.class, BLOBS_COLLECTION);
+
+		if (blob != null) {
+			return attach(filename, digest, blob.get("fileId"), metadata);
+		}
+
+		ObjectId fileId;
+		try (InputStream content = resource.getInputStream()) {
+			fileId = gridFsOperations.store(content, digest);
+		}
+
+		Object referencedFileId = reference(digest, fileId);
+
+		if (!fileId.equals(referencedFileId)) {
+			gridFsOperations.delete(query(where("_id").is(fileId)));
+		}
+
+		return attach(filename, digest, referencedFileId, metadata);
+	}
+
+	/**
+	 * Look up the {@link Attachment} with the given id.
+	 *
+	 * @param attachmentId must not be {@literal null}.
+	 * @return {@link Optional#empty()} if not found.
+	 */
+	public Optional<Attachment> findAttachment(String attachmentId) {
+		return Optional.ofNullable(operations.findById(attachmentId, Attachment.class));
+	}
+
+	/**
+	 * Obtain the content of the given {@link Attachment}.
+	 *
+	 * @param attachment must not be {@literal null}.
+	 * @return the {@link GridFsResource} holding the content or {@literal null} if the content was removed.
+	 */
+	@Nullable
+	public GridFsResource getResource(Attachment attachment) {
+
+		Assert.notNull(attachment, "Attachment must not be null!");
+
+		GridFSFile file = gridFsOperations.findOne(query(where("_id").is(attachment.getFileId())));
+
+		return file != null ? new GridFsResource(file, getGridFs().openDownloadStream(file.getId())) : null;
+	}
+
+	/**
+	 * Delete the {@link Attachment} with the given id and remove its content if no other {@link Attachment} references
+	 * it.
+	 *
+	 * @param attachmentId must not be {@literal null}.
+	 * @return {@literal true} if the {@link Attachment} existed.
+	 */
+	public boolean delete(String attachmentId) {
+
+		Attachment attachment = operations.findAndRemove(query(where("_id").is(attachmentId)), Attachment.class);
+
+		if (attachment == null) {
+			return false;
+		}
+
+		release(attachment.getDigest());
+
+		return true;
+	}
+
+	/**
+	 * Count the {@link Attachment attachments} referencing the given digest.
+	 *
+	 * @param digest must not be {@literal null}.
+	 * @return the reference count, zero if the content is not stored.
+	 */
+	public int getReferenceCount(String digest) {
+
+		Document blob = operations.findById(digest, Document.class, BLOBS_COLLECTION);
+		return blob != null ? blob.getInteger("refCount", 0) : 0;
+	}
+
+	/**
+	 * Add a reference to the blob with the given digest, registering {@code fileId} as its content if the digest is not
+	 * known yet.
+	 *
+	 * @return the id of the GridFS file holding the content of {@code digest}.
+	 */
+	private Object reference(String digest, ObjectId fileId) {
+
+		Update update = new Update().inc("refCount", 1).setOnInsert("fileId", fileId);
+
+		try {
+			return upsert(digest, update).get("fileId");
+		} catch (DuplicateKeyException e) { // concurrent upsert of the same digest, now the document exists
+			return upsert(digest, update).get("fileId");
+		}
+	}
+
+	/**
+	 * Drop a reference to the blob with the given digest and remove its content once it is no longer referenced.
+	 */
+	private void release(String digest) {
+
+		Document blob = operations.findAndModify(query(where("_id").is(digest)), new Update().inc("refCount", -1),
+				options().returnNew(true), Document.class, BLOBS_COLLECTION);
+
+		if (blob == null || blob.getInteger("refCount", 0) > 0) {
+			return;
+		}
+
+		// only the one removing the blob document deletes the file, a concurrent store incrementing the count wins
+		Document removed = operations.findAndRemove(query(where("_id").is(digest).and("refCount").lte(0)), Document.class,
+				BLOBS_COLLECTION);
+
+		if (removed != null) {
+			gridFsOperations.delete(query(where("_id").is(removed.get("fileId"))));
+		}
+	}
+
+	private Document upsert(String digest, Update update) {
+		return operations.findAndModify(query(where("_id").is(digest)), update, options().upsert(true).returnNew(true),
+				Document.class, BLOBS_COLLECTION);
+	}
+
+	private Attachment attach(String filename, String digest, Object fileId, @Nullable Object metadata) {
+
+		GridFSFile file = gridFsOperations.findOne(query(where("_id").is(fileId)));
+
+		Attachment attachment = new Attachment(filename, digest, fileId, file != null ? file.getLength() : 0, metadata);
+
+		try {
+			operations.insert(attachment);
+		} catch (RuntimeException e) { // the reference was taken already, give it back so the blob can be collected
+			release(digest);
+			throw e;
+		}
+
+		return attachment;
+	}
+
+	private GridFSBucket getGridFs() {
+		return GridFSBuckets.create(dbFactory.getDb());
+	}
+
+	private static MessageDigest newDigest() {
+
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+
+		for (byte b : bytes) {
+			builder.append(String.format("%02x", b));
+		}
+
+		return builder.toString();
+	}
+}
@@ -16,6 +16,10 @@
 package example.springdata.mongodb.gridfs;
 
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.gridfs.GridFsOperations;
 
 /**
@@ -24,4 +28,21 @@ import org.springframework.data.mongodb.gridfs.GridFsOperations;
  * @author Hartmut Lang
  */
 @SpringBootApplication
-public class GridFsApplication {}
+public class GridFsApplication {
+
+	@Bean
+	GridFsChannels gridFsChannels(MongoDbFactory dbFactory) {
+		return new GridFsChannels(dbFactory);
+	}
+
+	@Bean
+	ContentAddressedGridFsStore contentAddressedGridFsStore(GridFsOperations gridFsOperations,
+			MongoOperations operations, MongoDbFactory dbFactory) {
+		return new ContentAddressedGridFsStore(gridFsOperations, operations, dbFactory);
+	}
+
+	@Bean
+	ReactiveGridFs reactiveGridFs(ReactiveMongoDatabaseFactory dbFactory) {
+		return new ReactiveGridFs(dbFactory);
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.gridfs;
+
+import static com.mongodb.client.model.Filters.*;
+import static com.mongodb.client.model.Sorts.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import com.mongodb.MongoGridFSException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSUploadStream;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+
+/**
+ * Channel based access to GridFS for files too large to be copied into memory.
+ * <p />
+ * {@link #transferTo(GridFSFile, long, long, WritableByteChannel)} serves a byte range, eg. one requested via an HTTP
+ * {@code Range} header, by fetching only the chunks overlapping that range. Chunks are read in windows of
+ * {@code prefetchChunks} with up to {@code parallelism} windows in flight, so the next chunks are already on their way
+ * while the current ones are written to the target channel. Chunk payloads are wrapped, not copied, before they are
+ * written.
+ * <p />
+ * {@link #store(ReadableByteChannel, String, Document, int)} uploads from a {@link ReadableByteChannel} using a custom
+ * chunk size.
+ */
+public class GridFsChannels implements DisposableBean {
+
+	private static final int DEFAULT_PREFETCH_CHUNKS = 4;
+	private static final int DEFAULT_PARALLELISM = 2;
+
+	private final MongoDbFactory dbFactory;
+	private final String bucket;
+	private final ExecutorService executor;
+	private final int parallelism;
+
+	private int prefetchChunks = DEFAULT_PREFETCH_CHUNKS;
+
+	/**
+	 * Creates a new {@link GridFsChannels} for the default {@code fs} bucket.
+	 *
+	 * @param dbFactory must not be {@literal null}.
+	 */
+	public GridFsChannels(MongoDbFactory dbFactory) {
+		this(dbFactory, "fs", DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * Creates a new {@link GridFsChannels}.
+	 *
+	 * @param dbFactory must not be {@literal null}.
+	 * @param bucket must not be {@literal null} or empty.
+	 * @param parallelism maximum number of concurrent chunk reads, must be greater than zero.
+	 */
+	public GridFsChannels(MongoDbFactory dbFactory, String bucket, int parallelism) {
+
+		Assert.notNull(dbFactory, "MongoDbFactory must not be null!");
+		Assert.hasText(bucket, "Bucket must not be null or empty!");
+		Assert.isTrue(parallelism > 0, "Parallelism must be greater than zero!");
+
+		AtomicInteger threadCount = new AtomicInteger();
+
+		this.dbFactory = dbFactory;
+		this.bucket = bucket;
+		this.parallelism = parallelism;
+		this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+
+			Thread thread = new Thread(runnable, "gridfs-prefetch-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Set the number of chunks fetched by a single query. Defaults to {@value #DEFAULT_PREFETCH_CHUNKS}.
+	 *
+	 * @param prefetchChunks must be greater than zero.
+	 */
+	public void setPrefetchChunks(int prefetchChunks) {
+
+		Assert.isTrue(prefetchChunks > 0, "Prefetch chunks must be greater than zero!");
+
+		this.prefetchChunks = prefetchChunks;
+	}
+
+	/**
+	 * Store the content of the given {@link ReadableByteChannel} using chunks of {@code chunkSizeBytes}.
+	 *
+	 * @param source must not be {@literal null}.
+	 * @param filename must not be {@literal null}.
+	 * @param metadata can be {@literal null}.
+	 * @param chunkSizeBytes must be greater than zero.
+	 * @return the id of the stored file.
+	 * @throws IOException when reading from the {@code source} fails.
+	 */
+	public ObjectId store(ReadableByteChannel source, String filename, @Nullable Document metadata, int chunkSizeBytes)
+			throws IOException {
+
+		Assert.notNull(source, "Source must not be null!");
+		Assert.notNull(filename, "Filename must not be null!");
+		Assert.isTrue(chunkSizeBytes > 0, "Chunk size must be greater than zero!");
+
+		GridFSUploadOptions options = new GridFSUploadOptions().chunkSizeBytes(chunkSizeBytes).metadata(metadata);
+		ByteBuffer buffer = ByteBuffer.allocate(chunkSizeBytes);
+
+		try (GridFSUploadStream upload = getGridFs().openUploadStream(filename, options)) {
+
+			while (source.read(buffer) != -1) {
+
+				if (!buffer.hasRemaining()) {
+					upload.write(buffer.array(), 0, buffer.position());
+					buffer.clear();
+				}
+			}
+
+			upload.write(buffer.array(), 0, buffer.position());
+
+			return upload.getObjectId();
+		}
+	}
+
+	/**
+	 * Write the entire content of the given file to the {@link WritableByteChannel}.
+	 *
+	 * @param file must not be {@literal null}.
+	 * @param target must not be {@literal null}.
+	 * @return the number of bytes written.
+	 * @throws IOException when writing to the {@code target} fails.
+	 */
+	public long transferTo(GridFSFile file, WritableByteChannel target) throws IOException {
+		return transferTo(file, 0, file.getLength(), target);
+	}
+
+	/**
+	 * Write {@code count} bytes of the given file starting at {@code position} to the {@link WritableByteChannel}. The
+	 * range is truncated at the end of the file.
+	 *
+	 * @param file must not be {@literal null}.
+	 * @param position zero based offset of the first byte to write.
+	 * @param count number of bytes to write.
+	 * @param target must not be {@literal null}.
+	 * @return the number of bytes written.
+	 * @throws IOException when writing to the {@code target} fails.
+	 */
+	public long transferTo(GridFSFile file, long position, long count, WritableByteChannel target) throws IOException {
+
+		Assert.notNull(file, "GridFSFile must not be null!");
+		Assert.notNull(target, "Target must not be null!");
+		Assert.isTrue(position >= 0 && position <= file.getLength(), "Position must be within the file!");
+		Assert.isTrue(count >= 0, "Count must not be negative!");
+
+		long end = Math.min(file.getLength(), position + count); // exclusive
+
+		if (end == position) {
+			return 0;
+		}
+
+		int chunkSize = file.getChunkSize();
+		int firstChunk = (int) (position / chunkSize);
+		int lastChunk = (int) ((end - 1) / chunkSize);
+
+		MongoCollection<RawBsonDocument> chunks = getChunksCollection();
+		Deque<Window> inFlight = new ArrayDeque<>(parallelism);
+
+		int nextWindow = firstChunk;
+		long written = 0;
+
+		try {
+
+			while (nextWindow <= lastChunk || !inFlight.isEmpty()) {
+
+				while (inFlight.size() < parallelism && nextWindow <= lastChunk) {
+
+					Window window = new Window(nextWindow, Math.min(lastChunk, nextWindow + prefetchChunks - 1));
+					window.chunks = CompletableFuture.supplyAsync(() -> fetch(chunks, file.getId(), window), executor);
+
+					inFlight.add(window);
+					nextWindow = window.to + 1;
+				}
+
+				Window window = inFlight.poll();
+				List<RawBsonDocument> documents = join(window.chunks);
+
+				for (int i = 0; i < window.size(); i++) {
+
+					int n = window.from + i;
+
+					if (i >= documents.size() || documents.get(i).getNumber("n").intValue() != n) {
+						throw new MongoGridFSException(
+								String.format("Could not find file chunk for file_id: %s at chunk index %s.", file.getId(), n));
+					}
+
+					ByteBuffer data = ByteBuffer.wrap(documents.get(i).getBinary("data").getData());
+					long chunkStart = (long) n * chunkSize;
+
+					data.position((int) (Math.max(position, chunkStart) - chunkStart));
+					data.limit((int) Math.min(data.capacity(), end - chunkStart));
+
+					while (data.hasRemaining()) {
+						written += target.write(data);
+					}
+				}
+			}
+		} finally {
+			inFlight.forEach(it -> it.chunks.cancel(false));
+		}
+
+		return written;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	private static List<RawBsonDocument> fetch(MongoCollection<RawBsonDocument> chunks, BsonValue fileId,
+			Window window) {
+
+		return chunks.find(and(eq("files_id", fileId), gte("n", window.from), lte("n", window.to))) //
+				.sort(ascending("n")) //
+				.batchSize(window.size()) //
+				.into(new ArrayList<>(window.size()));
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+		}
+	}
+
+	private GridFSBucket getGridFs() {
+		return GridFSBuckets.create(dbFactory.getDb(), bucket);
+	}
+
+	private MongoCollection<RawBsonDocument> getChunksCollection() {
+		return dbFactory.getDb().getCollection(bucket + ".chunks", RawBsonDocument.class);
+	}
+
+	/**
+	 * Range of chunk indexes fetched by a single query.
+	 */
+	private static class Window {
+
+		final int from;
+		final int to; // inclusive
+		CompletableFuture<List<RawBsonDocument>> chunks;
+
+		Window(int from, int to) {
+
+			this.from = from;
+			this.to = to;
+		}
+
+		int size() {
+			return to - from + 1;
+		}
+	}
+}
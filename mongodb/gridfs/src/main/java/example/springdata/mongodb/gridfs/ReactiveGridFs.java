@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.gridfs;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.reactivestreams.client.gridfs.GridFSBucket;
+import com.mongodb.reactivestreams.client.gridfs.GridFSBuckets;
+import com.mongodb.reactivestreams.client.gridfs.GridFSDownloadStream;
+import com.mongodb.reactivestreams.client.gridfs.GridFSUploadStream;
+
+/**
+ * Reactive access to GridFS exchanging content as {@link DataBuffer} streams on top of the Reactive Streams GridFS
+ * API of the MongoDB driver.
+ * <p />
+ * Both directions are driven by demand: {@link #store(Publisher, String, Document)} requests the next
+ * {@link DataBuffer} only after the previous one was written, and {@link #read(ObjectId)} reads the next
+ * {@code bufferSize} bytes only when the subscriber asks for them, with the download cursor fetching
+ * {@code chunkBatchSize} chunks at a time. A slow consumer, eg. an HTTP client on a slow connection, therefore only
+ * ever holds a few buffers in memory instead of the whole file.
+ */
+public class ReactiveGridFs {
+
+	private static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+	private static final int DEFAULT_CHUNK_BATCH_SIZE = 2;
+
+	private final ReactiveMongoDatabaseFactory dbFactory;
+	private final String bucket;
+	private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+	private int chunkBatchSize = DEFAULT_CHUNK_BATCH_SIZE;
+
+	/**
+	 * Creates a new {@link ReactiveGridFs} for the default {@code fs} bucket.
+	 *
+	 * @param dbFactory must not be {@literal null}.
+	 */
+	public ReactiveGridFs(ReactiveMongoDatabaseFactory dbFactory) {
+		this(dbFactory, "fs");
+	}
+
+	/**
+	 * Creates a new {@link ReactiveGridFs}.
+	 *
+	 * @param dbFactory must not be {@literal null}.
+	 * @param bucket must not be {@literal null} or empty.
+	 */
+	public ReactiveGridFs(ReactiveMongoDatabaseFactory dbFactory, String bucket) {
+
+		Assert.notNull(dbFactory, "ReactiveMongoDatabaseFactory must not be null!");
+		Assert.hasText(bucket, "Bucket must not be null or empty!");
+
+		this.dbFactory = dbFactory;
+		this.bucket = bucket;
+	}
+
+	/**
+	 * Set the size of the {@link DataBuffer buffers} emitted by {@link #read(ObjectId)}. Defaults to 256 KB.
+	 *
+	 * @param bufferSize must be greater than zero.
+	 */
+	public void setBufferSize(int bufferSize) {
+
+		Assert.isTrue(bufferSize > 0, "Buffer size must be greater than zero!");
+
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Set the number of chunks the download cursor fetches per batch. Defaults to {@value #DEFAULT_CHUNK_BATCH_SIZE}.
+	 *
+	 * @param chunkBatchSize must be greater than zero.
+	 */
+	public void setChunkBatchSize(int chunkBatchSize) {
+
+		Assert.isTrue(chunkBatchSize > 0, "Chunk batch size must be greater than zero!");
+
+		this.chunkBatchSize = chunkBatchSize;
+	}
+
+	/**
+	 * Store the given content. {@link DataBuffer buffers} are released once written. The upload is aborted, removing
+	 * already written chunks, if {@code content} emits an error or the subscription is cancelled.
+	 *
+	 * @param content must not be {@literal null}.
+	 * @param filename must not be {@literal null}.
+	 * @param metadata can be {@literal null}.
+	 * @return a {@link Mono} emitting the id of the stored file.
+	 */
+	public Mono<ObjectId> store(Publisher<DataBuffer> content, String filename, @Nullable Document metadata) {
+
+		Assert.notNull(content, "Content must not be null!");
+		Assert.notNull(filename, "Filename must not be null!");
+
+		return Mono.defer(() -> {
+
+			GridFSUploadStream upload = getGridFs().openUploadStream(filename,
+					new GridFSUploadOptions().metadata(metadata));
+
+			return Flux.from(content) //
+					.concatMap(buffer -> Mono.from(upload.write(buffer.asByteBuffer())) //
+							.doFinally(signal -> DataBufferUtils.release(buffer)), 1) //
+					.then(Mono.from(upload.close())) //
+					.thenReturn(upload.getObjectId()) //
+					.onErrorResume(e -> Mono.from(upload.abort()).then(Mono.error(e))) //
+					.doOnCancel(() -> Mono.from(upload.abort()).subscribe());
+		});
+	}
+
+	/**
+	 * Read the content of the file with the given id.
+	 *
+	 * @param id must not be {@literal null}.
+	 * @return a {@link Flux} emitting the content, reading from the database only on demand.
+	 */
+	public Flux<DataBuffer> read(ObjectId id) {
+
+		Assert.notNull(id, "Id must not be null!");
+
+		return Flux.defer(() -> read(getGridFs().openDownloadStream(id)));
+	}
+
+	/**
+	 * Read the content of the latest revision of the file with the given filename.
+	 *
+	 * @param filename must not be {@literal null}.
+	 * @return a {@link Flux} emitting the content, reading from the database only on demand.
+	 */
+	public Flux<DataBuffer> read(String filename) {
+
+		Assert.notNull(filename, "Filename must not be null!");
+
+		return Flux.defer(() -> read(getGridFs().openDownloadStream(filename)));
+	}
+
+	private Flux<DataBuffer> read(GridFSDownloadStream download) {
+
+		download.batchSize(chunkBatchSize);
+
+		return Mono.defer(() -> {
+
+			ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+
+			return Mono.from(download.read(buffer)).map(read -> {
+
+				buffer.flip();
+				return buffer;
+			});
+		}) //
+				.repeat() //
+				.takeWhile(ByteBuffer::hasRemaining) // nothing read: end of file
+				.map(bufferFactory::wrap) //
+				.doFinally(signal -> Mono.from(download.close()).subscribe());
+	}
+
+	private GridFSBucket getGridFs() {
+		return GridFSBuckets.create(dbFactory.getMongoDatabase(), bucket);
+	}
+}
@@ -21,8 +21,16 @@ import static org.springframework.data.mongodb.gridfs.GridFsCriteria.*;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -30,13 +38,17 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.gridfs.GridFsOperations;
 import org.springframework.data.mongodb.gridfs.GridFsResource;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.util.StreamUtils;
 
+import com.mongodb.MongoGridFSException;
 import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.model.Filters;
 
 /**
  * Tests to show the usage of {@link GridFsOperations} with Spring Data MongoDB.
@@ -49,10 +61,17 @@ import com.mongodb.client.gridfs.model.GridFSFile;
 public class GridFsTests {
 
 	@Autowired GridFsOperations gridFsOperations;
+	@Autowired GridFsChannels gridFsChannels;
+	@Autowired MongoDbFactory mongoDbFactory;
+	@Autowired ContentAddressedGridFsStore contentAddressedStore;
+	@Autowired MongoOperations operations;
 
 	@Before
 	public void before() {
+
 		gridFsOperations.delete(new Query());
+		operations.dropCollection(Attachment.class);
+		operations.dropCollection(ContentAddressedGridFsStore.BLOBS_COLLECTION);
 	}
 
 	@Test
@@ -105,4 +124,95 @@ public class GridFsTests {
 
 		assertThat(bytes).isEqualTo(loaded);
 	}
+
+	@Test
+	public void shouldStoreFromChannelAndTransferRanges() throws IOException {
+
+		byte[] bytes = new byte[100_000];
+		new Random(42).nextBytes(bytes);
+
+		// store file using 1 KB chunks
+		ObjectId id = gridFsChannels.store(Channels.newChannel(new ByteArrayInputStream(bytes)), "random.bin",
+				new Document("type", "random"), 1024);
+
+		GridFSFile file = gridFsOperations.findOne(query(whereFilename().is("random.bin")));
+
+		assertThat(file.getObjectId()).isEqualTo(id);
+		assertThat(file.getChunkSize()).isEqualTo(1024);
+		assertThat(file.getLength()).isEqualTo(bytes.length);
+
+		// whole file
+		assertThat(transfer(file, 0, bytes.length)).isEqualTo(bytes);
+
+		// ranges within a chunk, across chunk boundaries and past the end of the file
+		assertThat(transfer(file, 10, 20)).isEqualTo(Arrays.copyOfRange(bytes, 10, 30));
+		assertThat(transfer(file, 1000, 50_000)).isEqualTo(Arrays.copyOfRange(bytes, 1000, 51_000));
+		assertThat(transfer(file, 99_990, 100)).isEqualTo(Arrays.copyOfRange(bytes, 99_990, 100_000));
+		assertThat(transfer(file, bytes.length, 10)).isEmpty();
+	}
+
+	@Test(expected = MongoGridFSException.class)
+	public void shouldRejectRangeOfCorruptFile() throws IOException {
+
+		byte[] bytes = new byte[10_000];
+
+		gridFsChannels.store(Channels.newChannel(new ByteArrayInputStream(bytes)), "corrupt.bin", null, 1024);
+
+		GridFSFile file = gridFsOperations.findOne(query(whereFilename().is("corrupt.bin")));
+		mongoDbFactory.getDb().getCollection("fs.chunks")
+				.deleteOne(Filters.and(Filters.eq("files_id", file.getObjectId()), Filters.eq("n", 5)));
+
+		transfer(file, 0, bytes.length);
+	}
+
+	@Test
+	public void shouldStoreIdenticalContentOnce() throws IOException {
+
+		byte[] bytes;
+		try (InputStream is = new ClassPathResource("./example-file.txt").getInputStream()) {
+			bytes = StreamUtils.copyToByteArray(is);
+		}
+
+		Attachment first = contentAddressedStore.store(new ByteArrayInputStream(bytes), "first.txt",
+				new Customer("Hardy", "Lang"));
+		Attachment second = contentAddressedStore.store(new ByteArrayInputStream(bytes), "second.txt", null);
+		Attachment third = contentAddressedStore.store(new ClassPathResource("./example-file.txt"), "third.txt", null);
+
+		assertThat(first.getDigest()).isEqualTo(second.getDigest()).isEqualTo(third.getDigest());
+		assertThat(first.getFileId()).isEqualTo(second.getFileId()).isEqualTo(third.getFileId());
+		assertThat(gridFsOperations.find(new Query()).into(new ArrayList<>())).hasSize(1);
+		assertThat(contentAddressedStore.getReferenceCount(first.getDigest())).isEqualTo(3);
+
+		try (InputStream is = contentAddressedStore.getResource(second).getInputStream()) {
+			assertThat(StreamUtils.copyToByteArray(is)).isEqualTo(bytes);
+		}
+
+		assertThat(contentAddressedStore.findAttachment(first.getId()).map(Attachment::getFilename)).contains("first.txt");
+	}
+
+	@Test
+	public void shouldDeleteContentWithLastReference() throws IOException {
+
+		Attachment first = contentAddressedStore.store(new ClassPathResource("./example-file.txt"), "first.txt", null);
+		Attachment second = contentAddressedStore.store(new ClassPathResource("./example-file.txt"), "second.txt", null);
+
+		assertThat(contentAddressedStore.delete(first.getId())).isTrue();
+		assertThat(contentAddressedStore.getReferenceCount(first.getDigest())).isOne();
+		assertThat(gridFsOperations.findOne(query(whereFilename().is(first.getDigest())))).isNotNull();
+
+		assertThat(contentAddressedStore.delete(second.getId())).isTrue();
+		assertThat(contentAddressedStore.getReferenceCount(first.getDigest())).isZero();
+		assertThat(gridFsOperations.findOne(query(whereFilename().is(first.getDigest())))).isNull();
+		assertThat(contentAddressedStore.getResource(second)).isNull();
+
+		assertThat(contentAddressedStore.delete(second.getId())).isFalse();
+	}
+
+	private byte[] transfer(GridFSFile file, long position, long count) throws IOException {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		gridFsChannels.transferTo(file, position, count, Channels.newChannel(out));
+
+		return out.toByteArray();
+	}
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.gridfs;
+
+import static org.assertj.core.api.Assertions.*;
+
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Tests showing that {@link ReactiveGridFs} streams a file larger than the heap with bounded memory. Run in a separate
+ * Surefire execution with a small heap, see the module's {@code pom.xml}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ReactiveGridFsLargeFileTests {
+
+	static final int BUFFER_SIZE = 64 * 1024;
+	static final long FILE_SIZE = 256 * 1024 * 1024; // larger than the heap configured for this test
+	static final long MAX_RETAINED = 32 * 1024 * 1024;
+
+	@Autowired ReactiveGridFs reactiveGridFs;
+	@Autowired GridFsOperations gridFsOperations;
+
+	DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream() //
+			.filter(it -> it.getType() == MemoryType.HEAP && it.isCollectionUsageThresholdSupported()) //
+			.collect(Collectors.toList());
+
+	@Before
+	public void before() {
+		gridFsOperations.delete(new Query());
+	}
+
+	@Test
+	public void shouldStreamLargeFileWithBoundedMemory() {
+
+		System.gc();
+		long baseline = retainedHeap();
+		AtomicLong maxRetained = new AtomicLong();
+
+		// upload: record the largest demand signalled to the content source
+		AtomicLong maxUploadRequest = new AtomicLong();
+
+		Flux<DataBuffer> content = Flux.range(0, (int) (FILE_SIZE / BUFFER_SIZE)) //
+				.map(i -> bufferFactory.wrap(new byte[BUFFER_SIZE])) //
+				.hide() // no operator fusion, behave like content received over the network
+				.doOnRequest(n -> maxUploadRequest.accumulateAndGet(n, Math::max)) //
+				.doOnNext(buffer -> maxRetained.accumulateAndGet(retainedHeap(), Math::max));
+
+		ObjectId id = reactiveGridFs.store(content, "large.bin", null).block(Duration.ofMinutes(5));
+
+		// download: a slow subscriber pulling one buffer at a time
+		AtomicLong maxDownloadRequest = new AtomicLong();
+		AtomicLong received = new AtomicLong();
+
+		reactiveGridFs.read(id) //
+				.doOnRequest(n -> maxDownloadRequest.accumulateAndGet(n, Math::max)) //
+				.limitRate(1) //
+				.doOnNext(buffer -> {
+
+					received.addAndGet(buffer.readableByteCount());
+					maxRetained.accumulateAndGet(retainedHeap(), Math::max);
+					DataBufferUtils.release(buffer);
+				}) //
+				.then() //
+				.block(Duration.ofMinutes(5));
+
+		assertThat(received).hasValue(FILE_SIZE);
+		assertThat(maxUploadRequest).hasValue(1);
+		assertThat(maxDownloadRequest).hasValue(1);
+		assertThat(maxRetained.get() - baseline).isLessThan(MAX_RETAINED);
+	}
+
+	/**
+	 * @return the heap still in use after the most recent garbage collection, ignoring garbage not yet collected.
+	 */
+	private long retainedHeap() {
+		return heapPools.stream().mapToLong(it -> it.getCollectionUsage().getUsed()).sum();
+	}
+}
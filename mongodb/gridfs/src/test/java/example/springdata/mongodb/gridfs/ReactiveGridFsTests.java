@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.gridfs;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Tests to show the usage of {@link ReactiveGridFs} streaming content as {@link DataBuffer} sequences.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ReactiveGridFsTests {
+
+	@Autowired ReactiveGridFs reactiveGridFs;
+	@Autowired GridFsOperations gridFsOperations;
+
+	DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	@Before
+	public void before() {
+		gridFsOperations.delete(new Query());
+	}
+
+	@Test
+	public void shouldStoreAndReadContent() {
+
+		Flux<DataBuffer> content = Flux.just("Hello", " ", "GridFS") //
+				.map(it -> bufferFactory.wrap(it.getBytes(StandardCharsets.UTF_8)));
+
+		ObjectId id = reactiveGridFs.store(content, "hello.txt", new Document("lang", "en")).block();
+
+		StepVerifier.create(DataBufferUtils.join(reactiveGridFs.read(id)).map(this::asString)) //
+				.expectNext("Hello GridFS") //
+				.verifyComplete();
+
+		StepVerifier.create(DataBufferUtils.join(reactiveGridFs.read("hello.txt")).map(this::asString)) //
+				.expectNext("Hello GridFS") //
+				.verifyComplete();
+	}
+
+	private String asString(DataBuffer buffer) {
+
+		String result = StandardCharsets.UTF_8.decode(buffer.asByteBuffer()).toString();
+		DataBufferUtils.release(buffer);
+		return result;
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.people;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.util.Assert;
+
+/**
+ * {@link Spliterator} partitioning a collection into {@code _id} ranges. Splitting hands off whole ranges and each range
+ * is read through its own cursor, so a parallel {@link Stream} reads ranges concurrently instead of draining a single
+ * cursor.
+ * <p>
+ * Split points are taken from a {@code $sample} of the collection's identifiers. The sample is oversampled and every
+ * n-th sorted identifier becomes a range boundary to keep ranges roughly even. The first and the last range are open
+ * ended so documents inserted after sampling are still read.
+ *
+ * @param <T> the entity type.
+ */
+class IdRangeSpliterator<T> implements Spliterator<T> {
+
+	private static final int OVERSAMPLING = 10;
+
+	private final MongoOperations operations;
+	private final Class<T> type;
+	private final List<Object> bounds;
+	private final long estimatedRangeSize;
+	private final Set<CloseableIterator<T>> cursors;
+
+	private int next;
+	private final int end;
+	private CloseableIterator<T> cursor;
+
+	private IdRangeSpliterator(MongoOperations operations, Class<T> type, List<Object> bounds, long estimatedRangeSize,
+			Set<CloseableIterator<T>> cursors, int next, int end) {
+
+		this.operations = operations;
+		this.type = type;
+		this.bounds = bounds;
+		this.estimatedRangeSize = estimatedRangeSize;
+		this.cursors = cursors;
+		this.next = next;
+		this.end = end;
+	}
+
+	/**
+	 * Creates a parallel {@link Stream} over all entities of {@code type}, split into about {@code ranges} {@code _id}
+	 * ranges. Make sure to {@link Stream#close() close} the stream after usage to release cursors of ranges that were
+	 * not read to their end.
+	 *
+	 * @param operations must not be {@literal null}.
+	 * @param type must not be {@literal null}.
+	 * @param ranges number of ranges to split the collection into, must be greater than zero.
+	 * @return
+	 */
+	static <T> Stream<T> stream(MongoOperations operations, Class<T> type, int ranges) {
+
+		Assert.notNull(operations, "MongoOperations must not be null!");
+		Assert.notNull(type, "Type must not be null!");
+		Assert.isTrue(ranges > 0, "Ranges must be greater than zero!");
+
+		String collection = operations.getCollectionName(type);
+
+		List<Object> bounds = new ArrayList<>();
+		bounds.add(null);
+		bounds.addAll(splitPoints(operations, collection, ranges));
+		bounds.add(null);
+
+		long count = operations.getCollection(collection).count();
+		int rangeCount = bounds.size() - 1;
+
+		Set<CloseableIterator<T>> cursors = ConcurrentHashMap.newKeySet();
+		IdRangeSpliterator<T> spliterator = new IdRangeSpliterator<>(operations, type, bounds,
+				Math.max(1, count / rangeCount), cursors, 0, rangeCount);
+
+		return StreamSupport.stream(spliterator, true).onClose(() -> cursors.forEach(CloseableIterator::close));
+	}
+
+	/**
+	 * Samples {@code ranges * OVERSAMPLING} identifiers and picks {@code ranges - 1} evenly spaced ones as split points.
+	 */
+	private static List<Object> splitPoints(MongoOperations operations, String collection, int ranges) {
+
+		if (ranges == 1) {
+			return Collections.emptyList();
+		}
+
+		List<Object> sample = operations.aggregate(newAggregation( //
+				sample(ranges * OVERSAMPLING), //
+				project("_id"), //
+				sort(Direction.ASC, "_id")), collection, Document.class) //
+				.getMappedResults().stream() //
+				.map(document -> document.get("_id")) //
+				.distinct() //
+				.collect(Collectors.toList());
+
+		if (sample.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		Set<Object> splitPoints = new LinkedHashSet<>();
+
+		for (int i = 1; i < ranges; i++) {
+			splitPoints.add(sample.get(i * sample.size() / ranges));
+		}
+
+		return new ArrayList<>(splitPoints);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+	 */
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+
+		while (true) {
+
+			if (cursor == null) {
+
+				if (next >= end) {
+					return false;
+				}
+
+				cursor = open(next++);
+			}
+
+			if (cursor.hasNext()) {
+				action.accept(cursor.next());
+				return true;
+			}
+
+			close();
+		}
+	}
+
+	/**
+	 * Hands off the first half of the ranges not yet read. Once a range is being read the spliterator no longer splits as
+	 * the remainder of the open cursor can't be handed off.
+	 *
+	 * @see java.util.Spliterator#trySplit()
+	 */
+	@Override
+	public Spliterator<T> trySplit() {
+
+		if (cursor != null || end - next < 2) {
+			return null;
+		}
+
+		int mid = next + (end - next) / 2;
+		IdRangeSpliterator<T> prefix = new IdRangeSpliterator<>(operations, type, bounds, estimatedRangeSize, cursors,
+				next, mid);
+		next = mid;
+
+		return prefix;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.Spliterator#estimateSize()
+	 */
+	@Override
+	public long estimateSize() {
+		return (end - next + (cursor != null ? 1 : 0)) * estimatedRangeSize;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.Spliterator#characteristics()
+	 */
+	@Override
+	public int characteristics() {
+		return ORDERED | DISTINCT | NONNULL;
+	}
+
+	private CloseableIterator<T> open(int range) {
+
+		Object lower = bounds.get(range);
+		Object upper = bounds.get(range + 1);
+
+		Query query = new Query();
+
+		if (lower != null || upper != null) {
+
+			Criteria criteria = Criteria.where("_id");
+			query.addCriteria(lower == null ? criteria.lt(upper) : upper == null ? criteria.gte(lower) //
+					: criteria.gte(lower).lt(upper));
+		}
+
+		query.with(Sort.by(Direction.ASC, "_id"));
+
+		CloseableIterator<T> cursor = operations.stream(query, type);
+		cursors.add(cursor);
+
+		return cursor;
+	}
+
+	private void close() {
+
+		cursor.close();
+		cursors.remove(cursor);
+		cursor = null;
+	}
+}
@@ -26,7 +26,7 @@ import org.springframework.data.repository.CrudRepository;
  *
  * @author Thomas Darimont
  */
-public interface PersonRepository extends CrudRepository<Person, String> {
+public interface PersonRepository extends CrudRepository<Person, String>, PersonRepositoryCustom {
 
 	List<Person> findAll();
 
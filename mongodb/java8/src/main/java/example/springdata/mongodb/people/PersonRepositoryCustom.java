@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.people;
+
+import java.util.stream.Stream;
+
+/**
+ * Custom repository methods for {@link Person}.
+ */
+interface PersonRepositoryCustom {
+
+	/**
+	 * Streams all {@link Person}s through a parallel {@link Stream} that splits the collection into {@code _id} ranges,
+	 * each read through its own cursor.
+	 *
+	 * @return a parallel {@link Stream} backed by cursors. Make sure to {@link Stream#close() close} the stream after
+	 *         usage.
+	 */
+	Stream<Person> findAllInParallel();
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.people;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+
+@RequiredArgsConstructor
+class PersonRepositoryImpl implements PersonRepositoryCustom {
+
+	private static final int RANGES_PER_THREAD = 4;
+
+	private final MongoOperations operations;
+
+	/**
+	 * Splits the collection into {@value #RANGES_PER_THREAD} ranges per thread of the common {@link ForkJoinPool} so that
+	 * threads finishing early can pick up remaining ranges.
+	 *
+	 * @see example.springdata.mongodb.people.PersonRepositoryCustom#findAllInParallel()
+	 */
+	@Override
+	public Stream<Person> findAllInParallel() {
+		return IdRangeSpliterator.stream(operations, Person.class,
+				ForkJoinPool.getCommonPoolParallelism() * RANGES_PER_THREAD);
+	}
+}
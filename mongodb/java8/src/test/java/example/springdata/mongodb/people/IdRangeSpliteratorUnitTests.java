@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.people;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.util.CloseableIterator;
+
+import com.mongodb.client.MongoCollection;
+
+/**
+ * Unit tests for {@link IdRangeSpliterator} backed by an in-memory collection of integer identifiers.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class IdRangeSpliteratorUnitTests {
+
+	static final int COUNT = 1000;
+
+	@Mock MongoOperations operations;
+	@Mock MongoCollection<Document> collection;
+
+	List<Cursor> cursors = new CopyOnWriteArrayList<>();
+	int documents = COUNT;
+
+	@Before
+	public void setUp() {
+
+		when(operations.getCollectionName(Person.class)).thenReturn("person");
+		when(operations.getCollection("person")).thenReturn(collection);
+		when(collection.count()).thenAnswer(invocation -> (long) documents);
+		when(operations.stream(any(Query.class), eq(Person.class))).thenAnswer(invocation -> {
+
+			Cursor cursor = new Cursor(invocation.getArgument(0));
+			cursors.add(cursor);
+			return cursor;
+		});
+	}
+
+	@Test
+	public void readsEveryDocumentExactlyOnceThroughOneCursorPerRange() {
+
+		sample(IntStream.range(0, COUNT).filter(id -> id % 7 == 0));
+
+		Set<String> threads = ConcurrentHashMap.newKeySet();
+
+		try (Stream<Person> people = IdRangeSpliterator.stream(operations, Person.class, 16)) {
+
+			List<String> ids = people.peek(person -> threads.add(Thread.currentThread().getName())) //
+					.map(Person::getId) //
+					.collect(Collectors.toList());
+
+			assertThat(ids).hasSize(COUNT).doesNotHaveDuplicates();
+			assertThat(ids).isSortedAccordingTo((left, right) -> Integer.valueOf(left).compareTo(Integer.valueOf(right)));
+		}
+
+		assertThat(cursors).hasSize(16).allMatch(cursor -> cursor.closed);
+
+		if (Runtime.getRuntime().availableProcessors() > 1) {
+			assertThat(threads.size()).isGreaterThan(1);
+		}
+	}
+
+	@Test
+	public void readsEmptyCollectionThroughSingleRange() {
+
+		documents = 0;
+		sample(IntStream.empty());
+
+		try (Stream<Person> people = IdRangeSpliterator.stream(operations, Person.class, 16)) {
+			assertThat(people.count()).isZero();
+		}
+
+		assertThat(cursors).hasSize(1);
+	}
+
+	@Test
+	public void closesCursorsOfUnfinishedRangesOnClose() {
+
+		sample(IntStream.range(0, COUNT));
+
+		try (Stream<Person> people = IdRangeSpliterator.stream(operations, Person.class, 16)) {
+			assertThat(people.anyMatch(person -> person.getId().equals("500"))).isTrue();
+		}
+
+		assertThat(cursors).isNotEmpty().allMatch(cursor -> cursor.closed);
+	}
+
+	private void sample(IntStream ids) {
+
+		List<Document> sample = ids.mapToObj(id -> new Document("_id", id)).collect(Collectors.toList());
+
+		when(operations.aggregate(any(Aggregation.class), eq("person"), eq(Document.class)))
+				.thenReturn(new AggregationResults<>(sample, new Document()));
+	}
+
+	/**
+	 * Cursor over the identifiers matching the {@code _id} range of a {@link Query}.
+	 */
+	class Cursor implements CloseableIterator<Person> {
+
+		final Iterator<Person> people;
+		volatile boolean closed;
+
+		Cursor(Query query) {
+
+			Document range = query.getQueryObject().get("_id", Document.class);
+			int lower = range == null ? 0 : range.get("$gte", 0);
+			int upper = range == null ? documents : range.get("$lt", documents);
+
+			this.people = IntStream.range(lower, upper).mapToObj(id -> {
+
+				Person person = new Person("firstname", "lastname");
+				person.setId(String.valueOf(id));
+				return person;
+			}).collect(Collectors.toList()).iterator();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return people.hasNext();
+		}
+
+		@Override
+		public Person next() {
+			return people.next();
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+}
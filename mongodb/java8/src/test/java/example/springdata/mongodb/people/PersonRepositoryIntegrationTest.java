@@ -15,6 +15,10 @@
  */
 package example.springdata.mongodb.people;
 
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.junit.Before;
@@ -70,4 +74,21 @@ public class PersonRepositoryIntegrationTest {
 			result.forEach(System.out::println);
 		}
 	}
+
+	/**
+	 * The parallel {@link Stream} splits the collection into {@code _id} ranges that are read through individual cursors.
+	 */
+	@Test
+	public void shouldReadAllDocumentsWithParallelStream() {
+
+		repository.saveAll(IntStream.range(0, 1000) //
+				.mapToObj(i -> new Person("Person " + i, "Parallel")) //
+				.collect(Collectors.toList()));
+
+		try (Stream<Person> result = repository.findAllInParallel()) {
+
+			assertThat(result.isParallel()).isTrue();
+			assertThat(result.map(Person::getId).distinct().count()).isEqualTo(repository.count());
+		}
+	}
 }
@@ -15,10 +15,41 @@
  */
 package example.springdata.mongodb.querybyexample;
 
+import java.time.Duration;
+
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Collation.ComparisonLevel;
 
 /**
  * @author Mark Paluch
  */
 @SpringBootApplication
-public class ApplicationConfiguration {}
+public class ApplicationConfiguration {
+
+	/**
+	 * Case-insensitive collation used by the {@code lastname} index. A strength of {@code secondary} compares base
+	 * characters and accents but ignores case.
+	 */
+	static final Collation CASE_INSENSITIVE = Collation.of("en").strength(ComparisonLevel.secondary());
+
+	/**
+	 * {@link CollationIndexMongoTemplate} turning case-insensitive {@code lastname} matches into lookups on a collation
+	 * index.
+	 */
+	@Bean
+	CollationIndexMongoTemplate mongoTemplate(MongoDbFactory mongoDbFactory, MongoConverter mongoConverter) {
+
+		CollationIndexMongoTemplate template = new CollationIndexMongoTemplate(mongoDbFactory, mongoConverter,
+				Duration.ofSeconds(30));
+
+		template.indexOps(Person.class).ensureIndex(new Index("lastname", Direction.ASC).collation(CASE_INSENSITIVE));
+
+		return template;
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.querybyexample;
+
+import lombok.Value;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.bson.BsonRegularExpression;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.lang.Nullable;
+
+/**
+ * Rewrites case-insensitive regular expressions matching an entire literal value, as created for
+ * {@link org.springframework.data.domain.ExampleMatcher.StringMatcher#EXACT exact} ignore case Query by Example
+ * matchers and derived {@code IgnoreCase} finders, into plain equality matches evaluated with a case-insensitive
+ * collation. Unlike the regular expressions, those can use an index defined with the same collation.
+ * <p>
+ * A filter is only rewritten if a collation index leads with the matched field that
+ * {@link #isCaseInsensitive(Document) only ignores case}. As the collation applies to all string comparisons of a query, filters comparing other fields against strings
+ * are left untouched. Regular expressions are not affected by collations and may remain.
+ */
+class CaseInsensitiveMatchRewriter {
+
+	// ^\Q...\E$ for exact matches, the unanchored \Q...\E of the Query by Example DEFAULT matcher matches substrings
+	private static final Pattern QUOTED_LITERAL = Pattern.compile("^\\^\\\\Q(.*)\\\\E\\$$", Pattern.DOTALL);
+	private static final Pattern ANCHORED_LITERAL = Pattern.compile("^\\^([^\\\\.\\[\\]{}()*+?^$|]*)\\$$");
+
+	private final String typeKey;
+
+	/**
+	 * @param typeKey name of the field storing type information, its values are not compared as user data.
+	 */
+	CaseInsensitiveMatchRewriter(String typeKey) {
+		this.typeKey = typeKey;
+	}
+
+	/**
+	 * Rewrites the given filter to use the collation of one of the given indexes.
+	 *
+	 * @param filter the mapped query.
+	 * @param collationIndexes case-insensitive collations by the leading field of their index.
+	 * @return the rewritten filter and the collation to apply or {@link Optional#empty()} if the filter can't be
+	 *         rewritten.
+	 */
+	Optional<Rewrite> rewrite(Document filter, Map<String, Collation> collationIndexes) {
+
+		if (collationIndexes.isEmpty()) {
+			return Optional.empty();
+		}
+
+		Collation collation = null;
+		Document rewritten = new Document();
+
+		for (Entry<String, Object> entry : filter.entrySet()) {
+
+			String literal = caseInsensitiveLiteral(entry.getValue());
+			Collation indexCollation = collationIndexes.get(entry.getKey());
+
+			if (literal != null && indexCollation != null
+					&& (collation == null || collation.toDocument().equals(indexCollation.toDocument()))) {
+
+				collation = indexCollation;
+				rewritten.put(entry.getKey(), literal);
+				continue;
+			}
+
+			if (!entry.getKey().equals(typeKey) && comparesStrings(entry.getValue())) {
+				return Optional.empty();
+			}
+
+			rewritten.put(entry.getKey(), entry.getValue());
+		}
+
+		return collation == null ? Optional.empty() : Optional.of(new Rewrite(rewritten, collation));
+	}
+
+	/**
+	 * @return the literal value a case-insensitive regular expression matches entirely or {@literal null} if the value
+	 *         is no such expression.
+	 */
+	@Nullable
+	private static String caseInsensitiveLiteral(Object value) {
+
+		if (value instanceof Pattern) {
+
+			Pattern pattern = (Pattern) value;
+			return pattern.flags() == Pattern.CASE_INSENSITIVE ? literal(pattern.pattern()) : null;
+		}
+
+		if (value instanceof BsonRegularExpression) {
+
+			BsonRegularExpression expression = (BsonRegularExpression) value;
+			return "i".equals(expression.getOptions()) ? literal(expression.getPattern()) : null;
+		}
+
+		if (value instanceof Document) {
+
+			Document document = (Document) value;
+
+			if (document.size() == 2 && document.get("$regex") instanceof String && "i".equals(document.get("$options"))) {
+				return literal(document.getString("$regex"));
+			}
+		}
+
+		return null;
+	}
+
+	@Nullable
+	private static String literal(String regex) {
+
+		Matcher quoted = QUOTED_LITERAL.matcher(regex);
+
+		if (quoted.matches() && !quoted.group(1).contains("\\E")) {
+			return quoted.group(1);
+		}
+
+		Matcher anchored = ANCHORED_LITERAL.matcher(regex);
+
+		return anchored.matches() ? anchored.group(1) : null;
+	}
+
+	/**
+	 * Whether the given collation matches strings the way a case-insensitive regular expression does. A strength of
+	 * {@code 2} ignores case only, while {@code 1} also ignores accents. Case level comparison, ignoring punctuation and
+	 * numeric ordering change equality as well.
+	 *
+	 * @param collation the collation document of an index.
+	 * @return {@literal true} if matches with the collation equal case-insensitive regular expression matches.
+	 */
+	static boolean isCaseInsensitive(Document collation) {
+
+		return collation.get("strength") instanceof Number && ((Number) collation.get("strength")).intValue() == 2
+				&& !Boolean.TRUE.equals(collation.get("caseLevel")) && !"shifted".equals(collation.get("alternate"))
+				&& !Boolean.TRUE.equals(collation.get("numericOrdering"));
+	}
+
+	/**
+	 * @return whether the given filter value compares strings, which a collation would change.
+	 */
+	private static boolean comparesStrings(@Nullable Object value) {
+
+		if (value instanceof String) {
+			return true;
+		}
+
+		if (value instanceof Document) {
+
+			Document document = (Document) value;
+			return !document.containsKey("$regex") && document.values().stream()
+					.anyMatch(CaseInsensitiveMatchRewriter::comparesStrings);
+		}
+
+		if (value instanceof Collection) {
+			return ((Collection<?>) value).stream().anyMatch(CaseInsensitiveMatchRewriter::comparesStrings);
+		}
+
+		return false;
+	}
+
+	/**
+	 * A rewritten filter along with the collation it needs to be evaluated with.
+	 */
+	@Value
+	static class Rewrite {
+
+		Document filter;
+		Collation collation;
+	}
+}
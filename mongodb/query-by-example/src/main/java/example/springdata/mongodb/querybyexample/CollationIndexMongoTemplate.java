@@ -0,0 +1,253 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.querybyexample;
+
+import example.springdata.mongodb.querybyexample.CaseInsensitiveMatchRewriter.Rewrite;
+import lombok.Value;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.DefaultMongoTypeMapper;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.CountOptions;
+
+/**
+ * {@link MongoTemplate} running case-insensitive exact matches against a collation index where possible. Filters
+ * handed to {@link MongoCollection#find(Bson) find} and {@link MongoCollection#count(Bson) count} are rewritten by
+ * {@link CaseInsensitiveMatchRewriter} using the case-insensitive collation indexes of the collection. Those are read
+ * through {@code listIndexes} and cached for the configured time to live, so that newly created indexes get picked up
+ * without a restart.
+ * <p />
+ * The collation of a rewritten {@code find} applies to sorting as well. Once a sort or another collation is applied,
+ * the original filter is restored so that results are ordered the same way whether or not a collation index exists.
+ */
+class CollationIndexMongoTemplate extends MongoTemplate {
+
+	private final CaseInsensitiveMatchRewriter rewriter = new CaseInsensitiveMatchRewriter(
+			DefaultMongoTypeMapper.DEFAULT_TYPE_KEY);
+	private final Map<MongoNamespace, CollationIndexes> indexes = new ConcurrentHashMap<>();
+	private final Duration indexCacheTimeToLive;
+
+	CollationIndexMongoTemplate(MongoDbFactory mongoDbFactory, MongoConverter mongoConverter,
+			Duration indexCacheTimeToLive) {
+
+		super(mongoDbFactory, mongoConverter);
+
+		Assert.notNull(indexCacheTimeToLive, "Index cache time to live must not be null!");
+
+		this.indexCacheTimeToLive = indexCacheTimeToLive;
+	}
+
+	/**
+	 * Discards the cached collation indexes, e.g. after creating or dropping indexes.
+	 */
+	void evictIndexCache() {
+		indexes.clear();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.data.mongodb.core.MongoTemplate#prepareCollection(com.mongodb.client.MongoCollection)
+	 */
+	@Override
+	protected MongoCollection<Document> prepareCollection(MongoCollection<Document> collection) {
+		return rewriting(super.prepareCollection(collection));
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> MongoCollection<T> rewriting(MongoCollection<T> collection) {
+
+		return (MongoCollection<T>) Proxy.newProxyInstance(CollationIndexMongoTemplate.class.getClassLoader(),
+				new Class<?>[] { MongoCollection.class }, (proxy, method, args) -> {
+
+					Optional<Rewrite> rewrite = isRewritable(method, args)
+							? rewriter.rewrite((Document) args[0], collationIndexes(collection))
+							: Optional.empty();
+
+					if (rewrite.isPresent() && method.getName().equals("count")) {
+						return collection.count(rewrite.get().getFilter(),
+								countOptions(args.length > 1 ? (CountOptions) args[1] : null, rewrite.get().getCollation()));
+					}
+
+					Object[] arguments = args;
+
+					if (rewrite.isPresent()) {
+
+						arguments = Arrays.copyOf(args, args.length);
+						arguments[0] = rewrite.get().getFilter();
+					}
+
+					Object result;
+
+					try {
+						result = method.invoke(collection, arguments);
+					} catch (InvocationTargetException e) {
+						throw e.getTargetException();
+					}
+
+					if (rewrite.isPresent() && result instanceof FindIterable) {
+						return collated((FindIterable<?>) result, rewrite.get(), (Document) args[0]);
+					}
+
+					if (result instanceof MongoCollection) {
+						return rewriting((MongoCollection<?>) result);
+					}
+
+					return result;
+				});
+	}
+
+	/**
+	 * Applies the collation of the given {@link Rewrite} and reverts to the {@code original} filter without collation
+	 * once the query is sorted or a different collation is set.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> FindIterable<T> collated(FindIterable<T> iterable, Rewrite rewrite, Document original) {
+
+		iterable.collation(rewrite.getCollation().toMongoCollation());
+
+		return (FindIterable<T>) Proxy.newProxyInstance(CollationIndexMongoTemplate.class.getClassLoader(),
+				new Class<?>[] { FindIterable.class }, (proxy, method, args) -> {
+
+					if (revertsRewrite(method, args)) {
+						iterable.filter(original).collation(null);
+					}
+
+					Object result;
+
+					try {
+						result = method.invoke(iterable, args);
+					} catch (InvocationTargetException e) {
+						throw e.getTargetException();
+					}
+
+					return result == iterable ? proxy : result;
+				});
+	}
+
+	/**
+	 * Returns whether the given invocation is a non-empty {@code sort} or sets a collation.
+	 */
+	private static boolean revertsRewrite(Method method, Object[] args) {
+
+		if (args == null || args.length != 1 || args[0] == null) {
+			return false;
+		}
+
+		if (method.getName().equals("sort")) {
+			return !(args[0] instanceof Document) || !((Document) args[0]).isEmpty();
+		}
+
+		return method.getName().equals("collation");
+	}
+
+	/**
+	 * Returns whether the given invocation is a {@code find} or {@code count} with a filter. Counts already using a
+	 * collation are left alone.
+	 */
+	private static boolean isRewritable(Method method, Object[] args) {
+
+		Class<?>[] parameterTypes = method.getParameterTypes();
+
+		if (parameterTypes.length == 0 || parameterTypes[0] != Bson.class || !(args[0] instanceof Document)) {
+			return false;
+		}
+
+		if (method.getName().equals("count")) {
+			return args.length == 1 || args[1] instanceof CountOptions && ((CountOptions) args[1]).getCollation() == null;
+		}
+
+		return method.getName().equals("find");
+	}
+
+	private static CountOptions countOptions(@Nullable CountOptions options, Collation collation) {
+
+		// copy the options as the caller might reuse them
+		CountOptions rewritten = new CountOptions().collation(collation.toMongoCollation());
+
+		if (options != null) {
+			rewritten.limit(options.getLimit()).skip(options.getSkip()).hint(options.getHint())
+					.hintString(options.getHintString())
+					.maxTime(options.getMaxTime(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+		}
+
+		return rewritten;
+	}
+
+	private Map<String, Collation> collationIndexes(MongoCollection<?> collection) {
+
+		long now = System.nanoTime();
+
+		return indexes.compute(collection.getNamespace(), (namespace, cached) -> cached != null
+				&& now - cached.getReadAt() < indexCacheTimeToLive.toNanos() ? cached
+						: new CollationIndexes(now, readCollationIndexes(collection))).getCollations();
+	}
+
+	/**
+	 * Reads the collations of case-insensitive indexes by their leading field. Partial indexes only cover some documents
+	 * and are skipped.
+	 */
+	private static Map<String, Collation> readCollationIndexes(MongoCollection<?> collection) {
+
+		Map<String, Collation> collations = new HashMap<>();
+
+		for (Document index : collection.listIndexes()) {
+
+			IndexInfo info = IndexInfo.indexInfoOf(index);
+
+			if (info.getIndexFields().isEmpty() || StringUtils.hasText(info.getPartialFilterExpression())) {
+				continue;
+			}
+
+			info.getCollation() //
+					.filter(CaseInsensitiveMatchRewriter::isCaseInsensitive) //
+					.ifPresent(collation -> collations.putIfAbsent(info.getIndexFields().get(0).getKey(),
+							Collation.from(collation)));
+		}
+
+		return Collections.unmodifiableMap(collations);
+	}
+
+	@Value
+	private static class CollationIndexes {
+
+		long readAt;
+		Map<String, Collation> collations;
+	}
+}
@@ -15,6 +15,8 @@
  */
 package example.springdata.mongodb.querybyexample;
 
+import java.util.List;
+
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.QueryByExampleExecutor;
 
@@ -24,4 +26,13 @@ import org.springframework.data.repository.query.QueryByExampleExecutor;
  *
  * @author Mark Paluch
  */
-public interface UserRepository extends CrudRepository<Person, Long>, QueryByExampleExecutor<Person> {}
+public interface UserRepository extends CrudRepository<Person, Long>, QueryByExampleExecutor<Person> {
+
+	/**
+	 * Derived case-insensitive query. Runs as an equality match on the {@code lastname} collation index.
+	 *
+	 * @param lastname
+	 * @return
+	 */
+	List<Person> findByLastnameIgnoreCase(String lastname);
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.querybyexample;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.data.domain.ExampleMatcher.*;
+import static org.springframework.data.domain.ExampleMatcher.GenericPropertyMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Example;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Benchmark comparing case-insensitive exact matches on a large {@code contacts} collection run as regular expressions
+ * through a plain {@link MongoTemplate} against the same queries run on the {@code lastname} collation index through
+ * {@link CollationIndexMongoTemplate}. Reports latency percentiles on the console.
+ * <p />
+ * Skipped unless run with {@code -Dbenchmark=true}. Use {@code -Dbenchmark.size=1000000} and
+ * {@code -Dbenchmark.iterations=50} to tune the run.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CaseInsensitiveMatchBenchmark {
+
+	static final int LASTNAMES = 1000;
+
+	@Autowired CollationIndexMongoTemplate collationTemplate;
+	@Autowired MongoDbFactory mongoDbFactory;
+	@Autowired MongoConverter mongoConverter;
+	@Autowired UserRepository repository;
+
+	MongoTemplate regexTemplate;
+	int iterations;
+
+	@Before
+	public void setUp() {
+
+		Assume.assumeTrue("Benchmark disabled, run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+
+		iterations = Integer.getInteger("benchmark.iterations", 20);
+		regexTemplate = new MongoTemplate(mongoDbFactory, mongoConverter);
+
+		populate(Integer.getInteger("benchmark.size", 100_000));
+	}
+
+	@After
+	public void tearDown() {
+
+		if (regexTemplate != null) {
+			repository.deleteAll();
+		}
+	}
+
+	@Test
+	public void benchmarkIgnoreCaseMatches() {
+
+		Random random = new Random(0);
+		Supplier<String> lastname = () -> lastname(random.nextInt(LASTNAMES)).toUpperCase();
+
+		Supplier<Query> example = () -> new Query(new Criteria().alike(Example.of(new Person(null, lastname.get(), null),
+				matching().withIgnorePaths("age").withMatcher("lastname", exact().ignoreCase()))));
+		Supplier<Query> derived = () -> new Query(
+				Criteria.where("lastname").regex("^" + lastname.get() + "$", "i"));
+
+		report("example find", example, query -> regexTemplate.find(query, Person.class).size(),
+				query -> collationTemplate.find(query, Person.class).size());
+		report("example count", example, query -> regexTemplate.count(query, Person.class),
+				query -> collationTemplate.count(query, Person.class));
+		report("derived find", derived, query -> regexTemplate.find(query, Person.class).size(),
+				query -> collationTemplate.find(query, Person.class).size());
+	}
+
+	private void report(String name, Supplier<Query> queries, Execution regex, Execution collation) {
+
+		Query probe = queries.get();
+		assertThat(collation.execute(probe)).isEqualTo(regex.execute(probe));
+
+		System.out.println(String.format("%-14s regex     %s", name, measure(queries, regex)));
+		System.out.println(String.format("%-14s collation %s", name, measure(queries, collation)));
+	}
+
+	private String measure(Supplier<Query> queries, Execution execution) {
+
+		for (int i = 0; i < Math.max(1, iterations / 4); i++) {
+			execution.execute(queries.get());
+		}
+
+		long[] nanos = new long[iterations];
+
+		for (int i = 0; i < iterations; i++) {
+
+			Query query = queries.get();
+
+			long start = System.nanoTime();
+			execution.execute(query);
+			nanos[i] = System.nanoTime() - start;
+		}
+
+		Arrays.sort(nanos);
+
+		return String.format("p50=%.2fms p90=%.2fms max=%.2fms", millis(percentile(nanos, 0.5)),
+				millis(percentile(nanos, 0.9)), millis(nanos[nanos.length - 1]));
+	}
+
+	private void populate(int size) {
+
+		repository.deleteAll();
+
+		List<Person> batch = new ArrayList<>();
+
+		for (int i = 0; i < size; i++) {
+
+			batch.add(new Person("Firstname" + i, lastname(i % LASTNAMES), 18 + i % 60));
+
+			if (batch.size() == 1000) {
+				collationTemplate.insert(batch, Person.class);
+				batch = new ArrayList<>();
+			}
+		}
+
+		if (!batch.isEmpty()) {
+			collationTemplate.insert(batch, Person.class);
+		}
+	}
+
+	private static String lastname(int i) {
+		return "Lastname" + i;
+	}
+
+	private static long percentile(long[] sorted, double percentile) {
+		return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+	}
+
+	private static double millis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	interface Execution {
+		long execute(Query query);
+	}
+}
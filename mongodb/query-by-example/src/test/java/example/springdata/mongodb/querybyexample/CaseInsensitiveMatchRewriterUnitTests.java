@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.querybyexample;
+
+import static org.assertj.core.api.Assertions.*;
+
+import example.springdata.mongodb.querybyexample.CaseInsensitiveMatchRewriter.Rewrite;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.bson.Document;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.query.Collation;
+import org.springframework.data.mongodb.core.query.Collation.ComparisonLevel;
+
+/**
+ * Unit tests for {@link CaseInsensitiveMatchRewriter}.
+ */
+public class CaseInsensitiveMatchRewriterUnitTests {
+
+	static final Collation COLLATION = Collation.of("en").strength(ComparisonLevel.secondary());
+	static final Map<String, Collation> INDEXES = Collections.singletonMap("lastname", COLLATION);
+
+	CaseInsensitiveMatchRewriter rewriter = new CaseInsensitiveMatchRewriter("_class");
+
+	@Test
+	public void rewritesQueryByExampleIgnoreCaseMatch() {
+
+		Document filter = new Document("lastname", new Document("$regex", "^\\QWhite\\E$").append("$options", "i"))
+				.append("age", 50) //
+				.append("_class", new Document("$in", Collections.singletonList(Person.class.getName())));
+
+		Optional<Rewrite> rewrite = rewriter.rewrite(filter, INDEXES);
+
+		assertThat(rewrite).isPresent();
+		assertThat(rewrite.get().getFilter()).containsEntry("lastname", "White").containsEntry("age", 50)
+				.containsKey("_class");
+		assertThat(rewrite.get().getCollation().toDocument()).isEqualTo(COLLATION.toDocument());
+	}
+
+	@Test
+	public void rewritesDerivedIgnoreCaseMatch() {
+
+		Document filter = new Document("lastname", Pattern.compile("^White$", Pattern.CASE_INSENSITIVE));
+
+		assertThat(rewriter.rewrite(filter, INDEXES).map(Rewrite::getFilter))
+				.contains(new Document("lastname", "White"));
+	}
+
+	@Test
+	public void keepsQueryByExampleDefaultMatcher() {
+
+		// DEFAULT renders an unanchored regex, matching "White" as well as "Whitesides"
+		Document filter = new Document("lastname", new Document("$regex", "\\QWhite\\E").append("$options", "i"));
+
+		assertThat(rewriter.rewrite(filter, INDEXES)).isEmpty();
+	}
+
+	@Test
+	public void onlyConsidersCollationsIgnoringCase() {
+
+		assertThat(CaseInsensitiveMatchRewriter.isCaseInsensitive(COLLATION.toDocument())).isTrue();
+		assertThat(CaseInsensitiveMatchRewriter
+				.isCaseInsensitive(Collation.of("en").strength(ComparisonLevel.primary()).toDocument())).isFalse();
+		assertThat(CaseInsensitiveMatchRewriter
+				.isCaseInsensitive(Collation.of("en").strength(ComparisonLevel.tertiary()).toDocument())).isFalse();
+		assertThat(CaseInsensitiveMatchRewriter
+				.isCaseInsensitive(Collation.of("en").strength(ComparisonLevel.secondary()).numericOrderingEnabled()
+						.toDocument())).isFalse();
+	}
+
+	@Test
+	public void keepsPartialMatches() {
+
+		assertThat(rewriter.rewrite(
+				new Document("lastname", new Document("$regex", "^\\QWh\\E").append("$options", "i")), INDEXES)).isEmpty();
+		assertThat(rewriter.rewrite(
+				new Document("lastname", new Document("$regex", "\\Qite\\E$").append("$options", "i")), INDEXES)).isEmpty();
+		assertThat(rewriter.rewrite(new Document("lastname", Pattern.compile("^Wh.*$", Pattern.CASE_INSENSITIVE)),
+				INDEXES)).isEmpty();
+	}
+
+	@Test
+	public void keepsCaseSensitiveAndMultilineMatches() {
+
+		assertThat(rewriter.rewrite(new Document("lastname", Pattern.compile("^White$")), INDEXES)).isEmpty();
+		assertThat(rewriter.rewrite(
+				new Document("lastname", Pattern.compile("^White$", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE)), INDEXES))
+						.isEmpty();
+	}
+
+	@Test
+	public void keepsMatchesOnFieldsWithoutCollationIndex() {
+
+		Document filter = new Document("firstname", Pattern.compile("^Walter$", Pattern.CASE_INSENSITIVE));
+
+		assertThat(rewriter.rewrite(filter, INDEXES)).isEmpty();
+		assertThat(rewriter.rewrite(filter, Collections.emptyMap())).isEmpty();
+	}
+
+	@Test
+	public void keepsFiltersComparingOtherStrings() {
+
+		Pattern lastname = Pattern.compile("^White$", Pattern.CASE_INSENSITIVE);
+
+		assertThat(rewriter.rewrite(new Document("lastname", lastname).append("firstname", "Walter"), INDEXES)).isEmpty();
+		assertThat(rewriter.rewrite(new Document("lastname", lastname).append("firstname",
+				new Document("$in", Arrays.asList("Walter", "Skyler"))), INDEXES)).isEmpty();
+	}
+
+	@Test
+	public void keepsCaseInsensitiveMatchesOnOtherFields() {
+
+		Document filter = new Document("lastname", Pattern.compile("^White$", Pattern.CASE_INSENSITIVE))
+				.append("firstname", Pattern.compile("^walter$", Pattern.CASE_INSENSITIVE));
+
+		Optional<Rewrite> rewrite = rewriter.rewrite(filter, INDEXES);
+
+		assertThat(rewrite).isPresent();
+		assertThat(rewrite.get().getFilter().get("lastname")).isEqualTo("White");
+		assertThat(rewrite.get().getFilter().get("firstname")).isInstanceOf(Pattern.class);
+	}
+}
@@ -19,8 +19,12 @@ import static org.assertj.core.api.Assertions.*;
 import static org.springframework.data.domain.ExampleMatcher.*;
 import static org.springframework.data.domain.ExampleMatcher.GenericPropertyMatchers.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Optional;
 
+import org.bson.Document;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -28,6 +32,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.test.context.junit4.SpringRunner;
 
 /**
@@ -43,6 +49,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 public class UserRepositoryIntegrationTests {
 
 	@Autowired UserRepository repository;
+	@Autowired MongoOperations operations;
 
 	Person skyler, walter, flynn, marie, hank;
 
@@ -144,4 +151,70 @@ public class UserRepositoryIntegrationTests {
 
 		assertThat(repository.findAll(example)).containsExactlyInAnyOrder(walter);
 	}
+
+	@Test
+	public void exactMatchIgnoreCaseUsesCollationIndex() {
+
+		Example<Person> example = Example.of(new Person(null, "wHITE", null), matching(). //
+				withIgnorePaths("age"). //
+				withMatcher("lastname", exact().ignoreCase()));
+
+		long accesses = getLastnameIndexAccesses();
+
+		assertThat(repository.findAll(example)).containsExactlyInAnyOrder(skyler, walter, flynn);
+		assertThat(repository.count(example)).isEqualTo(3L);
+		assertThat(getLastnameIndexAccesses()).isEqualTo(accesses + 2);
+	}
+
+	@Test
+	public void derivedIgnoreCaseQueryUsesCollationIndex() {
+
+		long accesses = getLastnameIndexAccesses();
+
+		assertThat(repository.findByLastnameIgnoreCase("schRADER")).containsExactlyInAnyOrder(marie, hank);
+		assertThat(getLastnameIndexAccesses()).isEqualTo(accesses + 1);
+	}
+
+	@Test
+	public void partialMatchIgnoreCaseDoesNotUseCollationIndex() {
+
+		Example<Person> example = Example.of(new Person(null, "wHIT", null), matching(). //
+				withIgnorePaths("age"). //
+				withMatcher("lastname", ignoreCase()));
+
+		long accesses = getLastnameIndexAccesses();
+
+		assertThat(repository.findAll(example)).containsExactlyInAnyOrder(skyler, walter, flynn);
+		assertThat(getLastnameIndexAccesses()).isEqualTo(accesses);
+	}
+
+	@Test
+	public void sortedExactMatchIgnoreCaseKeepsBinaryOrder() {
+
+		Person adam = repository.save(new Person("adam", "White", 3));
+
+		Example<Person> example = Example.of(new Person(null, "wHITE", null), matching(). //
+				withIgnorePaths("age"). //
+				withMatcher("lastname", exact().ignoreCase()));
+
+		long accesses = getLastnameIndexAccesses();
+
+		// ordered the same as without a collation index, lower case after upper case
+		assertThat(repository.findAll(example, Sort.by("firstname"))).containsExactly(skyler, walter, flynn, adam);
+		assertThat(getLastnameIndexAccesses()).isEqualTo(accesses);
+	}
+
+	/**
+	 * @return the number of operations that used the {@code lastname} collation index, as reported by
+	 *         {@literal $indexStats}.
+	 */
+	private long getLastnameIndexAccesses() {
+
+		return operations.getCollection(operations.getCollectionName(Person.class)) //
+				.aggregate(Collections.singletonList(new Document("$indexStats", new Document()))) //
+				.into(new ArrayList<>()).stream() //
+				.filter(index -> ((Document) index.get("key")).containsKey("lastname")) //
+				.mapToLong(index -> ((Number) ((Document) index.get("accesses")).get("ops")).longValue()) //
+				.sum();
+	}
 }
@@ -15,8 +15,11 @@
  */
 package example.springdata.mongodb.people;
 
+import example.springdata.mongodb.people.TailableCursorHub.OverflowPolicy;
 import lombok.RequiredArgsConstructor;
 
+import java.time.Duration;
+
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
@@ -51,6 +54,16 @@ class ApplicationConfiguration extends AbstractReactiveMongoConfiguration {
 		return new LoggingEventListener();
 	}
 
+	@Bean
+	public TailableCursorHub<Person> personCursorHub() {
+		return new TailableCursorHub<>(256, OverflowPolicy.LATEST);
+	}
+
+	@Bean
+	public BatchingPersonLookup batchingPersonLookup(ReactivePersonRepository repository) {
+		return new BatchingPersonLookup(repository, 100, Duration.ofMillis(5));
+	}
+
 	@Override
 	@Bean
 	@DependsOn("embeddedMongoServer")
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.people;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Batched variants of the {@link ReactivePersonRepository} finders that take a {@link Mono} argument. Instead of
+ * running one query per emitted argument, arguments arriving within a short window are resolved with a single
+ * {@code $in} query and the results are routed back to each caller.
+ */
+public class BatchingPersonLookup implements DisposableBean {
+
+	private final BatchingLoader<String, Person> byLastname;
+	private final BatchingLoader<Tuple2<String, String>, Person> byFirstnameAndLastname;
+
+	/**
+	 * Creates a new {@link BatchingPersonLookup}.
+	 *
+	 * @param repository must not be {@literal null}.
+	 * @param maxBatchSize maximum number of arguments resolved by one query.
+	 * @param maxWait maximum time an argument waits for its batch to fill up.
+	 */
+	public BatchingPersonLookup(ReactivePersonRepository repository, int maxBatchSize, Duration maxWait) {
+
+		this.byLastname = new BatchingLoader<>(repository::findByLastnameIn, Person::getLastname, maxBatchSize, maxWait);
+		this.byFirstnameAndLastname = new BatchingLoader<>(names -> {
+
+			// Matches the cross product of both name sets, entities outside the requested pairs are not routed anywhere.
+			Set<String> firstnames = names.stream().map(Tuple2::getT1).collect(Collectors.toSet());
+			Set<String> lastnames = names.stream().map(Tuple2::getT2).collect(Collectors.toSet());
+
+			return repository.findByFirstnameInAndLastnameIn(firstnames, lastnames);
+		}, person -> Tuples.of(person.getFirstname(), person.getLastname()), maxBatchSize, maxWait);
+	}
+
+	/**
+	 * Batched variant of {@link ReactivePersonRepository#findByLastname(Mono)}.
+	 *
+	 * @param lastname
+	 * @return
+	 */
+	public Flux<Person> findByLastname(Mono<String> lastname) {
+		return byLastname.load(lastname);
+	}
+
+	/**
+	 * Batched variant of {@link ReactivePersonRepository#findByFirstnameAndLastname(Mono, String)}.
+	 *
+	 * @param firstname
+	 * @param lastname
+	 * @return
+	 */
+	public Mono<Person> findByFirstnameAndLastname(Mono<String> firstname, String lastname) {
+		return byFirstnameAndLastname.load(firstname.map(it -> Tuples.of(it, lastname))).next();
+	}
+
+	/**
+	 * @return the number of queries issued by this lookup.
+	 */
+	public long getQueryCount() {
+		return byLastname.getQueryCount() + byFirstnameAndLastname.getQueryCount();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	@Override
+	public void destroy() {
+
+		byLastname.dispose();
+		byFirstnameAndLastname.dispose();
+	}
+}
@@ -18,6 +18,8 @@ package example.springdata.mongodb.people;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.Tailable;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
@@ -65,6 +67,25 @@ public interface ReactivePersonRepository extends ReactiveCrudRepository<Person,
 	 */
 	Mono<Person> findByFirstnameAndLastname(Mono<String> firstname, String lastname);
 
+	/**
+	 * Derived query selecting by any of the given {@code lastnames} using a single {@code $in} query.
+	 *
+	 * @param lastnames
+	 * @return
+	 * @see BatchingPersonLookup
+	 */
+	Flux<Person> findByLastnameIn(Collection<String> lastnames);
+
+	/**
+	 * Derived query selecting by any combination of the given {@code firstnames} and {@code lastnames}.
+	 *
+	 * @param firstnames
+	 * @param lastnames
+	 * @return
+	 * @see BatchingPersonLookup
+	 */
+	Flux<Person> findByFirstnameInAndLastnameIn(Collection<String> firstnames, Collection<String> lastnames);
+
 	/**
 	 * Use a tailable cursor to emit a stream of entities as new entities are written to the capped collection.
 	 *
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.people;
+
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+import org.springframework.util.Assert;
+
+/**
+ * Shares a single tailable cursor per query among any number of subscribers. Without the hub every subscriber to
+ * {@link ReactivePersonRepository#findWithTailableCursorBy()} opens its own server-side cursor that polls the same
+ * capped collection.
+ * <p>
+ * The first subscriber for a key opens the cursor, the last one leaving closes it again. Each subscriber gets its own
+ * bounded buffer so a slow consumer never holds back the cursor or the other subscribers. Once a buffer is full the
+ * {@link OverflowPolicy} decides which element is dropped. Subscribers joining an already open cursor only see
+ * elements written after they joined.
+ *
+ * @param <T> the element type.
+ */
+public class TailableCursorHub<T> {
+
+	private final Map<Object, Flux<T>> cursors = new ConcurrentHashMap<>();
+	private final AtomicInteger openCursors = new AtomicInteger();
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final int bufferSize;
+	private final OverflowPolicy overflowPolicy;
+
+	/**
+	 * Creates a new {@link TailableCursorHub} applying {@code bufferSize} and {@code overflowPolicy} to each subscriber.
+	 *
+	 * @param bufferSize number of elements buffered per subscriber, must be greater than zero.
+	 * @param overflowPolicy must not be {@literal null}.
+	 */
+	public TailableCursorHub(int bufferSize, OverflowPolicy overflowPolicy) {
+
+		Assert.isTrue(bufferSize > 0, "Buffer size must be greater than zero!");
+		Assert.notNull(overflowPolicy, "OverflowPolicy must not be null!");
+
+		this.bufferSize = bufferSize;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Subscribe to the tailable cursor registered for {@code key}, using the default buffer size and overflow policy.
+	 *
+	 * @param key identifies the query, must not be {@literal null}.
+	 * @param cursor opens the tailable cursor if none is open for {@code key}, must not be {@literal null}.
+	 * @return
+	 */
+	public Flux<T> tail(Object key, Supplier<? extends Publisher<T>> cursor) {
+		return tail(key, cursor, bufferSize, overflowPolicy);
+	}
+
+	/**
+	 * Subscribe to the tailable cursor registered for {@code key}.
+	 *
+	 * @param key identifies the query, must not be {@literal null}.
+	 * @param cursor opens the tailable cursor if none is open for {@code key}, must not be {@literal null}.
+	 * @param bufferSize number of elements buffered for this subscriber, must be greater than zero.
+	 * @param overflowPolicy must not be {@literal null}.
+	 * @return
+	 */
+	public Flux<T> tail(Object key, Supplier<? extends Publisher<T>> cursor, int bufferSize,
+			OverflowPolicy overflowPolicy) {
+
+		Assert.notNull(key, "Key must not be null!");
+		Assert.notNull(cursor, "Cursor must not be null!");
+		Assert.isTrue(bufferSize > 0, "Buffer size must be greater than zero!");
+		Assert.notNull(overflowPolicy, "OverflowPolicy must not be null!");
+
+		return cursors.computeIfAbsent(key, it -> share(cursor)) //
+				.onBackpressureBuffer(bufferSize, element -> dropped.incrementAndGet(), overflowPolicy.strategy);
+	}
+
+	/**
+	 * @return the number of tailable cursors currently open.
+	 */
+	public int getOpenCursors() {
+		return openCursors.get();
+	}
+
+	/**
+	 * @return the number of elements dropped across all subscribers because their buffer was full.
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	private Flux<T> share(Supplier<? extends Publisher<T>> cursor) {
+
+		return Flux.defer(cursor::get) //
+				.doOnSubscribe(subscription -> openCursors.incrementAndGet()) //
+				.doFinally(signal -> openCursors.decrementAndGet()) //
+				.publish() //
+				.refCount();
+	}
+
+	/**
+	 * Decides which element to drop once the buffer of a subscriber is full.
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * Drop the element just emitted by the cursor and keep the buffered ones.
+		 */
+		DROP(BufferOverflowStrategy.DROP_LATEST),
+
+		/**
+		 * Drop the oldest buffered element so the subscriber catches up with the latest ones.
+		 */
+		LATEST(BufferOverflowStrategy.DROP_OLDEST);
+
+		private final BufferOverflowStrategy strategy;
+
+		OverflowPolicy(BufferOverflowStrategy strategy) {
+			this.strategy = strategy;
+		}
+	}
+}
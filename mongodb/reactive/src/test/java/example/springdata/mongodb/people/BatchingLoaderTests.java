@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.people;
+
+import static org.assertj.core.api.Assertions.*;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Signal;
+import reactor.test.StepVerifier;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link BatchingLoader}.
+ */
+public class BatchingLoaderTests {
+
+	List<Set<String>> queries = new CopyOnWriteArrayList<>();
+	BatchingLoader<String, String> loader;
+
+	@After
+	public void tearDown() {
+		loader.dispose();
+	}
+
+	@Test
+	public void resolvesConcurrentLookupsWithSingleQuery() {
+
+		loader = new BatchingLoader<>(this::load, BatchingLoaderTests::keyOf, 100, Duration.ofMillis(50));
+
+		List<Tuple2<String, List<String>>> results = Flux.range(0, 100) //
+				.map(i -> "key" + i % 10) //
+				.flatMap(key -> loader.load(key).collectList().map(values -> Tuples.of(key, values))) //
+				.collectList() //
+				.block();
+
+		assertThat(queries).hasSize(1);
+		assertThat(queries.get(0)).hasSize(10);
+		assertThat(loader.getLookupCount()).isEqualTo(100);
+		assertThat(results).hasSize(100).allSatisfy(
+				result -> assertThat(result.getT2()).containsExactly(result.getT1() + ":1", result.getT1() + ":2"));
+	}
+
+	@Test
+	public void splitsBatchesByMaxBatchSize() {
+
+		loader = new BatchingLoader<>(this::load, BatchingLoaderTests::keyOf, 10, Duration.ofMillis(50));
+
+		StepVerifier.create(Flux.range(0, 25).flatMap(i -> loader.load("key" + i))) //
+				.expectNextCount(50) //
+				.verifyComplete();
+
+		assertThat(queries).hasSize(3);
+	}
+
+	@Test
+	public void emitsNothingForKeysWithoutResult() {
+
+		loader = new BatchingLoader<>(this::load, BatchingLoaderTests::keyOf, 10, Duration.ofMillis(5));
+
+		StepVerifier.create(loader.load("unknown")).verifyComplete();
+	}
+
+	@Test
+	public void routesErrorsToAllCallersOfBatch() {
+
+		loader = new BatchingLoader<>(keys -> Flux.error(new IllegalStateException("boom")), BatchingLoaderTests::keyOf,
+				10, Duration.ofMillis(5));
+
+		StepVerifier.create(Flux.just("a", "b").flatMap(key -> loader.load(key).materialize()).filter(Signal::isOnError)) //
+				.expectNextCount(2) //
+				.verifyComplete();
+
+		assertThat(loader.getQueryCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void keepsLoadingAfterLoaderThrows() {
+
+		loader = new BatchingLoader<>(keys -> {
+
+			if (keys.contains("invalid")) {
+				throw new IllegalArgumentException("invalid key");
+			}
+
+			return load(keys);
+		}, BatchingLoaderTests::keyOf, 10, Duration.ofMillis(5));
+
+		StepVerifier.create(loader.load("invalid")).expectError(IllegalArgumentException.class).verify(Duration.ofSeconds(1));
+		StepVerifier.create(loader.load("key")).expectNext("key:1", "key:2").expectComplete().verify(Duration.ofSeconds(1));
+	}
+
+	private Flux<String> load(Set<String> keys) {
+
+		queries.add(keys);
+
+		return Flux.fromIterable(keys) //
+				.filter(key -> !key.equals("unknown")) //
+				.flatMap(key -> Flux.just(key + ":1", key + ":2"));
+	}
+
+	private static String keyOf(String value) {
+		return value.substring(0, value.indexOf(':'));
+	}
+}
@@ -22,8 +22,11 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.bson.Document;
 import org.junit.Before;
@@ -48,6 +51,8 @@ public class ReactivePersonRepositoryIntegrationTest {
 
 	@Autowired ReactivePersonRepository repository;
 	@Autowired ReactiveMongoOperations operations;
+	@Autowired TailableCursorHub<Person> hub;
+	@Autowired BatchingPersonLookup lookup;
 
 	@Before
 	public void setUp() {
@@ -135,6 +140,34 @@ public class ReactivePersonRepositoryIntegrationTest {
 		assertThat(people).hasSize(6);
 	}
 
+	/**
+	 * Many subscribers share a single tailable cursor through {@link TailableCursorHub}. The cursor is closed once the
+	 * last subscriber is gone.
+	 */
+	@Test
+	public void shouldShareTailableCursorAmongSubscribers() throws Exception {
+
+		Queue<Person> people = new ConcurrentLinkedQueue<>();
+
+		List<Disposable> subscribers = IntStream.range(0, 50) //
+				.mapToObj(i -> hub.tail("people", repository::findWithTailableCursorBy).subscribe(people::add)) //
+				.collect(Collectors.toList());
+
+		Thread.sleep(100);
+
+		assertThat(hub.getOpenCursors()).isEqualTo(1);
+
+		StepVerifier.create(repository.save(new Person("Tuco", "Salamanca", 33))) //
+				.expectNextCount(1) //
+				.verifyComplete();
+		Thread.sleep(100);
+
+		subscribers.forEach(Disposable::dispose);
+
+		assertThat(hub.getOpenCursors()).isZero();
+		assertThat(people).filteredOn(person -> person.getLastname().equals("Salamanca")).hasSize(50);
+	}
+
 	/**
 	 * Fetch data using query derivation.
 	 */
@@ -169,4 +202,28 @@ public class ReactivePersonRepositoryIntegrationTest {
 				.expectNextCount(1) //
 				.verifyComplete();
 	}
+
+	/**
+	 * Concurrent lookups with deferred parameters are resolved through a few {@code $in} queries instead of one query
+	 * per lookup.
+	 */
+	@Test
+	public void shouldBatchDeferredLookups() {
+
+		long queries = lookup.getQueryCount();
+
+		Flux<Person> byLastname = Flux.range(0, 50) //
+				.flatMap(i -> lookup.findByLastname(Mono.just(i % 2 == 0 ? "White" : "Pinkman")));
+
+		StepVerifier.create(byLastname).expectNextCount(75).verifyComplete();
+
+		Flux<Person> byFirstnameAndLastname = Flux.just("Walter", "Skyler", "Hank") //
+				.flatMap(firstname -> lookup.findByFirstnameAndLastname(Mono.just(firstname), "White"));
+
+		StepVerifier.create(byFirstnameAndLastname.map(Person::getFirstname).collectList()) //
+				.assertNext(firstnames -> assertThat(firstnames).containsExactlyInAnyOrder("Walter", "Skyler")) //
+				.verifyComplete();
+
+		assertThat(lookup.getQueryCount() - queries).isLessThan(10);
+	}
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.people;
+
+import static org.assertj.core.api.Assertions.*;
+
+import example.springdata.mongodb.people.TailableCursorHub.OverflowPolicy;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.DirectProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+
+/**
+ * Unit tests for {@link TailableCursorHub} using a {@link DirectProcessor} in place of the tailable cursor.
+ */
+public class TailableCursorHubTests {
+
+	DirectProcessor<Integer> cursor;
+	AtomicInteger opened;
+	Supplier<Publisher<Integer>> openCursor;
+
+	@Before
+	public void setUp() {
+
+		cursor = DirectProcessor.create();
+		opened = new AtomicInteger();
+		openCursor = () -> {
+			opened.incrementAndGet();
+			return cursor;
+		};
+	}
+
+	@Test
+	public void sharesOneCursorAmongAllSubscribers() {
+
+		TailableCursorHub<Integer> hub = new TailableCursorHub<>(16, OverflowPolicy.DROP);
+
+		List<List<Integer>> received = new ArrayList<>();
+		List<Disposable> subscribers = IntStream.range(0, 100).mapToObj(i -> {
+
+			List<Integer> elements = new CopyOnWriteArrayList<>();
+			received.add(elements);
+			return hub.tail("people", openCursor).subscribe(elements::add);
+		}).collect(Collectors.toList());
+
+		cursor.onNext(1);
+		cursor.onNext(2);
+
+		assertThat(opened).hasValue(1);
+		assertThat(hub.getOpenCursors()).isEqualTo(1);
+		assertThat(received).allSatisfy(elements -> assertThat(elements).containsExactly(1, 2));
+
+		subscribers.forEach(Disposable::dispose);
+
+		assertThat(hub.getOpenCursors()).isZero();
+		assertThat(cursor.hasDownstreams()).isFalse();
+	}
+
+	@Test
+	public void reopensCursorAfterLastSubscriberLeft() {
+
+		TailableCursorHub<Integer> hub = new TailableCursorHub<>(16, OverflowPolicy.DROP);
+
+		hub.tail("people", openCursor).subscribe().dispose();
+		hub.tail("people", openCursor).subscribe();
+
+		assertThat(opened).hasValue(2);
+		assertThat(hub.getOpenCursors()).isEqualTo(1);
+	}
+
+	@Test
+	public void usesOneCursorPerKey() {
+
+		TailableCursorHub<Integer> hub = new TailableCursorHub<>(16, OverflowPolicy.DROP);
+
+		hub.tail("white", openCursor).subscribe();
+		hub.tail("white", openCursor).subscribe();
+		hub.tail("pinkman", openCursor).subscribe();
+
+		assertThat(opened).hasValue(2);
+		assertThat(hub.getOpenCursors()).isEqualTo(2);
+	}
+
+	@Test
+	public void dropPolicyKeepsBufferedElementsOfSlowSubscriber() {
+
+		TailableCursorHub<Integer> hub = new TailableCursorHub<>(4, OverflowPolicy.DROP);
+
+		assertThat(slowAndFastSubscriber(hub)).containsExactly(0, 1, 2, 3);
+		assertThat(hub.getDroppedCount()).isEqualTo(6);
+	}
+
+	@Test
+	public void latestPolicyKeepsMostRecentElementsOfSlowSubscriber() {
+
+		TailableCursorHub<Integer> hub = new TailableCursorHub<>(4, OverflowPolicy.LATEST);
+
+		assertThat(slowAndFastSubscriber(hub)).containsExactly(6, 7, 8, 9);
+		assertThat(hub.getDroppedCount()).isEqualTo(6);
+	}
+
+	/**
+	 * Emits ten elements to a subscriber that requests everything and to one that does not request anything until all
+	 * elements were emitted. The fast subscriber must not be held back by the slow one.
+	 *
+	 * @return the elements the slow subscriber received.
+	 */
+	private List<Integer> slowAndFastSubscriber(TailableCursorHub<Integer> hub) {
+
+		List<Integer> fast = new CopyOnWriteArrayList<>();
+		List<Integer> slow = new CopyOnWriteArrayList<>();
+
+		hub.tail("people", openCursor).subscribe(fast::add);
+
+		BaseSubscriber<Integer> slowSubscriber = new BaseSubscriber<Integer>() {
+
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {}
+
+			@Override
+			protected void hookOnNext(Integer value) {
+				slow.add(value);
+			}
+		};
+		hub.tail("people", openCursor).subscribe(slowSubscriber);
+
+		IntStream.range(0, 10).forEach(cursor::onNext);
+
+		assertThat(fast).hasSize(10);
+
+		slowSubscriber.request(Long.MAX_VALUE);
+
+		return slow;
+	}
+}
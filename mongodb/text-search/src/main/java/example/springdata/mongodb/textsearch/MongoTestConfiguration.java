@@ -19,6 +19,7 @@ import javax.annotation.PreDestroy;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
@@ -36,6 +37,11 @@ public class MongoTestConfiguration {
 
 	@Autowired MongoOperations operations;
 
+	/**
+	 * Populates the repository with the Spring Blog posts on startup. Disable it by setting
+	 * {@code example.blog-posts.populate=false} to import them differently.
+	 */
+	@ConditionalOnProperty(name = "example.blog-posts.populate", matchIfMissing = true)
 	public @Bean Jackson2RepositoryPopulatorFactoryBean repositoryPopulator() {
 
 		Jackson2RepositoryPopulatorFactoryBean factoryBean = new Jackson2RepositoryPopulatorFactoryBean();
@@ -19,14 +19,18 @@ import static example.springdata.mongodb.util.ConsoleResultPrinter.*;
 
 import java.util.List;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.mapping.TextScore;
 import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import example.springdata.mongodb.util.BlogPostInitializer;
+
 /**
  * Integration tests showing the text search functionality using repositories.
  *
@@ -39,6 +43,12 @@ import org.springframework.test.context.junit4.SpringRunner;
 public class TextSearchRepositoryTests {
 
 	@Autowired BlogPostRepository repo;
+	@Autowired MongoOperations operations;
+
+	@Before
+	public void setUp() throws Exception {
+		BlogPostInitializer.INSTANCE.initialize(operations);
+	}
 
 	/**
 	 * Show how to do simple matching. <br />
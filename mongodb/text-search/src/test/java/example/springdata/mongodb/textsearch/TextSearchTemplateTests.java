@@ -20,6 +20,7 @@ import static org.springframework.data.mongodb.core.query.Query.*;
 
 import java.util.List;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +30,8 @@ import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.data.mongodb.core.query.TextQuery;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import example.springdata.mongodb.util.BlogPostInitializer;
+
 /**
  * @author Christoph Strobl
  * @author Thomas Darimont
@@ -39,18 +42,10 @@ public class TextSearchTemplateTests {
 
 	@Autowired MongoOperations operations;
 
-	// @Before
-	// public void setUp() throws Exception {
-	//
-	// MongoProperties properties = new MongoProperties();
-	//
-	// operations = new MongoTemplate(properties.createMongoClient(null), properties.getMongoClientDatabase());
-	// operations.dropCollection(BlogPost.class);
-	//
-	// createIndex();
-	//
-	// BlogPostInitializer.INSTANCE.initialize(this.operations);
-	// }
+	@Before
+	public void setUp() throws Exception {
+		BlogPostInitializer.INSTANCE.initialize(operations);
+	}
 
 	/**
 	 * Show how to do simple matching. Note that text search is case insensitive and will also find entries like
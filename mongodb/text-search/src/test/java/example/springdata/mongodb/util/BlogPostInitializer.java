@@ -19,7 +19,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.mongodb.core.MongoOperations;
-import org.springframework.data.repository.init.Jackson2ResourceReader;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.util.Assert;
 
 import example.springdata.mongodb.textsearch.BlogPost;
@@ -36,7 +36,8 @@ public enum BlogPostInitializer {
 	INSTANCE;
 
 	/**
-	 * Initializes the given {@link MongoOperations} with {@link BlogPost}s from the Spring Blog.
+	 * Initializes the given {@link MongoOperations} with {@link BlogPost}s from the Spring Blog unless they were imported
+	 * already.
 	 *
 	 * @param operations must not be {@literal null}.
 	 * @throws Exception
@@ -47,19 +48,16 @@ public enum BlogPostInitializer {
 		loadFromClasspathSource(operations);
 	}
 
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	private void loadFromClasspathSource(MongoOperations operations) throws Exception {
 
-		Jackson2ResourceReader reader = new Jackson2ResourceReader();
-
-		Object source = reader.readFrom(new ClassPathResource("spring-blog.atom.json"), this.getClass().getClassLoader());
-
-		if (source instanceof Iterable) {
-			((Iterable) source).forEach(element -> operations.save(element));
-		} else {
-			operations.save(source);
+		if (operations.count(new Query(), BlogPost.class) != 0) {
+			return;
 		}
 
+		// documents carry their _id and _class already, so they can be written as they are
+		JsonBulkLoader.into(operations.getCollection(operations.getCollectionName(BlogPost.class))) //
+				.load(new ClassPathResource("spring-blog.atom.json"));
+
 		log.info("Imported blog posts from classpath!");
 	}
 }
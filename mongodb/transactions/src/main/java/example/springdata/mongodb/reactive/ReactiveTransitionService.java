@@ -18,9 +18,13 @@ package example.springdata.mongodb.reactive;
 import example.springdata.mongodb.Process;
 import example.springdata.mongodb.State;
 import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.data.mongodb.core.ReactiveMongoOperations;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
@@ -30,6 +34,8 @@ import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import com.mongodb.MongoException;
+
 /**
  * @author Christoph Strobl
  * @currentRead The Core - Peter V. Brett
@@ -41,8 +47,19 @@ public class ReactiveTransitionService {
 	final ReactiveProcessRepository repository;
 	final ReactiveMongoTemplate template;
 
+	static final int MAX_RETRIES = 5;
+	static final Duration MIN_BACKOFF = Duration.ofMillis(5);
+	static final Duration MAX_BACKOFF = Duration.ofMillis(500);
+
+	static final int WRITE_CONFLICT = 112;
+
 	final AtomicInteger counter = new AtomicInteger(0);
 
+	final AtomicLong committed = new AtomicLong();
+	final AtomicLong aborted = new AtomicLong();
+	final AtomicLong retried = new AtomicLong();
+	final AtomicLong exhausted = new AtomicLong();
+
 	public Mono<Process> newProcess() {
 		return repository.save(new Process(counter.incrementAndGet(), State.CREATED, 0));
 	}
@@ -59,6 +76,63 @@ public class ReactiveTransitionService {
 		}).next().map(Process::getId);
 	}
 
+	/**
+	 * {@link #run(Integer) Run} the transitions for all given process ids with up to {@code concurrency} transactions in
+	 * flight. Transactions failing with a {@link MongoException#TRANSIENT_TRANSACTION_ERROR_LABEL transient error} or a
+	 * write conflict are retried up to {@value #MAX_RETRIES} times after a randomized, exponentially growing delay.
+	 * Processes failing {@link #verify(Process) verification} and those running out of retries are counted and skipped.
+	 *
+	 * @param ids must not be {@literal null}.
+	 * @param concurrency maximum number of concurrent transactions, must be greater than zero.
+	 * @return the ids of committed processes.
+	 */
+	public Flux<Integer> runAll(Flux<Integer> ids, int concurrency) {
+
+		Assert.notNull(ids, "Ids must not be null!");
+		Assert.isTrue(concurrency > 0, "Concurrency must be greater than zero!");
+
+		return ids.flatMap(id -> Mono.defer(() -> run(id)) //
+				.retryWhen(errors -> errors.zipWith(Flux.range(1, MAX_RETRIES + 1)).flatMap(it -> {
+
+					Throwable error = it.getT1();
+
+					if (!isTransient(error)) {
+						return Mono.error(error);
+					}
+
+					if (it.getT2() > MAX_RETRIES) {
+
+						exhausted.incrementAndGet();
+						return Mono.empty(); // completes the retry signal, skipping the process
+					}
+
+					retried.incrementAndGet();
+					return Mono.delay(backoff(it.getT2()));
+				})) //
+				.doOnNext(it -> committed.incrementAndGet()) //
+				.onErrorResume(IllegalStateException.class, e -> {
+
+					aborted.incrementAndGet();
+					return Mono.empty();
+				}), concurrency);
+	}
+
+	public long getCommittedCount() {
+		return committed.get();
+	}
+
+	public long getAbortedCount() {
+		return aborted.get();
+	}
+
+	public long getRetriedCount() {
+		return retried.get();
+	}
+
+	public long getExhaustedCount() {
+		return exhausted.get();
+	}
+
 	private Mono<Process> finish(ReactiveMongoOperations operations, Process process) {
 
 		return operations.update(Process.class).matching(Query.query(Criteria.where("id").is(process.getId())))
@@ -82,4 +156,31 @@ public class ReactiveTransitionService {
 		Assert.state(process.getId() % 3 != 0, "We're sorry but we needed to drop that one");
 		return Mono.just(process);
 	}
+
+	/**
+	 * Full jitter: a random delay up to the exponentially growing, capped backoff for the given attempt.
+	 */
+	static Duration backoff(int attempt) {
+
+		long ceiling = Math.min(MAX_BACKOFF.toMillis(), MIN_BACKOFF.toMillis() << Math.min(attempt, 16));
+		return Duration.ofMillis(MIN_BACKOFF.toMillis() + ThreadLocalRandom.current().nextLong(ceiling));
+	}
+
+	static boolean isTransient(Throwable error) {
+
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+
+			if (cause instanceof MongoException) {
+
+				MongoException exception = (MongoException) cause;
+
+				if (exception.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+						|| exception.getCode() == WRITE_CONFLICT) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
 }
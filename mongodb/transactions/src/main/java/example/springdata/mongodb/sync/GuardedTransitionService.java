@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.sync;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.*;
+import static org.springframework.data.mongodb.core.query.Criteria.*;
+import static org.springframework.data.mongodb.core.query.Query.*;
+
+import example.springdata.mongodb.Process;
+import example.springdata.mongodb.State;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+
+/**
+ * Variant of {@link TransitionService} applying the {@code CREATED -> ACTIVE -> DONE} transitions without a
+ * multi-document transaction. Each transition is a single conditional update guarded by the expected current
+ * {@link State}, which MongoDB applies atomically to the one document involved. A concurrent runner therefore cannot
+ * move a {@link Process} twice, and a failed {@link #verify(Process) verification} is undone by the reverse
+ * transition.
+ * <p />
+ * {@link #run(Integer)} needs two round trips instead of the three plus commit of {@link TransitionService#run(Integer)}:
+ * claiming the {@link Process} returns the document to verify. {@link #runAll(Collection)} needs two round trips for
+ * any number of processes. Only {@link #runAllOrNothing(Collection)}, where the outcome of one {@link Process} depends
+ * on the others, uses a transaction.
+ */
+@Service
+@RequiredArgsConstructor
+class GuardedTransitionService {
+
+	final MongoTemplate template;
+
+	/**
+	 * Move the {@link Process} with the given id from {@link State#CREATED} to {@link State#DONE}.
+	 *
+	 * @param id must not be {@literal null}.
+	 * @return {@literal true} if the {@link Process} was moved, {@literal false} if it was not in {@link State#CREATED}.
+	 * @throws IllegalStateException if the {@link Process} failed verification. It is left in {@link State#CREATED}.
+	 */
+	public boolean run(Integer id) {
+
+		Process process = transition(id, State.CREATED, State.ACTIVE, 1);
+
+		if (process == null) {
+			return false;
+		}
+
+		try {
+			verify(process);
+		} catch (RuntimeException e) {
+
+			transition(id, State.ACTIVE, State.CREATED, -1);
+			throw e;
+		}
+
+		transition(id, State.ACTIVE, State.DONE, 1);
+		return true;
+	}
+
+	/**
+	 * Move all {@link Process processes} with the given ids in {@link State#CREATED} that pass verification to
+	 * {@link State#DONE}, each one independently of the others.
+	 *
+	 * @param ids must not be {@literal null}.
+	 * @return the {@link BatchResult}.
+	 */
+	public BatchResult runAll(Collection<Integer> ids) {
+
+		Assert.notNull(ids, "Ids must not be null!");
+
+		List<Process> candidates = template.find(query(where("id").in(ids).and("state").is(State.CREATED)), Process.class);
+		List<Process> verified = new ArrayList<>(candidates.size());
+
+		for (Process process : candidates) {
+			try {
+				verify(process);
+				verified.add(process);
+			} catch (IllegalStateException e) {
+				// stays CREATED, just like a rolled back transaction
+			}
+		}
+
+		int done = verified.isEmpty() ? 0 : complete(verified);
+		int rejected = candidates.size() - verified.size();
+
+		return new BatchResult(done, rejected, ids.size() - done - rejected);
+	}
+
+	/**
+	 * Move all {@link Process processes} with the given ids in {@link State#CREATED} to {@link State#DONE}, or none of
+	 * them if one fails verification or was moved concurrently.
+	 *
+	 * @param ids must not be {@literal null}.
+	 * @return the number of moved {@link Process processes}.
+	 * @throws IllegalStateException if a {@link Process} failed verification or was moved concurrently.
+	 */
+	@Transactional
+	public int runAllOrNothing(Collection<Integer> ids) {
+
+		Assert.notNull(ids, "Ids must not be null!");
+
+		List<Process> candidates = template.find(query(where("id").in(ids).and("state").is(State.CREATED)), Process.class);
+		candidates.forEach(this::verify);
+
+		int done = candidates.isEmpty() ? 0 : complete(candidates);
+
+		Assert.state(done == candidates.size(), "Processes were moved concurrently");
+		return done;
+	}
+
+	/**
+	 * Apply both transitions at once with an unordered bulk of guarded updates.
+	 *
+	 * @return the number of updated documents.
+	 */
+	private int complete(List<Process> processes) {
+
+		BulkOperations bulk = template.bulkOps(BulkMode.UNORDERED, Process.class);
+
+		for (Process process : processes) {
+			bulk.updateOne(query(where("id").is(process.getId()).and("state").is(State.CREATED)),
+					Update.update("state", State.DONE).inc("transitionCount", 2));
+		}
+
+		return bulk.execute().getModifiedCount();
+	}
+
+	/**
+	 * Conditionally move the {@link Process} from one {@link State} to another.
+	 *
+	 * @return the updated {@link Process} or {@literal null} if it was not in the {@code from} {@link State}.
+	 */
+	private Process transition(Integer id, State from, State to, int transitionCountDelta) {
+
+		return template.findAndModify(query(where("id").is(id).and("state").is(from)),
+				Update.update("state", to).inc("transitionCount", transitionCountDelta), options().returnNew(true),
+				Process.class);
+	}
+
+	void verify(Process process) {
+		Assert.state(process.getId() % 3 != 0, "We're sorry but we needed to drop that one");
+	}
+
+	/**
+	 * Outcome of {@link GuardedTransitionService#runAll(Collection)}.
+	 */
+	@Value
+	static class BatchResult {
+
+		int done;
+		int rejected;
+		int skipped;
+	}
+}
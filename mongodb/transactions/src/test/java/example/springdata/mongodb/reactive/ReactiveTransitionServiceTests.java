@@ -21,9 +21,15 @@ import example.springdata.mongodb.Process;
 import example.springdata.mongodb.State;
 import example.springdata.mongodb.util.EmbeddedMongo;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.bson.Document;
+import org.junit.Assume;
+import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -49,13 +55,13 @@ import com.mongodb.reactivestreams.client.MongoClients;
 @ContextConfiguration
 public class ReactiveTransitionServiceTests {
 
-	public static @ClassRule EmbeddedMongo replSet = EmbeddedMongo.replSet().configure();
+	public static @ClassRule EmbeddedMongo replSet = EmbeddedMongo.singleNodeReplSet() //
+			.withSharedInstance(true) //
+			.configure();
 
 	@Autowired ReactiveTransitionService transitionService;
 	@Autowired MongoClient client;
 
-	static final String DB_NAME = "spring-data-reactive-tx-examples";
-
 	@Configuration
 	@ComponentScan
 	@EnableReactiveMongoRepositories
@@ -69,10 +75,16 @@ public class ReactiveTransitionServiceTests {
 
 		@Override
 		protected String getDatabaseName() {
-			return DB_NAME;
+			return replSet.getDatabaseName();
 		}
 	}
 
+	@Before
+	public void setUp() {
+		Mono.from(client.getDatabase(replSet.getDatabaseName()).getCollection("processes").deleteMany(new Document()))
+				.block();
+	}
+
 	@Test
 	public void reactiveTxCommitRollback() {
 
@@ -85,7 +97,7 @@ public class ReactiveTransitionServiceTests {
 					.verifyComplete();
 		}
 
-		Flux.from(client.getDatabase(DB_NAME).getCollection("processes").find(new Document())) //
+		Flux.from(client.getDatabase(replSet.getDatabaseName()).getCollection("processes").find(new Document())) //
 				.buffer(10) //
 				.as(StepVerifier::create) //
 				.consumeNextWith(list -> {
@@ -104,4 +116,58 @@ public class ReactiveTransitionServiceTests {
 				}) //
 				.verifyComplete();
 	}
+
+	@Test
+	public void runAllCountsOutcomes() {
+
+		long committed = transitionService.getCommittedCount();
+		long aborted = transitionService.getAbortedCount();
+
+		Flux<Integer> ids = Flux.range(0, 30) //
+				.concatMap(it -> transitionService.newProcess()) //
+				.map(Process::getId);
+
+		transitionService.runAll(ids, 8) //
+				.as(StepVerifier::create) //
+				.expectNextCount(20) //
+				.verifyComplete();
+
+		assertThat(transitionService.getCommittedCount() - committed).isEqualTo(20);
+		assertThat(transitionService.getAbortedCount() - aborted).isEqualTo(10);
+	}
+
+	/**
+	 * Skipped unless run with {@code -Dbenchmark=true}. Use {@code -Dbenchmark.processes=1000} to tune the run.
+	 */
+	@Test
+	public void compareThroughputByConcurrency() {
+
+		Assume.assumeTrue("Benchmark disabled, run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+
+		int count = Integer.getInteger("benchmark.processes", 200);
+
+		for (int concurrency : new int[] { 1, 4, 16 }) {
+
+			List<Integer> ids = Flux.range(0, count) //
+					.concatMap(it -> transitionService.newProcess()) //
+					.map(Process::getId) //
+					.collectList() //
+					.block();
+
+			long retried = transitionService.getRetriedCount();
+			long start = System.nanoTime();
+
+			Long committed = transitionService.runAll(Flux.fromIterable(ids), concurrency).count().block();
+
+			long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			System.out.println(String.format("concurrency %2d: %4d processes in %5d ms (%.0f processes/s), %d retries",
+					concurrency, count, millis, count * 1000d / Math.max(1, millis),
+					transitionService.getRetriedCount() - retried));
+
+			assertThat(committed).isEqualTo(ids.stream().filter(id -> id % 3 != 0).count());
+		}
+
+		assertThat(transitionService.getExhaustedCount()).isZero();
+	}
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.reactive;
+
+import static org.assertj.core.api.Assertions.*;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.mongodb.MongoException;
+
+/**
+ * Unit tests for the retry handling of {@link ReactiveTransitionService#runAll(Flux, int)}.
+ */
+public class ReactiveTransitionServiceUnitTests {
+
+	Map<Integer, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+	@Test
+	public void retriesWriteConflicts() {
+
+		ReactiveTransitionService service = failingFirst(2, () -> new MongoException(112, "WriteConflict"));
+
+		StepVerifier.create(service.runAll(Flux.just(1, 2), 2)) //
+				.expectNextCount(2) //
+				.verifyComplete();
+
+		assertThat(attempts.get(1)).hasValue(3);
+		assertThat(service.getCommittedCount()).isEqualTo(2);
+		assertThat(service.getRetriedCount()).isEqualTo(4);
+		assertThat(service.getExhaustedCount()).isZero();
+	}
+
+	@Test
+	public void retriesTransientTransactionErrors() {
+
+		ReactiveTransitionService service = failingFirst(1, () -> {
+
+			MongoException error = new MongoException(251, "NoSuchTransaction");
+			error.addLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+			return error;
+		});
+
+		StepVerifier.create(service.runAll(Flux.just(1), 1)) //
+				.expectNext(1) //
+				.verifyComplete();
+
+		assertThat(service.getRetriedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void skipsProcessAfterExhaustingRetries() {
+
+		ReactiveTransitionService service = failingFirst(Integer.MAX_VALUE,
+				() -> new MongoException(112, "WriteConflict"));
+
+		StepVerifier.create(service.runAll(Flux.just(1), 1)) //
+				.verifyComplete();
+
+		assertThat(attempts.get(1)).hasValue(ReactiveTransitionService.MAX_RETRIES + 1);
+		assertThat(service.getRetriedCount()).isEqualTo(ReactiveTransitionService.MAX_RETRIES);
+		assertThat(service.getExhaustedCount()).isEqualTo(1);
+		assertThat(service.getCommittedCount()).isZero();
+	}
+
+	@Test
+	public void doesNotRetryOtherErrors() {
+
+		ReactiveTransitionService service = failingFirst(1, () -> new MongoException(2, "BadValue"));
+
+		StepVerifier.create(service.runAll(Flux.just(1), 1)) //
+				.verifyError(MongoException.class);
+
+		assertThat(service.getRetriedCount()).isZero();
+	}
+
+	@Test
+	public void backoffStaysWithinBounds() {
+
+		for (int attempt = 1; attempt <= 10; attempt++) {
+
+			Duration backoff = ReactiveTransitionService.backoff(attempt);
+
+			assertThat(backoff).isGreaterThanOrEqualTo(ReactiveTransitionService.MIN_BACKOFF);
+			assertThat(backoff).isLessThanOrEqualTo(
+					ReactiveTransitionService.MIN_BACKOFF.plus(ReactiveTransitionService.MAX_BACKOFF));
+		}
+	}
+
+	/**
+	 * @return a {@link ReactiveTransitionService} whose transaction fails the given number of times per id.
+	 */
+	private ReactiveTransitionService failingFirst(int failures, Supplier<MongoException> error) {
+
+		return new ReactiveTransitionService(null, null) {
+
+			@Override
+			public Mono<Integer> run(Integer id) {
+
+				int attempt = attempts.computeIfAbsent(id, it -> new AtomicInteger()).incrementAndGet();
+				return attempt <= failures ? Mono.error(error.get()) : Mono.just(id);
+			}
+		};
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.sync;
+
+import static org.assertj.core.api.Assertions.*;
+
+import example.springdata.mongodb.Process;
+import example.springdata.mongodb.State;
+import example.springdata.mongodb.sync.GuardedTransitionService.BatchResult;
+import example.springdata.mongodb.util.EmbeddedMongo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.Assume;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.config.AbstractMongoConfiguration;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import com.mongodb.MongoClient;
+
+/**
+ * Test showing guarded, single document state transitions compared to the transactional {@link TransitionService}.
+ * <p />
+ * The throughput comparison is skipped unless run with {@code -Dbenchmark=true}. Use
+ * {@code -Dbenchmark.processes=1000} to tune the run.
+ */
+@RunWith(SpringRunner.class)
+@ContextConfiguration
+public class GuardedTransitionServiceTests {
+
+	public static @ClassRule EmbeddedMongo replSet = EmbeddedMongo.singleNodeReplSet() //
+			.withSharedInstance(true) //
+			.configure();
+
+	@Autowired TransitionService transitionService;
+	@Autowired GuardedTransitionService guardedTransitionService;
+	@Autowired ProcessRepository repository;
+
+	@Configuration
+	@ComponentScan
+	@EnableMongoRepositories
+	@EnableTransactionManagement
+	static class Config extends AbstractMongoConfiguration {
+
+		@Bean
+		PlatformTransactionManager transactionManager(MongoDbFactory dbFactory) {
+			return new MongoTransactionManager(dbFactory);
+		}
+
+		@Override
+		@Bean
+		public MongoClient mongoClient() {
+			return replSet.getMongoClient();
+		}
+
+		@Override
+		protected String getDatabaseName() {
+			return replSet.getDatabaseName();
+		}
+	}
+
+	@Test
+	public void runMatchesTransactionalOutcome() {
+
+		List<Integer> transactional = newProcesses(12);
+		List<Integer> guarded = newProcesses(12);
+
+		transactional.forEach(runIgnoringRejects(transitionService::run));
+		guarded.forEach(runIgnoringRejects(guardedTransitionService::run));
+
+		assertThat(outcomes(guarded)).isEqualTo(outcomes(transactional));
+
+		for (Integer id : guarded) {
+
+			if (id % 3 != 0) {
+
+				assertThat(repository.findById(id)).contains(new Process(id, State.DONE, 2));
+				assertThat(guardedTransitionService.run(id)).isFalse(); // no second transition
+			} else {
+
+				assertThatThrownBy(() -> guardedTransitionService.run(id)).isInstanceOf(IllegalStateException.class);
+				assertThat(repository.findById(id)).contains(new Process(id, State.CREATED, 0));
+			}
+		}
+	}
+
+	@Test
+	public void runAllMovesVerifiedProcesses() {
+
+		List<Integer> ids = newProcesses(6); // one out of three fails verification
+		BatchResult result = guardedTransitionService.runAll(ids);
+
+		assertThat(result).isEqualTo(new BatchResult(4, 2, 0));
+
+		for (Integer id : ids) {
+			assertThat(repository.findById(id).map(Process::getState)).contains(id % 3 == 0 ? State.CREATED : State.DONE);
+		}
+
+		assertThat(guardedTransitionService.runAll(ids)).isEqualTo(new BatchResult(0, 2, 4));
+	}
+
+	@Test
+	public void runAllOrNothingRollsBackOnFailedVerification() {
+
+		List<Integer> ids = newProcesses(6);
+
+		assertThatThrownBy(() -> guardedTransitionService.runAllOrNothing(ids)).isInstanceOf(IllegalStateException.class);
+
+		for (Integer id : ids) {
+			assertThat(repository.findById(id).map(Process::getState)).contains(State.CREATED);
+		}
+	}
+
+	@Test
+	public void compareThroughput() {
+
+		Assume.assumeTrue("Benchmark disabled, run with -Dbenchmark=true", Boolean.getBoolean("benchmark"));
+
+		int count = Integer.getInteger("benchmark.processes", 300);
+
+		List<Integer> transactional = newProcesses(count);
+		List<Integer> guarded = newProcesses(count);
+		List<Integer> batched = newProcesses(count);
+
+		report("TransitionService.run", count,
+				measure(() -> transactional.forEach(runIgnoringRejects(transitionService::run))));
+		report("GuardedTransitionService.run", count,
+				measure(() -> guarded.forEach(runIgnoringRejects(guardedTransitionService::run))));
+		report("GuardedTransitionService.runAll", count, measure(() -> guardedTransitionService.runAll(batched)));
+
+		assertThat(outcomes(guarded)).isEqualTo(outcomes(transactional));
+		assertThat(outcomes(batched)).isEqualTo(outcomes(transactional));
+	}
+
+	private static long measure(Runnable runnable) {
+
+		long start = System.nanoTime();
+		runnable.run();
+		return System.nanoTime() - start;
+	}
+
+	private static void report(String runner, int count, long nanos) {
+		System.out.println(String.format("%-32s %6d processes in %6d ms (%8.1f processes/s)", runner, count,
+				TimeUnit.NANOSECONDS.toMillis(nanos), count * 1e9 / nanos));
+	}
+
+	private static Consumer<Integer> runIgnoringRejects(Consumer<Integer> runner) {
+
+		return id -> {
+			try {
+				runner.accept(id);
+			} catch (IllegalStateException e) {
+				// failed verification, the process stays CREATED
+			}
+		};
+	}
+
+	/**
+	 * @return state and transition count of the given processes in order.
+	 */
+	private List<String> outcomes(List<Integer> ids) {
+
+		return ids.stream() //
+				.map(id -> repository.findById(id).get()) //
+				.map(it -> it.getState() + "/" + it.getTransitionCount()) //
+				.collect(Collectors.toList());
+	}
+
+	private List<Integer> newProcesses(int count) {
+
+		// align ids so that every third one fails verification
+		while (transitionService.counter.get() % 3 != 0) {
+			transitionService.counter.incrementAndGet();
+		}
+
+		List<Integer> ids = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			ids.add(transitionService.newProcess().getId());
+		}
+
+		return ids;
+	}
+
+}
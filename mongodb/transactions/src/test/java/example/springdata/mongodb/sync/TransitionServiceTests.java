@@ -55,9 +55,9 @@ import com.mongodb.client.model.Projections;
 @ContextConfiguration
 public class TransitionServiceTests {
 
-	public static @ClassRule EmbeddedMongo replSet = EmbeddedMongo.replSet().configure();
-
-	static final String DB_NAME = "spring-data-tx-examples";
+	public static @ClassRule EmbeddedMongo replSet = EmbeddedMongo.singleNodeReplSet() //
+			.withSharedInstance(true) //
+			.configure();
 
 	@Autowired TransitionService transitionService;
 	@Autowired com.mongodb.MongoClient client;
@@ -81,7 +81,7 @@ public class TransitionServiceTests {
 
 		@Override
 		protected String getDatabaseName() {
-			return DB_NAME;
+			return replSet.getDatabaseName();
 		}
 	}
 
@@ -101,13 +101,13 @@ public class TransitionServiceTests {
 			}
 		}
 
-		client.getDatabase(DB_NAME).getCollection("processes").find(new Document())
+		client.getDatabase(replSet.getDatabaseName()).getCollection("processes").find(new Document())
 				.forEach((Consumer<? super Document>) System.out::println);
 	}
 
 	State stateInDb(Process process) {
 
-		return State.valueOf(client.getDatabase(DB_NAME).getCollection("processes").find(Filters.eq("_id", process.getId()))
+		return State.valueOf(client.getDatabase(replSet.getDatabaseName()).getCollection("processes").find(Filters.eq("_id", process.getId()))
 				.projection(Projections.include("state")).first().get("state", String.class));
 	}
 
@@ -16,6 +16,9 @@
 package example.springdata.mongodb.util;
 
 import de.flapdoodle.embed.mongo.Command;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodProcess;
+import de.flapdoodle.embed.mongo.MongodStarter;
 import de.flapdoodle.embed.mongo.config.IMongoCmdOptions;
 import de.flapdoodle.embed.mongo.config.IMongodConfig;
 import de.flapdoodle.embed.mongo.config.IMongosConfig;
@@ -23,6 +26,7 @@ import de.flapdoodle.embed.mongo.config.MongoCmdOptionsBuilder;
 import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
 import de.flapdoodle.embed.mongo.config.MongosConfigBuilder;
 import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.RuntimeConfigBuilder;
 import de.flapdoodle.embed.mongo.config.Storage;
 import de.flapdoodle.embed.mongo.distribution.Feature;
 import de.flapdoodle.embed.mongo.distribution.IFeatureAwareVersion;
@@ -39,11 +43,15 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import org.junit.rules.ExternalResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
@@ -52,6 +60,11 @@ import com.mongodb.MongoClientURI;
 
 /**
  * {@link org.junit.rules.TestRule} for a MongoDB server resource that is started/stopped along the test lifecycle.
+ * <p />
+ * A {@link Builder#withSharedInstance(boolean) shared} resource is started once and reused by all rules configured
+ * alike within the JVM until it shuts down. Each rule then works with its own {@link #getDatabaseName() database} that
+ * is dropped once the rule completes, isolating test classes ({@link org.junit.ClassRule}) or test methods
+ * ({@link org.junit.Rule}) from each other.
  *
  * @author Christoph Strobl
  * @author Mark Paluch
@@ -70,10 +83,17 @@ public class EmbeddedMongo extends ExternalResource {
 			Feature.ONLY_WITH_SSL, Feature.ONLY_64BIT, Feature.NO_HTTP_INTERFACE_ARG, Feature.STORAGE_ENGINE,
 			Feature.MONGOS_CONFIGDB_SET_STYLE, Feature.NO_CHUNKSIZE_ARG);
 
+	private static final Map<String, TestResource> SHARED_RESOURCES = new ConcurrentHashMap<>();
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
 	private final TestResource resource;
+	private final boolean shared;
+	private @Nullable String databaseName;
+
+	private EmbeddedMongo(TestResource resource, boolean shared) {
 
-	private EmbeddedMongo(TestResource resource) {
 		this.resource = resource;
+		this.shared = shared;
 	}
 
 	/**
@@ -98,6 +118,16 @@ public class EmbeddedMongo extends ExternalResource {
 		return new Builder().withReplicaSetName(replicaSetName);
 	}
 
+	/**
+	 * Create a new {@link Builder} that is initialized as single node replica set to build {@link EmbeddedMongo}.
+	 *
+	 * @return
+	 * @see Builder#withSingleNode()
+	 */
+	public static Builder singleNodeReplSet() {
+		return replSet().withSingleNode();
+	}
+
 	/**
 	 * {@link Builder} for {@link EmbeddedMongo}.
 	 */
@@ -107,6 +137,8 @@ public class EmbeddedMongo extends ExternalResource {
 		String replicaSetName;
 		List<Integer> serverPorts;
 		List<Integer> configServerPorts;
+		boolean singleNode;
+		boolean shared;
 		boolean silent = true;
 
 		Builder() {
@@ -153,6 +185,32 @@ public class EmbeddedMongo extends ExternalResource {
 			return this;
 		}
 
+		/**
+		 * Run a single {@code mongod} instead of a sharded cluster. If a replica set name is configured, the node is
+		 * initiated as the only member of that replica set, which is sufficient for Change Streams and transactions and
+		 * starts considerably faster.
+		 *
+		 * @return
+		 */
+		public Builder withSingleNode() {
+
+			this.singleNode = true;
+			return this;
+		}
+
+		/**
+		 * Configure whether to share the MongoDB resource with all other {@link EmbeddedMongo} instances configured alike
+		 * in the same JVM. A shared resource is started by the first rule using it and stopped on JVM shutdown.
+		 *
+		 * @param shared
+		 * @return
+		 */
+		public Builder withSharedInstance(boolean shared) {
+
+			this.shared = shared;
+			return this;
+		}
+
 		/**
 		 * Configure whether to stay silent (stream only Mongo process errors to stdout) or to stream all process output to
 		 * stdout. By default, only process errors are forwarded to stdout.
@@ -168,25 +226,47 @@ public class EmbeddedMongo extends ExternalResource {
 
 		public EmbeddedMongo configure() {
 
-			if (serverPorts.size() > 1 || StringUtils.hasText(replicaSetName)) {
+			if (!shared) {
+				return new EmbeddedMongo(createResource(), false);
+			}
+
+			String key = String.join(":", version.asInDownloadPath(), String.valueOf(replicaSetName),
+					String.valueOf(singleNode), String.valueOf(silent), serverPorts.toString());
+
+			return new EmbeddedMongo(SHARED_RESOURCES.computeIfAbsent(key, it -> new Shared(createResource())), true);
+		}
+
+		private TestResource createResource() {
+
+			if (!singleNode && (serverPorts.size() > 1 || StringUtils.hasText(replicaSetName))) {
 
 				String rsName = StringUtils.hasText(replicaSetName) ? replicaSetName : DEFAULT_REPLICA_SET_NAME;
-				return new EmbeddedMongo(
-						new ReplSet(version, rsName, silent, serverPorts.toArray(new Integer[serverPorts.size()])));
+				return new ReplSet(version, rsName, silent, serverPorts.toArray(new Integer[serverPorts.size()]));
 			}
 
-			throw new UnsupportedOperationException("implement me");
+			return new SingleNode(version, replicaSetName, silent,
+					serverPorts.isEmpty() ? randomOrDefaultServerPort() : serverPorts.get(0));
 		}
 
 	}
 
 	@Override
 	protected void before() throws Throwable {
+
 		resource.start();
+		databaseName = "embedded-" + DATABASES.incrementAndGet();
 	}
 
 	@Override
 	protected void after() {
+
+		if (shared && databaseName != null) {
+
+			try (MongoClient client = resource.mongoClient()) {
+				client.dropDatabase(databaseName);
+			}
+		}
+
 		resource.stop();
 	}
 
@@ -198,6 +278,16 @@ public class EmbeddedMongo extends ExternalResource {
 		return resource.connectionString();
 	}
 
+	/**
+	 * @return the name of the database reserved for the current rule execution.
+	 */
+	public String getDatabaseName() {
+
+		Assert.state(databaseName != null, "Database name is only available while the rule is running!");
+
+		return databaseName;
+	}
+
 	private static Integer randomOrDefaultServerPort() {
 
 		try {
@@ -232,6 +322,121 @@ public class EmbeddedMongo extends ExternalResource {
 		}
 	}
 
+	/**
+	 * {@link TestResource} started once and stopped on JVM shutdown.
+	 */
+	static class Shared implements TestResource {
+
+		private final TestResource delegate;
+		private boolean started;
+
+		Shared(TestResource delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public synchronized void start() {
+
+			if (started) {
+				return;
+			}
+
+			delegate.start();
+			Runtime.getRuntime().addShutdownHook(new Thread(delegate::stop));
+			started = true;
+		}
+
+		@Override
+		public void stop() {
+			// stopped on JVM shutdown
+		}
+
+		@Override
+		public String connectionString() {
+			return delegate.connectionString();
+		}
+	}
+
+	/**
+	 * A single {@code mongod}, optionally initiated as the only member of a replica set.
+	 */
+	static class SingleNode implements TestResource {
+
+		private final IFeatureAwareVersion serverVersion;
+		private final @Nullable String replicaSetName;
+		private final int port;
+		private final Function<Command, ProcessOutput> outputFunction;
+
+		private MongodExecutable executable;
+		private MongodProcess process;
+
+		SingleNode(IFeatureAwareVersion serverVersion, @Nullable String replicaSetName, boolean silent, int port) {
+
+			this.serverVersion = serverVersion;
+			this.replicaSetName = replicaSetName;
+			this.port = port;
+			this.outputFunction = outputFunction(silent);
+		}
+
+		@Override
+		public void start() {
+
+			if (process != null) {
+				return;
+			}
+
+			IMongodConfig config = defaultMongodConfig(serverVersion, port, defaultCommandOptions(), false, false,
+					replicaSetName);
+
+			try {
+
+				LOGGER.info(String.format("Starting single node%s at port %d",
+						replicaSetName != null ? " replica set '" + replicaSetName + "'" : "", port));
+
+				executable = MongodStarter.getInstance(new RuntimeConfigBuilder() //
+						.defaultsWithLogger(Command.MongoD, LOGGER) //
+						.processOutput(outputFunction.apply(Command.MongoD)) //
+						.build()).prepare(config);
+				process = executable.start();
+
+				if (StringUtils.hasText(replicaSetName)) {
+					MongosSystemForTestFactory.initiateReplicaSet(replicaSetName, Collections.singletonList(config));
+				}
+
+				LOGGER.info(String.format("Single node started. Connection String: %s", connectionString()));
+			} catch (Exception e) {
+
+				stop();
+				throw new RuntimeException(" Error while starting single node. ", e);
+			}
+		}
+
+		@Override
+		public void stop() {
+
+			if (process != null) {
+
+				LOGGER.info(String.format("Stopping single node at port %d", port));
+
+				process.stop();
+				process = null;
+			}
+
+			if (executable != null) {
+
+				executable.stop();
+				executable = null;
+			}
+		}
+
+		@Override
+		public String connectionString() {
+
+			return "mongodb://localhost:" + port
+					+ (StringUtils.hasText(replicaSetName) ? "/?replicaSet=" + replicaSetName : "");
+		}
+	}
+
 	static class ReplSet implements TestResource {
 
 		private static final String DEFAULT_SHARDING = "none";
@@ -255,13 +460,7 @@ public class EmbeddedMongo extends ExternalResource {
 			this.configServerPorts = defaultPortsIfRequired(null);
 			this.configServerReplicaSetName = DEFAULT_CONFIG_SERVER_REPLICA_SET_NAME;
 			this.mongosPort = randomOrDefaultServerPort();
-
-			if (silent) {
-				outputFunction = it -> new ProcessOutput(Processors.silent(),
-						Processors.namedConsole("[ " + it.commandName() + " error]"), Processors.console());
-			} else {
-				outputFunction = it -> ProcessOutput.getDefaultInstance(it.commandName());
-			}
+			this.outputFunction = outputFunction(silent);
 		}
 
 		Integer[] defaultPortsIfRequired(Integer[] ports) {
@@ -354,6 +553,20 @@ public class EmbeddedMongo extends ExternalResource {
 		}
 	}
 
+	/**
+	 * @param silent whether to forward only process errors to stdout.
+	 * @return the {@link ProcessOutput} to use per {@link Command}.
+	 */
+	private static Function<Command, ProcessOutput> outputFunction(boolean silent) {
+
+		if (silent) {
+			return it -> new ProcessOutput(Processors.silent(), Processors.namedConsole("[ " + it.commandName() + " error]"),
+					Processors.console());
+		}
+
+		return it -> ProcessOutput.getDefaultInstance(it.commandName());
+	}
+
 	/**
 	 * @return Default {@link IMongoCmdOptions command options}.
 	 */
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package example.springdata.mongodb.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+
+/**
+ * Loads a JSON array of documents into a {@link MongoCollection}, eg. fixture or seed data.
+ * <p />
+ * The array is parsed incrementally, so the source is never held in memory as a whole. The calling thread only splits
+ * it into its elements while converting them to {@link Document documents} and writing them with unordered bulk
+ * inserts of {@code batchSize} documents happens on a pool of {@code parallelism} threads. At most two batches per
+ * thread are buffered.
+ *
+ * <pre class="code">
+ * JsonBulkLoader.into(collection).batchSize(500).parallelism(4).load(new ClassPathResource("books.json"));
+ * </pre>
+ */
+public class JsonBulkLoader {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JsonBulkLoader.class);
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final MongoCollection<Document> collection;
+	private final int batchSize;
+	private final int parallelism;
+	private final UnaryOperator<Document> converter;
+
+	private JsonBulkLoader(MongoCollection<Document> collection, int batchSize, int parallelism,
+			UnaryOperator<Document> converter) {
+
+		this.collection = collection;
+		this.batchSize = batchSize;
+		this.parallelism = parallelism;
+		this.converter = converter;
+	}
+
+	/**
+	 * Create a new {@link JsonBulkLoader} writing to the given {@link MongoCollection} using batches of 1000 documents
+	 * and as many threads as there are processors.
+	 *
+	 * @param collection must not be {@literal null}.
+	 * @return
+	 */
+	public static JsonBulkLoader into(MongoCollection<Document> collection) {
+
+		Assert.notNull(collection, "MongoCollection must not be null!");
+
+		return new JsonBulkLoader(collection, 1000, Runtime.getRuntime().availableProcessors(), UnaryOperator.identity());
+	}
+
+	/**
+	 * Set the number of documents per bulk insert.
+	 *
+	 * @param batchSize must be greater than zero.
+	 * @return a new {@link JsonBulkLoader}.
+	 */
+	public JsonBulkLoader batchSize(int batchSize) {
+
+		Assert.isTrue(batchSize > 0, "Batch size must be greater than zero!");
+
+		return new JsonBulkLoader(collection, batchSize, parallelism, converter);
+	}
+
+	/**
+	 * Set the number of threads converting and writing documents.
+	 *
+	 * @param parallelism must be greater than zero.
+	 * @return a new {@link JsonBulkLoader}.
+	 */
+	public JsonBulkLoader parallelism(int parallelism) {
+
+		Assert.isTrue(parallelism > 0, "Parallelism must be greater than zero!");
+
+		return new JsonBulkLoader(collection, batchSize, parallelism, converter);
+	}
+
+	/**
+	 * Set a function to apply to each {@link Document} before it is written, eg. to add a type hint.
+	 *
+	 * @param converter must not be {@literal null}.
+	 * @return a new {@link JsonBulkLoader}.
+	 */
+	public JsonBulkLoader convertWith(UnaryOperator<Document> converter) {
+
+		Assert.notNull(converter, "Converter must not be null!");
+
+		return new JsonBulkLoader(collection, batchSize, parallelism, converter);
+	}
+
+	/**
+	 * Load the JSON array contained in the given {@link Resource}.
+	 *
+	 * @param resource must not be {@literal null}.
+	 * @return the {@link Result}.
+	 * @throws IOException
+	 */
+	public Result load(Resource resource) throws IOException {
+
+		Assert.notNull(resource, "Resource must not be null!");
+
+		try (InputStream json = resource.getInputStream()) {
+			return load(json);
+		}
+	}
+
+	/**
+	 * Load the JSON array read from the given {@link InputStream}. The stream is not closed.
+	 *
+	 * @param json must not be {@literal null}.
+	 * @return the {@link Result}.
+	 * @throws IOException
+	 */
+	public Result load(InputStream json) throws IOException {
+
+		Assert.notNull(json, "InputStream must not be null!");
+
+		long start = System.nanoTime();
+
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+
+			Thread thread = new Thread(runnable, "json-bulk-loader-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		Semaphore permits = new Semaphore(parallelism * 2);
+		List<Future<Integer>> batches = new ArrayList<>();
+
+		try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("Expected a JSON array but found " + parser.getCurrentToken());
+			}
+
+			List<TokenBuffer> batch = new ArrayList<>(batchSize);
+
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+
+				TokenBuffer element = new TokenBuffer(parser);
+				element.copyCurrentStructure(parser);
+				batch.add(element);
+
+				if (batch.size() == batchSize) {
+
+					batches.add(submit(executor, permits, batch));
+					batch = new ArrayList<>(batchSize);
+				}
+			}
+
+			if (parser.getCurrentToken() != JsonToken.END_ARRAY) {
+				throw new IOException("Expected a JSON object but found " + parser.getCurrentToken());
+			}
+
+			if (!batch.isEmpty()) {
+				batches.add(submit(executor, permits, batch));
+			}
+
+			long documents = 0;
+			for (Future<Integer> future : batches) {
+				documents += future.get();
+			}
+
+			Result result = new Result(documents, Duration.ofNanos(System.nanoTime() - start));
+
+			LOGGER.info("Loaded {} documents into {} in {} ms ({} docs/s).", result.getDocuments(),
+					collection.getNamespace(), result.getDuration().toMillis(), (long) result.getDocumentsPerSecond());
+
+			return result;
+
+		} catch (InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading documents", e);
+
+		} catch (ExecutionException e) {
+
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			throw new IOException(e.getCause());
+
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Future<Integer> submit(ExecutorService executor, Semaphore permits, List<TokenBuffer> batch)
+			throws InterruptedException {
+
+		permits.acquire();
+
+		try {
+			return executor.submit(() -> {
+
+				try {
+
+					List<Document> documents = new ArrayList<>(batch.size());
+
+					for (TokenBuffer element : batch) {
+						documents.add(converter.apply(MAPPER.readValue(element.asParser(MAPPER), Document.class)));
+					}
+
+					collection.insertMany(documents, new InsertManyOptions().ordered(false));
+
+					return documents.size();
+
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (RuntimeException e) {
+
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Outcome of {@link JsonBulkLoader#load(InputStream)}.
+	 */
+	public static class Result {
+
+		private final long documents;
+		private final Duration duration;
+
+		Result(long documents, Duration duration) {
+
+			this.documents = documents;
+			this.duration = duration;
+		}
+
+		/**
+		 * @return number of documents written.
+		 */
+		public long getDocuments() {
+			return documents;
+		}
+
+		/**
+		 * @return total time spent parsing, converting and writing.
+		 */
+		public Duration getDuration() {
+			return duration;
+		}
+
+		/**
+		 * @return write throughput.
+		 */
+		public double getDocumentsPerSecond() {
+			return duration.isZero() ? documents : documents / (duration.toNanos() / 1_000_000_000d);
+		}
+	}
+}
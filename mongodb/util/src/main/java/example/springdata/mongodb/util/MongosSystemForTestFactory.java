@@ -19,6 +19,13 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.Map.Entry;
 
@@ -76,19 +83,50 @@ class MongosSystemForTestFactory {
 	}
 
 	public void start() throws Throwable {
-		this.mongodProcessList = new ArrayList<>();
-		this.mongodConfigProcessList = new ArrayList<>();
+		this.mongodProcessList = new CopyOnWriteArrayList<>();
+		this.mongodConfigProcessList = new CopyOnWriteArrayList<>();
+
+		// executables are prepared one after another as preparing extracts the shared distribution
+		List<Callable<MongodProcess>> starts = new ArrayList<>();
 		for (Entry<String, List<IMongodConfig>> entry : replicaSets.entrySet()) {
-			initializeReplicaSet(entry);
+			starts.addAll(prepareReplicaSet(entry));
 		}
 		for (IMongodConfig config : configServers) {
-			initializeConfigServer(config);
+			starts.add(prepareConfigServer(config));
+		}
+
+		// members do not depend on each other, start them and initiate their replica sets concurrently
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(starts.size(), 1));
+		try {
+			awaitAll(executor.invokeAll(starts));
+
+			List<Callable<Void>> initiations = new ArrayList<>();
+			for (Entry<String, List<IMongodConfig>> entry : replicaSets.entrySet()) {
+				initiations.add(() -> {
+					initiateReplicaSet(entry.getKey(), entry.getValue());
+					return null;
+				});
+			}
+			awaitAll(executor.invokeAll(initiations));
+		} finally {
+			executor.shutdownNow();
 		}
+
 		initializeMongos();
 		configureMongos();
 	}
 
-	private void initializeReplicaSet(Entry<String, List<IMongodConfig>> entry)
+	private static void awaitAll(List<? extends Future<?>> futures) throws Throwable {
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	private List<Callable<MongodProcess>> prepareReplicaSet(Entry<String, List<IMongodConfig>> entry)
 			throws Exception {
 		String replicaName = entry.getKey();
 		List<IMongodConfig> mongoConfigList = entry.getValue();
@@ -97,7 +135,8 @@ class MongosSystemForTestFactory {
 			throw new Exception(
 					"A replica set must contain at least 3 members.");
 		}
-		// Create 3 mongod processes
+
+		List<Callable<MongodProcess>> starts = new ArrayList<>();
 		for (IMongodConfig mongoConfig : mongoConfigList) {
 			if (!mongoConfig.replication().getReplSetName().equals(replicaName)) {
 				throw new Exception(
@@ -109,86 +148,102 @@ class MongosSystemForTestFactory {
 				.build();
 			MongodStarter starter = MongodStarter.getInstance(runtimeConfig);
 			MongodExecutable mongodExe = starter.prepare(mongoConfig);
-			MongodProcess process = mongodExe.start();
-			mongodProcessList.add(process);
+			starts.add(() -> {
+				MongodProcess process = mongodExe.start();
+				mongodProcessList.add(process);
+				return process;
+			});
 		}
-		Thread.sleep(1000);
+		return starts;
+	}
+
+	/**
+	 * Initiate the replica set formed by the given, already running members and wait until it has elected a primary.
+	 *
+	 * @param replicaName
+	 * @param mongoConfigList
+	 * @throws Exception
+	 */
+	static void initiateReplicaSet(String replicaName, List<IMongodConfig> mongoConfigList)
+			throws Exception {
 		MongoClientOptions mo = MongoClientOptions.builder()
 				.connectTimeout(10)
 				.build();
-		MongoClient mongo = new MongoClient(new ServerAddress(mongoConfigList.get(0).net()
+		try (MongoClient mongo = new MongoClient(new ServerAddress(mongoConfigList.get(0).net()
 				.getServerAddress().getHostName(), mongoConfigList.get(0).net()
-				.getPort()), mo);
-		DB mongoAdminDB = mongo.getDB(ADMIN_DATABASE_NAME);
-
-		CommandResult cr = mongoAdminDB
-				.command(new BasicDBObject("isMaster", 1));
-		logger.info("isMaster: {}", cr);
-
-		// Build BSON object replica set settings
-		DBObject replicaSetSetting = new BasicDBObject();
-		replicaSetSetting.put("_id", replicaName);
-		BasicDBList members = new BasicDBList();
-		int i = 0;
-		for (IMongodConfig mongoConfig : mongoConfigList) {
-			DBObject host = new BasicDBObject();
-			host.put("_id", i++);
-			host.put("host", mongoConfig.net().getServerAddress().getHostName()
-					+ ":" + mongoConfig.net().getPort());
-			members.add(host);
-		}
+				.getPort()), mo)) {
+			DB mongoAdminDB = mongo.getDB(ADMIN_DATABASE_NAME);
+
+			CommandResult cr = mongoAdminDB
+					.command(new BasicDBObject("isMaster", 1));
+			logger.info("isMaster: {}", cr);
+
+			// Build BSON object replica set settings
+			DBObject replicaSetSetting = new BasicDBObject();
+			replicaSetSetting.put("_id", replicaName);
+			BasicDBList members = new BasicDBList();
+			int i = 0;
+			for (IMongodConfig mongoConfig : mongoConfigList) {
+				DBObject host = new BasicDBObject();
+				host.put("_id", i++);
+				host.put("host", mongoConfig.net().getServerAddress().getHostName()
+						+ ":" + mongoConfig.net().getPort());
+				members.add(host);
+			}
 
-		replicaSetSetting.put("members", members);
-		logger.info(replicaSetSetting.toString());
-		// Initialize replica set
-		cr = mongoAdminDB.command(new BasicDBObject("replSetInitiate",
-				replicaSetSetting));
-		logger.info("replSetInitiate: {}", cr);
-
-		Thread.sleep(5000);
-		cr = mongoAdminDB.command(new BasicDBObject("replSetGetStatus", 1));
-		logger.info("replSetGetStatus: {}", cr);
-
-		// Check replica set status before to proceed
-		while (!isReplicaSetStarted(cr)) {
-			logger.info("Waiting for 3 seconds...");
-			Thread.sleep(1000);
+			replicaSetSetting.put("members", members);
+			logger.info(replicaSetSetting.toString());
+			// Initialize replica set
+			cr = mongoAdminDB.command(new BasicDBObject("replSetInitiate",
+					replicaSetSetting));
+			logger.info("replSetInitiate: {}", cr);
+
+			// Check replica set status before to proceed
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
 			cr = mongoAdminDB.command(new BasicDBObject("replSetGetStatus", 1));
+			while (!isReplicaSetStarted(cr)) {
+				if (System.nanoTime() > deadline) {
+					throw new IllegalStateException(
+							String.format("Replica set '%s' did not start in time: %s", replicaName, cr));
+				}
+				Thread.sleep(100);
+				cr = mongoAdminDB.command(new BasicDBObject("replSetGetStatus", 1));
+			}
 			logger.info("replSetGetStatus: {}", cr);
 		}
-
-		mongo.close();
-		mongo = null;
 	}
 
-	private boolean isReplicaSetStarted(BasicDBObject setting) {
+	private static boolean isReplicaSetStarted(BasicDBObject setting) {
 		if (setting.get("members") == null) {
 			return false;
 		}
 
+		boolean primary = false;
 		BasicDBList members = (BasicDBList) setting.get("members");
 		for (Object m : members.toArray()) {
 			BasicDBObject member = (BasicDBObject) m;
-			logger.info(member.toString());
 			int state = member.getInt("state");
-			logger.info("state: {}", state);
 			// 1 - PRIMARY, 2 - SECONDARY, 7 - ARBITER
 			if (state != 1 && state != 2 && state != 7) {
 				return false;
 			}
+			primary |= state == 1;
 		}
-		return true;
+		return primary;
 	}
 
-	private void initializeConfigServer(IMongodConfig config) throws Exception {
+	private Callable<MongodProcess> prepareConfigServer(IMongodConfig config) throws Exception {
 		if (!config.isConfigServer()) {
 			throw new Exception(
 					"Mongo configuration is not a defined for a config server.");
 		}
 		MongodStarter starter = MongodStarter.getDefaultInstance();
 		MongodExecutable mongodExe = starter.prepare(config);
-		MongodProcess process = mongodExe.start();
-		mongodProcessList.add(process);
+		return () -> {
+			MongodProcess process = mongodExe.start();
+			mongodConfigProcessList.add(process);
+			return process;
+		};
 	}
 
 	private void initializeMongos() throws Exception {
@@ -269,12 +324,11 @@ class MongosSystemForTestFactory {
 	}
 
 	public void stop() {
-		for (MongodProcess process : this.mongodProcessList) {
-			process.stop();
-		}
-		for (MongodProcess process : this.mongodConfigProcessList) {
-			process.stop();
+		List<MongodProcess> processes = new ArrayList<>(this.mongodProcessList);
+		processes.addAll(this.mongodConfigProcessList);
+		processes.parallelStream().forEach(MongodProcess::stop);
+		if (this.mongosProcess != null) {
+			this.mongosProcess.stop();
 		}
-		this.mongosProcess.stop();
 	}
 }